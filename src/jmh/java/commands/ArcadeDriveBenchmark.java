@@ -0,0 +1,58 @@
+package commands;
+
+import java.util.concurrent.TimeUnit;
+
+import com.diozero.devices.Servo;
+
+import org.openjdk.jmh.annotations.*;
+
+import devices.DigisparkFeedbackEncoder;
+import devices.FakePwmOutputDeviceFactory;
+import devices.ParallaxHallEffectFeedbackSensor;
+import oi.GamepadSnapshot;
+import oi.OperatorInterface;
+import subsystems.DriveTrain;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArcadeDriveBenchmark {
+  private ArcadeDrive arcadeDrive;
+
+  @Setup
+  public void setUp() {
+    // Forward and to the right, without a gamepad
+    GamepadSnapshot snapshot = new GamepadSnapshot(1, 0, 0.3f, -0.6f, 0, 0);
+    OperatorInterface operatorInterface = new OperatorInterface(null) {
+      @Override
+      public GamepadSnapshot getSnapshot() {
+        return snapshot;
+      }
+    };
+    // An encoder that never touches the bus
+    DigisparkFeedbackEncoder encoder = new DigisparkFeedbackEncoder(null) {
+      @Override
+      public void update() {
+      }
+    };
+    Servo.Trim trim = new Servo.Trim(1.5f, 1.5f, 1.28f, 1.72f);
+    FakePwmOutputDeviceFactory pwmFactory = new FakePwmOutputDeviceFactory();
+    DriveTrain driveTrain = new DriveTrain(
+        trim,
+        pwmFactory.newServo(24, trim.getMidPulseWidthMs(), trim),
+        pwmFactory.newServo(23, trim.getMidPulseWidthMs(), trim),
+        encoder,
+        new ParallaxHallEffectFeedbackSensor(encoder, ParallaxHallEffectFeedbackSensor.WheelSide.LEFT),
+        new ParallaxHallEffectFeedbackSensor(encoder, ParallaxHallEffectFeedbackSensor.WheelSide.RIGHT),
+        operatorInterface);
+    arcadeDrive = new ArcadeDrive(driveTrain, operatorInterface);
+  }
+
+  @Benchmark
+  public void execute() {
+    arcadeDrive.execute();
+  }
+}
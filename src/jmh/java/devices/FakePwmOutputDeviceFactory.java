@@ -0,0 +1,99 @@
+package devices;
+
+import java.util.EnumSet;
+
+import com.diozero.api.DeviceMode;
+import com.diozero.api.PinInfo;
+import com.diozero.devices.Servo;
+import com.diozero.internal.provider.AbstractDevice;
+import com.diozero.internal.provider.AbstractDeviceFactory;
+import com.diozero.internal.provider.PwmOutputDeviceFactoryInterface;
+import com.diozero.internal.provider.PwmOutputDeviceInterface;
+import com.diozero.util.BoardPinInfo;
+
+/**
+ * Provides servos whose pulse widths go nowhere, so benchmarks measure
+ * our code rather than a mocking library or the pigpio socket.
+ */
+public class FakePwmOutputDeviceFactory extends AbstractDeviceFactory implements PwmOutputDeviceFactoryInterface {
+  private static final int GPIO_COUNT = 28;
+
+  private final BoardPinInfo boardPinInfo = new FakeBoardPinInfo();
+  private int boardPwmFrequency = 50;
+
+  public FakePwmOutputDeviceFactory() {
+    super("FakePwm");
+  }
+
+  public Servo newServo(int gpio, float initialPulseWidthMs, Servo.Trim trim) {
+    return new Servo(this, gpio, initialPulseWidthMs, boardPwmFrequency, trim);
+  }
+
+  @Override
+  public String getName() {
+    return "FakePwm";
+  }
+
+  @Override
+  public BoardPinInfo getBoardPinInfo() {
+    return boardPinInfo;
+  }
+
+  @Override
+  public int getBoardPwmFrequency() {
+    return boardPwmFrequency;
+  }
+
+  @Override
+  public void setBoardPwmFrequency(int pwmFrequency) {
+    boardPwmFrequency = pwmFrequency;
+  }
+
+  @Override
+  public PwmOutputDeviceInterface createPwmOutputDevice(String key, PinInfo pinInfo, int pwmFrequency, float initialValue) {
+    return new FakePwmOutputDevice(key, this, pinInfo.getDeviceNumber(), initialValue);
+  }
+
+  private static class FakeBoardPinInfo extends BoardPinInfo {
+    FakeBoardPinInfo() {
+      for (int gpio = 0; gpio < GPIO_COUNT; gpio++) {
+        addPwmPinInfo(gpio, gpio, gpio, EnumSet.of(DeviceMode.PWM_OUTPUT));
+      }
+    }
+  }
+
+  private static class FakePwmOutputDevice extends AbstractDevice implements PwmOutputDeviceInterface {
+    private final int gpio;
+    private float value;
+
+    FakePwmOutputDevice(String key, FakePwmOutputDeviceFactory factory, int gpio, float initialValue) {
+      super(key, factory);
+      this.gpio = gpio;
+      this.value = initialValue;
+    }
+
+    @Override
+    public int getGpio() {
+      return gpio;
+    }
+
+    @Override
+    public int getPwmNum() {
+      return gpio;
+    }
+
+    @Override
+    public float getValue() {
+      return value;
+    }
+
+    @Override
+    public void setValue(float value) {
+      this.value = value;
+    }
+
+    @Override
+    protected void closeDevice() {
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package devices;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallaxHallEffectFeedbackSensorBenchmark {
+  // About 120rpm sampled every 10ms
+  private static final int DUTY_CYCLE_STEP = 19;
+  private static final long SAMPLE_PERIOD_NANOS = 10000000;
+
+  @Param({ "QUADRANT", "VELOCITY" })
+  public ParallaxHallEffectFeedbackSensor.UnwrapMode unwrapMode;
+
+  private ParallaxHallEffectFeedbackSensor sensor;
+  private int dutyCycle;
+  private long timestampNanos;
+
+  @Setup
+  public void setUp() {
+    sensor = new ParallaxHallEffectFeedbackSensor(
+        mock(DigisparkFeedbackEncoder.class, withSettings().stubOnly()),
+        ParallaxHallEffectFeedbackSensor.WheelSide.LEFT,
+        unwrapMode);
+    dutyCycle = 29;
+  }
+
+  @Benchmark
+  public boolean update() {
+    dutyCycle += DUTY_CYCLE_STEP;
+    if (dutyCycle > 971) {
+      dutyCycle -= 943;
+    }
+    timestampNanos += SAMPLE_PERIOD_NANOS;
+    return sensor.update(dutyCycle, timestampNanos);
+  }
+
+  @Benchmark
+  public long getTickCount() {
+    return sensor.getTickCount();
+  }
+}
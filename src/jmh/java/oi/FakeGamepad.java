@@ -0,0 +1,89 @@
+package oi;
+
+import net.java.games.input.AbstractComponent;
+import net.java.games.input.AbstractController;
+import net.java.games.input.Component;
+import net.java.games.input.Controller;
+import net.java.games.input.Event;
+import net.java.games.input.Rumbler;
+
+/**
+ * A gamepad with six axes and ten buttons that answers every poll without
+ * touching a device, so benchmarks measure our code rather than a mocking
+ * library or the kernel. Each poll moves the axes and buttons on a little
+ * so the values read back are never constant.
+ */
+public class FakeGamepad extends AbstractController {
+  private static final Component.Identifier[] AXES = {
+      Component.Identifier.Axis.X,
+      Component.Identifier.Axis.Y,
+      Component.Identifier.Axis.Z,
+      Component.Identifier.Axis.RX,
+      Component.Identifier.Axis.RY,
+      Component.Identifier.Axis.RZ
+  };
+  private static final Component.Identifier[] BUTTONS = {
+      Component.Identifier.Button._0,
+      Component.Identifier.Button._1,
+      Component.Identifier.Button._2,
+      Component.Identifier.Button._3,
+      Component.Identifier.Button._4,
+      Component.Identifier.Button._5,
+      Component.Identifier.Button._6,
+      Component.Identifier.Button._7,
+      Component.Identifier.Button._8,
+      Component.Identifier.Button._9
+  };
+
+  public FakeGamepad() {
+    super("Fake Gamepad", newComponents(), new Controller[0], new Rumbler[0]);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.GAMEPAD;
+  }
+
+  @Override
+  protected boolean getNextDeviceEvent(Event event) {
+    return false;
+  }
+
+  private static Component[] newComponents() {
+    Component[] components = new Component[AXES.length + BUTTONS.length];
+    for (int i = 0; i < AXES.length; i++) {
+      components[i] = new FakeComponent("Axis " + i, AXES[i], true, i);
+    }
+    for (int i = 0; i < BUTTONS.length; i++) {
+      components[AXES.length + i] = new FakeComponent("Button " + i, BUTTONS[i], false, i);
+    }
+    return components;
+  }
+
+  private static class FakeComponent extends AbstractComponent {
+    private final boolean analog;
+    private int polls;
+
+    FakeComponent(String name, Component.Identifier identifier, boolean analog, int offset) {
+      super(name, identifier);
+      this.analog = analog;
+      this.polls = offset;
+    }
+
+    @Override
+    public boolean isAnalog() {
+      return analog;
+    }
+
+    @Override
+    public boolean isRelative() {
+      return false;
+    }
+
+    @Override
+    protected float poll() {
+      polls++;
+      return analog ? (polls % 201 - 100) / 100f : polls & 1;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package oi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JInputJoystickBenchmark {
+  private JInputJoystick gamepad;
+
+  @Setup
+  public void setUp() {
+    gamepad = new JInputJoystick(new FakeGamepad());
+  }
+
+  @Benchmark
+  public float readAxes() {
+    return gamepad.getX_LeftJoystick_Value() 
+        + gamepad.getY_LeftJoystick_Value() 
+        + gamepad.getX_RightJoystick_Value() 
+        + gamepad.getY_RightJoystick_Value();
+  }
+
+  @Benchmark
+  public int readButtons() {
+    return gamepad.getButtons();
+  }
+
+  @Benchmark
+  public boolean pollController() {
+    return gamepad.pollController();
+  }
+}
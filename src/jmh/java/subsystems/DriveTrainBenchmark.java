@@ -0,0 +1,55 @@
+package subsystems;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.concurrent.TimeUnit;
+
+import com.diozero.devices.Servo;
+
+import org.openjdk.jmh.annotations.*;
+
+import devices.DigisparkFeedbackEncoder;
+import devices.FakePwmOutputDeviceFactory;
+import devices.ParallaxHallEffectFeedbackSensor;
+import oi.OperatorInterface;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriveTrainBenchmark {
+  private DriveTrain driveTrain;
+  private int pct;
+
+  @Setup
+  public void setUp() {
+    // Devices that are not on the hot path are stub only mocks, which do not record invocations
+    Servo.Trim trim = new Servo.Trim(1.5f, 1.5f, 1.28f, 1.72f);
+    FakePwmOutputDeviceFactory pwmFactory = new FakePwmOutputDeviceFactory();
+    Servo leftServo = pwmFactory.newServo(24, trim.getMidPulseWidthMs(), trim);
+    leftServo.setInverted(true);
+    driveTrain = new DriveTrain(
+        trim,
+        leftServo,
+        pwmFactory.newServo(23, trim.getMidPulseWidthMs(), trim),
+        mock(DigisparkFeedbackEncoder.class, withSettings().stubOnly()),
+        mock(ParallaxHallEffectFeedbackSensor.class, withSettings().stubOnly()),
+        mock(ParallaxHallEffectFeedbackSensor.class, withSettings().stubOnly()),
+        mock(OperatorInterface.class, withSettings().stubOnly()));
+  }
+
+  @Benchmark
+  public void setWheelDrive() {
+    pct = (pct >= 100) ? -100 : pct + 1;
+    driveTrain.setLeftWheelDrive(pct);
+    driveTrain.setRightWheelDrive(pct);
+  }
+
+  @Benchmark
+  public int getWheelDrive() {
+    return driveTrain.getLeftWheelDrive() + driveTrain.getRightWheelDrive();
+  }
+}
@@ -0,0 +1,37 @@
+package telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryRingBenchmark {
+  private File file;
+  private TelemetryRing ring;
+  private long tick;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = File.createTempFile("telemetry", ".ring");
+    ring = new TelemetryRing(file.getPath(), 50 * 60 * 60);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ring.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public void record() {
+    tick++;
+    ring.record(tick * 20000000, 75, 70, 75, 70, tick * 7, tick * 6, 150000);
+  }
+}
@@ -1,18 +1,29 @@
+import java.io.IOException;
+
 import com.diozero.devices.Servo;
 
 import edu.wpi.first.wpilibj.command.Scheduler;
 
-import net.java.games.input.*;
-
-import oi.JInputJoystick;
+import oi.Gamepad;
+import oi.GamepadDiscovery;
 import oi.OperatorInterface;
+import oi.UdpGamepad;
 
 import org.pmw.tinylog.Logger;
-import org.team997coders.wpilibj.SchedulerTask;
 
 import devices.DigisparkFeedbackEncoder;
+import devices.EncoderBusManager;
 import devices.ParallaxHallEffectFeedbackSensor;
+import loop.ControlLoop;
+import loop.LoopTiming;
+import motion.DriveGeometry;
+import replay.DriveLogWriter;
 import subsystems.DriveTrain;
+import subsystems.Odometry;
+import subsystems.VelocityGains;
+import telemetry.DriveTelemetry;
+import telemetry.DriveTrainTelemetrySource;
+import telemetry.TelemetryServer;
 
 // This robot program uses continuous rotation servos from Parallax and the Servo class in diozero.
 // See https://www.parallax.com/sites/default/files/downloads/900-00008-Continuous-Rotation-Servo-Documentation-v2.2.pdf
@@ -23,15 +34,31 @@ public class Main {
   // Define constants
   private static final int leftWheelPin = 24;     // PI GPIO 24 is the left wheel, pin 13 on Stamp board
   private static final int rightWheelPin = 23;    // PI GPIO 23 is the right wheel, pin 12 on Stamp board
-
-  public static void main(String[] args) throws InterruptedException {
-    // Create a gamepad
-    JInputJoystick gamepad = new JInputJoystick(Controller.Type.STICK, Controller.Type.GAMEPAD);
-
-    // Check if a gamepad was found.
-    if (!gamepad.isControllerConnected()){
-      Logger.info("No gamepad controller found!");
-      System.exit(1);
+  private static final long gamepadSamplePeriodMs = 10;
+  private static final long feedbackSamplePeriodMs = 10;
+  private static final long velocityLoopPeriodMs = 10;
+  private static final long controlLoopPeriodNanos = 20000000;   // 50Hz, like the roboRIO
+  private static final long controlLoopSpinNanos = 0;           // raise to spin before each run on a dedicated core
+  private static final long loopTimingReportPeriodMs = 10000;
+  private static final long servoReconcilePeriodMs = 1000;
+  private static final float servoReconcileToleranceMs = 0.05f;  // allows for coarse PWM read back
+  private static final int telemetryCapacityTicks = 50 * 60 * 60;   // the last hour of control loop ticks
+  private static final long telemetryStreamSamplePeriodMs = 20;
+  private static final int telemetryStreamSamplesPerBatch = 5;       // 10 batches a second
+
+  public static void main(String[] args) throws InterruptedException, IOException {
+    // Create a gamepad, or receive one from the driver's laptop with -DgamepadPort=5801
+    Integer gamepadPort = Integer.getInteger("gamepadPort");
+    Gamepad gamepad;
+    if (gamepadPort != null) {
+      UdpGamepad udpGamepad = new UdpGamepad(gamepadPort, UdpGamepad.DEFAULT_TIMEOUT_MS);
+      udpGamepad.start();
+      gamepad = udpGamepad;
+    } else {
+      // Look for the gamepad in the background; the robot stays stopped until it is plugged in
+      GamepadDiscovery discovery = new GamepadDiscovery(0);
+      discovery.start(GamepadDiscovery.DEFAULT_SCAN_PERIOD_MS);
+      gamepad = discovery;
     }
 
     // Instantiate hardware
@@ -44,17 +71,25 @@ public class Main {
       // Set up communication with servo feedback encoders
       DigisparkFeedbackEncoder digisparkFeedbackEncoder = new DigisparkFeedbackEncoder();
       ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor = 
-          new ParallaxHallEffectFeedbackSensor(digisparkFeedbackEncoder, ParallaxHallEffectFeedbackSensor.WheelSide.LEFT);
+          new ParallaxHallEffectFeedbackSensor(
+              digisparkFeedbackEncoder, 
+              ParallaxHallEffectFeedbackSensor.WheelSide.LEFT, 
+              ParallaxHallEffectFeedbackSensor.UnwrapMode.VELOCITY);
       ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor = 
-          new ParallaxHallEffectFeedbackSensor(digisparkFeedbackEncoder, ParallaxHallEffectFeedbackSensor.WheelSide.RIGHT);
+          new ParallaxHallEffectFeedbackSensor(
+              digisparkFeedbackEncoder, 
+              ParallaxHallEffectFeedbackSensor.WheelSide.RIGHT, 
+              ParallaxHallEffectFeedbackSensor.UnwrapMode.VELOCITY);
 
       // Set up the operator interface so we can get joystick feedback
-      OperatorInterface operatorInterface = new OperatorInterface(gamepad);
-
-      // Start the command scheduler
-      SchedulerTask schedulerTask = new SchedulerTask(Scheduler.getInstance());
-      schedulerTask.start();
-      Logger.info("Robot command scheduler started.");
+      OperatorInterface operatorInterface;
+      if (gamepadPort != null) {
+        // Packets are published as they arrive, so read the latest on every tick
+        operatorInterface = new OperatorInterface(gamepad, 0);
+      } else {
+        operatorInterface = new OperatorInterface(gamepad);
+        operatorInterface.startSampling(gamepadSamplePeriodMs);
+      }
 
       // Instantiate subsystems
       DriveTrain driveTrain = new DriveTrain(
@@ -65,10 +100,69 @@ public class Main {
         leftWheelFeedbackSensor, 
         rightWheelFeedbackSensor, 
         operatorInterface);
+      Odometry odometry = new Odometry(DriveGeometry.learningBot());
+      driveTrain.setFeedbackListener(odometry);
+      // Arm or turret encoder boards go on this bus too, read after the wheels within the budget
+      EncoderBusManager encoderBus = new EncoderBusManager();
+      encoderBus.addBoard(digisparkFeedbackEncoder, EncoderBusManager.DRIVE_PRIORITY);
+      driveTrain.setEncoderBus(encoderBus);
+      driveTrain.startFeedbackAcquisition(feedbackSamplePeriodMs);
+      driveTrain.setBatchedServoOutputs(true);
+      driveTrain.startServoReconciliation(servoReconcilePeriodMs, servoReconcileToleranceMs);
+
+      // Drive the wheels at commanded speeds rather than power if asked, with -DclosedLoop=true
+      if (Boolean.getBoolean("closedLoop")) {
+        driveTrain.enableClosedLoop(VelocityGains.parallax360HighSpeed(), velocityLoopPeriodMs);
+      }
+
+      // Record the drive session for replay if asked, with -DdriveLog=<file>
+      String driveLogFileName = System.getProperty("driveLog");
+      if (driveLogFileName != null) {
+        DriveLogWriter driveLog = new DriveLogWriter(driveLogFileName);
+        operatorInterface.setRecorder(driveLog);
+        driveTrain.setRecorder(driveLog);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+          try {
+            driveLog.close();
+          } catch (IOException e) {
+            Logger.error("Error closing drive log: " + e.getMessage());
+          }
+        }, "DriveLogClose"));
+        Logger.info("Recording drive session to " + driveLogFileName);
+      }
 
-      while (true) {
-        Thread.sleep(100);
+      // Log every drive tick if asked, with -Dtelemetry=<file>
+      String telemetryFileName = System.getProperty("telemetry");
+      if (telemetryFileName != null) {
+        DriveTelemetry.open(telemetryFileName, telemetryCapacityTicks);
       }
+
+      // Run the command scheduler at a fixed rate on this thread
+      Scheduler scheduler = Scheduler.getInstance();
+      ControlLoop controlLoop = new ControlLoop(
+          "RobotControlLoop", 
+          () -> {
+            long start = LoopTiming.start();
+            scheduler.run();
+            driveTrain.flushServoOutputs();
+            LoopTiming.stop(LoopTiming.Stage.SCHEDULER_RUN, start);
+          }, 
+          controlLoopPeriodNanos, 
+          controlLoopSpinNanos);
+      LoopTiming.startReporting(loopTimingReportPeriodMs);
+
+      // Stream telemetry to dashboards if asked, with -DtelemetryPort=5800
+      Integer telemetryPort = Integer.getInteger("telemetryPort");
+      if (telemetryPort != null) {
+        TelemetryServer telemetryServer = new TelemetryServer(
+            new DriveTrainTelemetrySource(driveTrain, controlLoop, odometry), 
+            telemetryPort, 
+            telemetryStreamSamplePeriodMs, 
+            telemetryStreamSamplesPerBatch);
+        telemetryServer.start();
+      }
+      Logger.info("Robot command scheduler started.");
+      controlLoop.run();
     }
   }
 }
\ No newline at end of file
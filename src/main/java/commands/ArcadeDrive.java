@@ -1,71 +1,57 @@
 package commands;
 
+import loop.LoopTiming;
+import oi.DriveInputShaper;
+import oi.DriveMixer;
+import oi.GamepadSnapshot;
 import oi.OperatorInterface;
 
 import subsystems.DriveTrain;
-
-import org.pmw.tinylog.Logger;
+import telemetry.DriveTelemetry;
 
 import edu.wpi.first.wpilibj.command.Command;
 
 public class ArcadeDrive extends Command {
   private final DriveTrain driveTrain;
   private final OperatorInterface operatorInterface;
-  private long lastLeftRotationCount;
+  private final DriveInputShaper inputShaper;
 
   public ArcadeDrive(
       DriveTrain driveTrain, 
       OperatorInterface operatorInterface) {
+    this(driveTrain, operatorInterface, DriveInputShaper.standard(DriveMixer.Mode.ARCADE));
+  }
+
+  public ArcadeDrive(
+      DriveTrain driveTrain, 
+      OperatorInterface operatorInterface,
+      DriveInputShaper inputShaper) {
     super("ArcadeDrive");
     requires(driveTrain);
     this.driveTrain = driveTrain;
     this.operatorInterface = operatorInterface;
+    this.inputShaper = inputShaper;
+  }
+
+  @Override
+  protected void initialize() {
+    inputShaper.reset();
   }
 
   @Override
   protected void execute() {
-    int leftWheelPct = deadband(operatorInterface.getLeftYAxis());
-    int rightWheelPct = leftWheelPct;
-    int xAxis = deadband(operatorInterface.getLeftXAxis());
-    if (leftWheelPct > 0) {
-      // make turn
-      if (xAxis > 0) {
-        // turn to the right
-        rightWheelPct = rightWheelPct * (100 - xAxis);
-      } else if (xAxis < 0) {
-        // turn to the left
-        leftWheelPct = leftWheelPct * (100 + xAxis);
-      }
-    } else if (leftWheelPct < 0) {
-      // make turn
-      if (xAxis < 0) {
-        // turn to the right
-        rightWheelPct = rightWheelPct * (100 - xAxis);
-      } else if (xAxis > 0) {
-        // turn to the left
-        leftWheelPct = leftWheelPct * (100 + xAxis);
-      }
-    } else {
-      // spin
-      leftWheelPct = -xAxis;
-      rightWheelPct = xAxis;
-    }
+    long start = LoopTiming.start();
+    long tickStart = DriveTelemetry.startTick();
+    GamepadSnapshot gamepad = operatorInterface.getSnapshot();
+    // Left stick: y drives, x turns
+    inputShaper.arcade(gamepad.getLeftYAxis(), gamepad.getLeftXAxis());
+    int leftWheelPct = inputShaper.getLeftWheelPct();
+    int rightWheelPct = inputShaper.getRightWheelPct();
     driveTrain.setLeftWheelDrive(leftWheelPct);
     driveTrain.setRightWheelDrive(rightWheelPct);
-//    Logger.info("Left set = " + leftWheelPct + "; Left get = " + driveTrain.getLeftWheelDrive());
-//    Logger.info("Right set = " + rightWheelPct + "; Right get = " + driveTrain.getRightWheelDrive());
     driveTrain.updateFeedbackSensors();
-    if (lastLeftRotationCount != driveTrain.getLeftWheelTickCount() / 360) {
-      lastLeftRotationCount = driveTrain.getLeftWheelTickCount() / 360;
-    }
-  }
-
-  private int deadband(float rawJoystickValue) {
-    if (rawJoystickValue > -0.05 && rawJoystickValue < 0.05) {
-      return 0;
-    } else {
-      return Math.round(rawJoystickValue * 100);
-    }
+    DriveTelemetry.record(driveTrain, leftWheelPct, rightWheelPct, tickStart);
+    LoopTiming.stop(LoopTiming.Stage.ARCADE_DRIVE_EXECUTE, start);
   }
 
   @Override
@@ -77,4 +63,4 @@ public class ArcadeDrive extends Command {
   protected void end() {
     driveTrain.stop();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package commands;
+
+import motion.DriveGeometry;
+import motion.MotionConstraints;
+import motion.ProfileGains;
+
+import subsystems.DriveTrain;
+
+/**
+ * Drive straight for a distance, forward if positive and backward if negative.
+ */
+public class DriveDistance extends ProfiledDriveCommand {
+  private static final double toleranceTicks = 4;
+  private static final double settleSeconds = 0.5;
+
+  private final double distanceTicks;
+
+  /**
+   * @param driveTrain    Drive train to move
+   * @param geometry      Wheel size of the robot
+   * @param meters        How far to drive
+   * @param constraints   Limits on wheel motion in ticks
+   * @param gains         Gains for following the profile
+   * @param dtSeconds     Scheduler period in seconds
+   */
+  public DriveDistance(DriveTrain driveTrain, 
+      DriveGeometry geometry, 
+      double meters, 
+      MotionConstraints constraints, 
+      ProfileGains gains, 
+      double dtSeconds) {
+    super("DriveDistance", 
+        driveTrain, 
+        constraints, 
+        gains, 
+        dtSeconds, 
+        toleranceTicks, 
+        (int)Math.round(settleSeconds / dtSeconds), 
+        1, 
+        1);
+    this.distanceTicks = geometry.metersToTicks(meters);
+  }
+
+  @Override
+  protected double getDistanceTicks() {
+    return distanceTicks;
+  }
+}
@@ -0,0 +1,134 @@
+package commands;
+
+import loop.LoopTiming;
+import motion.DriveGeometry;
+import motion.ProfileGains;
+import motion.Trajectory;
+
+import subsystems.DriveTrain;
+import subsystems.Odometry;
+import telemetry.DriveTelemetry;
+
+import edu.wpi.first.wpilibj.command.Command;
+
+/**
+ * Drives along a trajectory using a Ramsete controller. Every execute
+ * steps one point along the trajectory, so its time step must match the
+ * scheduler period. The controller compares the odometry pose with where
+ * the trajectory says the robot should be, adjusts the trajectory's speed
+ * and turn rate to steer back onto it, and drives each wheel at the
+ * resulting speed with feed forward. Starting the command resets the
+ * odometry to the start of the trajectory. With the drive train in closed
+ * loop mode each wheel is asked for that speed directly and its velocity
+ * loop holds it. Nothing is allocated per execute.
+ */
+public class FollowTrajectory extends Command {
+  // Ramsete tuning: how hard to correct, and how much to damp the correction
+  private static final double b = 2.0;
+  private static final double zeta = 0.7;
+
+  private final DriveTrain driveTrain;
+  private final Odometry odometry;
+  private final DriveGeometry geometry;
+  private final Trajectory trajectory;
+  private final ProfileGains gains;
+  private final double[] pose = new double[3];
+  private int step;
+  private double lastLeftTicksPerSecond;
+  private double lastRightTicksPerSecond;
+
+  /**
+   * @param driveTrain    Drive train to move
+   * @param odometry      Pose estimate fed by the drive train's feedback
+   * @param geometry      Wheel size and track width of the robot
+   * @param trajectory    Where to drive, with a time step matching the scheduler period
+   * @param gains         Feed forward gains for each wheel; kP is not used
+   */
+  public FollowTrajectory(DriveTrain driveTrain, 
+      Odometry odometry, 
+      DriveGeometry geometry, 
+      Trajectory trajectory, 
+      ProfileGains gains) {
+    super("FollowTrajectory");
+    requires(driveTrain);
+    this.driveTrain = driveTrain;
+    this.odometry = odometry;
+    this.geometry = geometry;
+    this.trajectory = trajectory;
+    this.gains = gains;
+  }
+
+  @Override
+  protected void initialize() {
+    driveTrain.updateFeedbackSensors();
+    odometry.reset(trajectory.getX(0), trajectory.getY(0), trajectory.getHeading(0));
+    step = 0;
+    lastLeftTicksPerSecond = 0;
+    lastRightTicksPerSecond = 0;
+  }
+
+  @Override
+  protected void execute() {
+    long start = LoopTiming.start();
+    long tickStart = DriveTelemetry.startTick();
+    driveTrain.updateFeedbackSensors();
+    odometry.getPose(pose);
+    if (step < trajectory.getLength() - 1) {
+      step++;
+    }
+    double velocity = trajectory.getVelocity(step);
+    double angularVelocity = trajectory.getAngularVelocity(step);
+
+    // Error in the robot's frame of reference
+    double cos = Math.cos(pose[2]);
+    double sin = Math.sin(pose[2]);
+    double fieldErrorX = trajectory.getX(step) - pose[0];
+    double fieldErrorY = trajectory.getY(step) - pose[1];
+    double errorX = cos * fieldErrorX + sin * fieldErrorY;
+    double errorY = -sin * fieldErrorX + cos * fieldErrorY;
+    double headingError = trajectory.getHeading(step) - pose[2];
+    headingError = Math.atan2(Math.sin(headingError), Math.cos(headingError));
+
+    double k = 2 * zeta * Math.sqrt(angularVelocity * angularVelocity + b * velocity * velocity);
+    double commandedVelocity = velocity * Math.cos(headingError) + k * errorX;
+    double commandedAngularVelocity = angularVelocity + k * headingError + b * velocity * sinc(headingError) * errorY;
+
+    double halfTrack = geometry.getTrackWidthMeters() / 2;
+    double leftTicksPerSecond = geometry.metersToTicks(commandedVelocity - commandedAngularVelocity * halfTrack);
+    double rightTicksPerSecond = geometry.metersToTicks(commandedVelocity + commandedAngularVelocity * halfTrack);
+    int leftWheelPct;
+    int rightWheelPct;
+    if (driveTrain.isClosedLoop()) {
+      driveTrain.setLeftWheelSpeed(leftTicksPerSecond);
+      driveTrain.setRightWheelSpeed(rightTicksPerSecond);
+      leftWheelPct = driveTrain.getLeftWheelDrive();
+      rightWheelPct = driveTrain.getRightWheelDrive();
+    } else {
+      double dtSeconds = trajectory.getDtSeconds();
+      leftWheelPct = (int)Math.round(gains.calculate(
+          leftTicksPerSecond, (leftTicksPerSecond - lastLeftTicksPerSecond) / dtSeconds, 0));
+      rightWheelPct = (int)Math.round(gains.calculate(
+          rightTicksPerSecond, (rightTicksPerSecond - lastRightTicksPerSecond) / dtSeconds, 0));
+      driveTrain.setLeftWheelDrive(leftWheelPct);
+      driveTrain.setRightWheelDrive(rightWheelPct);
+    }
+    lastLeftTicksPerSecond = leftTicksPerSecond;
+    lastRightTicksPerSecond = rightTicksPerSecond;
+    DriveTelemetry.record(driveTrain, leftWheelPct, rightWheelPct, tickStart);
+    LoopTiming.stop(LoopTiming.Stage.FOLLOW_TRAJECTORY_EXECUTE, start);
+  }
+
+  private static double sinc(double x) {
+    return Math.abs(x) < 1e-9 ? 1 : Math.sin(x) / x;
+  }
+
+  @Override
+  protected boolean isFinished() {
+    return step == trajectory.getLength() - 1;
+  }
+
+  @Override
+  protected void end() {
+    driveTrain.stop();
+  }
+}
@@ -0,0 +1,162 @@
+package commands;
+
+import devices.FeedbackSample;
+import loop.LoopTiming;
+import motion.MotionConstraints;
+import motion.MotionProfile;
+import motion.ProfileGains;
+
+import subsystems.DriveTrain;
+import telemetry.DriveTelemetry;
+
+import edu.wpi.first.wpilibj.command.Command;
+
+/**
+ * Moves each wheel along a motion profile worked out when the command
+ * starts. Every execute steps one set point along the profile, so the
+ * profile's time step must match the scheduler period, and drives each
+ * wheel with feed forward from the profile plus a correction for how far
+ * its tick count is from where the profile says it should be. The command
+ * finishes once the profile is done and both wheels are within tolerance,
+ * or when it has given them settleSteps more executes to get there. With
+ * the drive train in closed loop mode the wheel speed is held by its
+ * velocity loop, so each wheel is asked for the profile velocity, plus a
+ * correction for its position error, instead.
+ */
+public abstract class ProfiledDriveCommand extends Command {
+  // In closed loop, ticks/s added per tick of position error, so a lagging wheel catches up in about 0.2s
+  private static final double POSITION_CORRECTION_PER_SECOND = 5;
+
+  private final DriveTrain driveTrain;
+  private final MotionConstraints constraints;
+  private final ProfileGains gains;
+  private final double dtSeconds;
+  private final double toleranceTicks;
+  private final int settleSteps;
+  private final int leftDirection;
+  private final int rightDirection;
+  private MotionProfile profile;
+  private long leftStartTicks;
+  private long rightStartTicks;
+  private int step;
+  private int settleStepsLeft;
+  private double leftErrorTicks;
+  private double rightErrorTicks;
+
+  /**
+   * @param name              Name of the command
+   * @param driveTrain        Drive train to move
+   * @param constraints       Limits on wheel motion in ticks
+   * @param gains             Gains for following the profile
+   * @param dtSeconds         Scheduler period in seconds
+   * @param toleranceTicks    How close to the end of the profile each wheel has to be to finish
+   * @param settleSteps       Executes to wait for the wheels to get within tolerance after the profile ends
+   * @param leftDirection     1 to drive the left wheel forward for a positive move, -1 for backward
+   * @param rightDirection    1 to drive the right wheel forward for a positive move, -1 for backward
+   */
+  protected ProfiledDriveCommand(String name, 
+      DriveTrain driveTrain, 
+      MotionConstraints constraints, 
+      ProfileGains gains, 
+      double dtSeconds, 
+      double toleranceTicks, 
+      int settleSteps, 
+      int leftDirection, 
+      int rightDirection) {
+    super(name);
+    requires(driveTrain);
+    this.driveTrain = driveTrain;
+    this.constraints = constraints;
+    this.gains = gains;
+    this.dtSeconds = dtSeconds;
+    this.toleranceTicks = toleranceTicks;
+    this.settleSteps = settleSteps;
+    this.leftDirection = leftDirection;
+    this.rightDirection = rightDirection;
+  }
+
+  /**
+   * @return  How far each wheel has to move, in ticks; negative to move the other way.
+   */
+  protected abstract double getDistanceTicks();
+
+  @Override
+  protected void initialize() {
+    profile = MotionProfile.generate(getDistanceTicks(), constraints, dtSeconds);
+    driveTrain.updateFeedbackSensors();
+    FeedbackSample sample = driveTrain.getFeedbackSample();
+    leftStartTicks = sample.getLeftTickCount();
+    rightStartTicks = sample.getRightTickCount();
+    step = 0;
+    settleStepsLeft = settleSteps;
+    leftErrorTicks = 0;
+    rightErrorTicks = 0;
+  }
+
+  @Override
+  protected void execute() {
+    long start = LoopTiming.start();
+    long tickStart = DriveTelemetry.startTick();
+    driveTrain.updateFeedbackSensors();
+    FeedbackSample sample = driveTrain.getFeedbackSample();
+    if (step < profile.getLength() - 1) {
+      step++;
+    }
+    double position = profile.getPosition(step);
+    double velocity = profile.getVelocity(step);
+    double acceleration = profile.getAcceleration(step);
+    long leftTicks = DriveTrain.LEFT_FEEDBACK_DIRECTION * (sample.getLeftTickCount() - leftStartTicks);
+    long rightTicks = DriveTrain.RIGHT_FEEDBACK_DIRECTION * (sample.getRightTickCount() - rightStartTicks);
+    leftErrorTicks = leftDirection * position - leftTicks;
+    rightErrorTicks = rightDirection * position - rightTicks;
+    int leftWheelPct;
+    int rightWheelPct;
+    if (driveTrain.isClosedLoop()) {
+      driveTrain.setLeftWheelSpeed(leftDirection * velocity + POSITION_CORRECTION_PER_SECOND * leftErrorTicks);
+      driveTrain.setRightWheelSpeed(rightDirection * velocity + POSITION_CORRECTION_PER_SECOND * rightErrorTicks);
+      leftWheelPct = driveTrain.getLeftWheelDrive();
+      rightWheelPct = driveTrain.getRightWheelDrive();
+    } else {
+      leftWheelPct = (int)Math.round(gains.calculate(
+          leftDirection * velocity, leftDirection * acceleration, leftErrorTicks));
+      rightWheelPct = (int)Math.round(gains.calculate(
+          rightDirection * velocity, rightDirection * acceleration, rightErrorTicks));
+      driveTrain.setLeftWheelDrive(leftWheelPct);
+      driveTrain.setRightWheelDrive(rightWheelPct);
+    }
+    if (settleStepsLeft > 0 && step == profile.getLength() - 1) {
+      settleStepsLeft--;
+    }
+    DriveTelemetry.record(driveTrain, leftWheelPct, rightWheelPct, tickStart);
+    LoopTiming.stop(LoopTiming.Stage.PROFILED_DRIVE_EXECUTE, start);
+  }
+
+  @Override
+  protected boolean isFinished() {
+    if (profile == null || step < profile.getLength() - 1) {
+      return false;
+    }
+    return (Math.abs(leftErrorTicks) <= toleranceTicks && Math.abs(rightErrorTicks) <= toleranceTicks)
+        || settleStepsLeft == 0;
+  }
+
+  @Override
+  protected void end() {
+    driveTrain.stop();
+  }
+
+  /**
+   * @return  The profile being followed, or null before the command starts.
+   */
+  public MotionProfile getProfile() {
+    return profile;
+  }
+
+  public double getLeftErrorTicks() {
+    return leftErrorTicks;
+  }
+
+  public double getRightErrorTicks() {
+    return rightErrorTicks;
+  }
+}
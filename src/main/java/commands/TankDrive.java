@@ -1,34 +1,51 @@
 package commands;
 
+import loop.LoopTiming;
+import oi.DriveInputShaper;
+import oi.DriveMixer;
+import oi.GamepadSnapshot;
 import oi.OperatorInterface;
 
 import subsystems.DriveTrain;
+import telemetry.DriveTelemetry;
 
 import edu.wpi.first.wpilibj.command.Command;
 
 public class TankDrive extends Command {
   private final DriveTrain driveTrain;
   private final OperatorInterface operatorInterface;
+  private final DriveInputShaper inputShaper;
 
   public TankDrive(DriveTrain driveTrain, OperatorInterface operatorInterface) {
+    this(driveTrain, operatorInterface, DriveInputShaper.standard(DriveMixer.Mode.ARCADE));
+  }
+
+  public TankDrive(DriveTrain driveTrain, OperatorInterface operatorInterface, DriveInputShaper inputShaper) {
     super("TankDrive");
     requires(driveTrain);
     this.driveTrain = driveTrain;
     this.operatorInterface = operatorInterface;
+    this.inputShaper = inputShaper;
   }
 
   @Override
-  protected void execute() {
-    driveTrain.setLeftWheelDrive(deadband(operatorInterface.getLeftYAxis()));
-    driveTrain.setRightWheelDrive(deadband(operatorInterface.getRightYAxis()));
+  protected void initialize() {
+    inputShaper.reset();
   }
 
-  private int deadband(float rawJoystickValue) {
-    if (rawJoystickValue > -0.05 && rawJoystickValue < 0.05) {
-      return 0;
-    } else {
-      return Math.round(rawJoystickValue * 100);
-    }
+  @Override
+  protected void execute() {
+    long start = LoopTiming.start();
+    long tickStart = DriveTelemetry.startTick();
+    GamepadSnapshot gamepad = operatorInterface.getSnapshot();
+    inputShaper.tank(gamepad.getLeftYAxis(), gamepad.getRightYAxis());
+    int leftWheelPct = inputShaper.getLeftWheelPct();
+    int rightWheelPct = inputShaper.getRightWheelPct();
+    driveTrain.setLeftWheelDrive(leftWheelPct);
+    driveTrain.setRightWheelDrive(rightWheelPct);
+    driveTrain.updateFeedbackSensors();
+    DriveTelemetry.record(driveTrain, leftWheelPct, rightWheelPct, tickStart);
+    LoopTiming.stop(LoopTiming.Stage.TANK_DRIVE_EXECUTE, start);
   }
 
   @Override
@@ -0,0 +1,48 @@
+package commands;
+
+import motion.DriveGeometry;
+import motion.MotionConstraints;
+import motion.ProfileGains;
+
+import subsystems.DriveTrain;
+
+/**
+ * Spin in place by an angle, to the left if positive and to the right if negative.
+ */
+public class TurnAngle extends ProfiledDriveCommand {
+  private static final double toleranceTicks = 4;
+  private static final double settleSeconds = 0.5;
+
+  private final double distanceTicks;
+
+  /**
+   * @param driveTrain    Drive train to move
+   * @param geometry      Wheel size and track width of the robot
+   * @param radians       How far to turn
+   * @param constraints   Limits on wheel motion in ticks
+   * @param gains         Gains for following the profile
+   * @param dtSeconds     Scheduler period in seconds
+   */
+  public TurnAngle(DriveTrain driveTrain, 
+      DriveGeometry geometry, 
+      double radians, 
+      MotionConstraints constraints, 
+      ProfileGains gains, 
+      double dtSeconds) {
+    super("TurnAngle", 
+        driveTrain, 
+        constraints, 
+        gains, 
+        dtSeconds, 
+        toleranceTicks, 
+        (int)Math.round(settleSeconds / dtSeconds), 
+        -1, 
+        1);
+    this.distanceTicks = geometry.radiansToTicks(radians);
+  }
+
+  @Override
+  protected double getDistanceTicks() {
+    return distanceTicks;
+  }
+}
@@ -1,56 +1,343 @@
 package devices;
 
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
+
 import com.diozero.api.I2CConstants;
 import com.diozero.api.I2CDevice;
+import com.diozero.util.RuntimeIOException;
+
+import org.pmw.tinylog.Logger;
+
+import loop.LoopTiming;
 
 /**
  * This class reads the custom firmware programmed into an
  * ATTINY85 microcontroller which interprets the duty cycle
  * pulses from up to two Parallax 360 high speed servos
  * with hall-sensor feedback encoders. The values are
- * read over bus 1 of the Pi I2C bus.
+ * read over bus 1 of the Pi I2C bus. Boards with firmware
+ * for more servos report one more register pair per channel.
+ * 
+ * A failed read is retried within a time budget. If every attempt
+ * fails, the last good values are kept and marked stale. After several
+ * failed updates in a row a circuit breaker opens and the bus is left
+ * alone for a back-off period, doubled each time a trial read fails,
+ * so a dead board costs almost nothing per update.
  */
 public class DigisparkFeedbackEncoder {
-  private static final int DIGISPARK_ADDRESS = 0x04;
+  /**
+   * BLOCK reads both wheels with one register block read.
+   * BYTE selects the register and then reads each byte separately,
+   * for firmware that cannot answer a block read. A failed block read
+   * falls back to byte reads for that read, and BLOCK switches to BYTE
+   * for good after BLOCK_FAILURES_TO_DEMOTE such fallbacks in a row.
+   */
+  public enum ReadMode { BLOCK, BYTE };
+
+  public static final int DEFAULT_ADDRESS = 0x04;
+  public static final int LEFT_CHANNEL = 0;
+  public static final int RIGHT_CHANNEL = 1;
 
-  // Registers
+  // Registers, two bytes per channel starting with the left wheel
   private static final byte LEFT_PCT_X_10 = 0x00;
-  private static final byte RIGHT_PCT_X_10 = 0x02;
+  private static final int REGISTER_LENGTH = 2;
+
+  public static final long DEFAULT_READ_BUDGET_NANOS = 2000000;
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+  public static final int DEFAULT_BREAKER_THRESHOLD = 5;
+  public static final long DEFAULT_INITIAL_BACKOFF_NANOS = 100000000;
+  public static final long DEFAULT_MAX_BACKOFF_NANOS = 5000000000L;
+  public static final int BLOCK_FAILURES_TO_DEMOTE = 3;
 
   private I2CDevice device;
-  private int leftPctX10;
-  private int rightPctX10;
+  private ReadMode readMode;
+  private int consecutiveBlockFailures;
+  private final ByteBuffer blockBuffer;
+  private final int[] channelPctX10;
+  private int transactionsLastUpdate;
+  private long transactionCount;
+  private long updateCount;
+  private final LongSupplier clock;
+  private long readBudgetNanos = DEFAULT_READ_BUDGET_NANOS;
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private int breakerThreshold = DEFAULT_BREAKER_THRESHOLD;
+  private long initialBackoffNanos = DEFAULT_INITIAL_BACKOFF_NANOS;
+  private long maxBackoffNanos = DEFAULT_MAX_BACKOFF_NANOS;
+  private boolean stale;
+  private boolean hasGoodSample;
+  private long lastGoodNanos;
+  private int consecutiveFailures;
+  private boolean breakerOpen;
+  private long breakerOpenedNanos;
+  private long backoffNanos;
+  private long retryCount;
+  private long failedUpdateCount;
+  private long breakerTripCount;
+  private long skippedUpdateCount;
 
   public DigisparkFeedbackEncoder() {
-    device = new I2CDevice(
+    this(new I2CDevice(
         I2CConstants.BUS_1, 
-        DIGISPARK_ADDRESS, 
+        DEFAULT_ADDRESS, 
         I2CConstants.ADDR_SIZE_7, 
-        I2CConstants.DEFAULT_CLOCK_FREQUENCY);
+        I2CConstants.DEFAULT_CLOCK_FREQUENCY));
   }
 
   public DigisparkFeedbackEncoder(I2CDevice device) {
+    this(device, ReadMode.BLOCK);
+  }
+
+  public DigisparkFeedbackEncoder(I2CDevice device, ReadMode readMode) {
+    this(device, 2, readMode);
+  }
+
+  /**
+   * @param device        The board
+   * @param channelCount  Number of servos the board's firmware reports
+   * @param readMode      How to read the registers
+   */
+  public DigisparkFeedbackEncoder(I2CDevice device, int channelCount, ReadMode readMode) {
+    this(device, channelCount, readMode, System::nanoTime);
+  }
+
+  /**
+   * @param device        The board
+   * @param channelCount  Number of servos the board's firmware reports
+   * @param readMode      How to read the registers
+   * @param clock         Source of timestamps in nanoseconds, normally System::nanoTime
+   */
+  public DigisparkFeedbackEncoder(I2CDevice device, int channelCount, ReadMode readMode, LongSupplier clock) {
+    if (channelCount < 1) {
+      throw new IllegalArgumentException("channelCount must be at least 1");
+    }
     this.device = device;
-    this.leftPctX10 = 0;
-    this.rightPctX10 = 0;
+    this.readMode = readMode;
+    this.channelPctX10 = new int[channelCount];
+    this.blockBuffer = ByteBuffer.allocate(channelCount * REGISTER_LENGTH);
+    this.clock = clock;
+  }
+
+  /**
+   * @param readBudgetNanos   No retry is started once an update has taken this long
+   * @param maxAttempts       Most reads tried per update, including the first
+   */
+  public void setRetryPolicy(long readBudgetNanos, int maxAttempts) {
+    this.readBudgetNanos = readBudgetNanos;
+    this.maxAttempts = Math.max(1, maxAttempts);
+  }
+
+  /**
+   * @param threshold             Failed updates in a row that open the breaker
+   * @param initialBackoffNanos   Time the bus is left alone after the breaker opens
+   * @param maxBackoffNanos       Longest the back-off grows to
+   */
+  public void setCircuitBreaker(int threshold, long initialBackoffNanos, long maxBackoffNanos) {
+    this.breakerThreshold = Math.max(1, threshold);
+    this.initialBackoffNanos = initialBackoffNanos;
+    this.maxBackoffNanos = maxBackoffNanos;
   }
 
+  /**
+   * Read the board, retrying within the budget. Never throws for a bus
+   * error; check isStale() afterwards.
+   */
   public void update() {
+    long start = LoopTiming.start();
+    try {
+      updateWithinBudget();
+    } finally {
+      LoopTiming.stop(LoopTiming.Stage.ENCODER_READ, start);
+    }
+  }
+
+  private void updateWithinBudget() {
+    long startNanos = clock.getAsLong();
+    if (breakerOpen && startNanos - breakerOpenedNanos < backoffNanos) {
+      skippedUpdateCount++;
+      stale = true;
+      return;
+    }
+    RuntimeIOException failure;
+    int attempts = 0;
+    do {
+      if (attempts++ > 0) {
+        retryCount++;
+      }
+      try {
+        read();
+        recovered();
+        return;
+      } catch (RuntimeIOException e) {
+        failure = e;
+      }
+    } while (attempts < maxAttempts && clock.getAsLong() - startNanos < readBudgetNanos);
+    failed(failure);
+  }
+
+  private void recovered() {
+    lastGoodNanos = clock.getAsLong();
+    hasGoodSample = true;
+    stale = false;
+    consecutiveFailures = 0;
+    if (breakerOpen) {
+      breakerOpen = false;
+      Logger.info("Encoder reads recovered after " + skippedUpdateCount + " skipped updates.");
+    }
+  }
+
+  private void failed(RuntimeIOException failure) {
+    failedUpdateCount++;
+    consecutiveFailures++;
+    stale = true;
+    if (breakerOpen) {
+      // The trial read after the back-off failed too, so wait longer
+      backoffNanos = Math.min(backoffNanos * 2, maxBackoffNanos);
+      breakerOpenedNanos = clock.getAsLong();
+    } else if (consecutiveFailures >= breakerThreshold) {
+      breakerOpen = true;
+      breakerTripCount++;
+      backoffNanos = initialBackoffNanos;
+      breakerOpenedNanos = clock.getAsLong();
+      Logger.warn("Encoder reads failed " + consecutiveFailures + " times in a row, backing off: " + failure.getMessage());
+    }
+  }
+
+  private void read() {
+    if (readMode == ReadMode.BLOCK) {
+      try {
+        updateWithBlockRead();
+        consecutiveBlockFailures = 0;
+      } catch (RuntimeIOException e) {
+        // Fall back for this read only; if the byte reads fail too, the bus is at fault
+        updateWithByteReads();
+        // Count the failed block read too
+        transactionsLastUpdate++;
+        // Only firmware that cannot answer a block read fails it every time while byte reads work
+        if (++consecutiveBlockFailures >= BLOCK_FAILURES_TO_DEMOTE) {
+          Logger.warn("Block read failed " + consecutiveBlockFailures 
+              + " times in a row, using byte reads from now on: " + e.getMessage());
+          readMode = ReadMode.BYTE;
+        }
+      }
+    } else {
+      updateWithByteReads();
+    }
+    transactionCount += transactionsLastUpdate;
+    updateCount++;
+  }
+
+  private void updateWithBlockRead() {
+    transactionsLastUpdate = 1;
+    blockBuffer.clear();
+    device.read(LEFT_PCT_X_10, blockBuffer);
+    decode();
+  }
+
+  private void updateWithByteReads() {
+    transactionsLastUpdate = 1 + blockBuffer.capacity();
     device.writeByte(LEFT_PCT_X_10);
     // left must be read first
-    byte leftPctX10L = device.readByte();
-    byte leftPctX10H = device.readByte();
-    leftPctX10 = ((leftPctX10H & 0xff) << 8) | (leftPctX10L & 0xff);
-    byte rightPctX10L = device.readByte();
-    byte rightPctX10H = device.readByte();
-    rightPctX10 = ((rightPctX10H & 0xff) << 8) | (rightPctX10L & 0xff);
+    for (int i = 0; i < blockBuffer.capacity(); i++) {
+      blockBuffer.put(i, device.readByte());
+    }
+    decode();
+  }
+
+  /**
+   * Only called once every register has been read, so a failed read
+   * leaves the last good values alone.
+   */
+  private void decode() {
+    // Registers are little endian, left then right then any others
+    for (int channel = 0; channel < channelPctX10.length; channel++) {
+      int low = channel * REGISTER_LENGTH;
+      channelPctX10[channel] = ((blockBuffer.get(low + 1) & 0xff) << 8) | (blockBuffer.get(low) & 0xff);
+    }
   }
 
   public int getLeftPctX10() {
-    return leftPctX10;
+    return getChannelPctX10(LEFT_CHANNEL);
   }
 
   public int getRightPctX10() {
-    return rightPctX10;
+    return getChannelPctX10(RIGHT_CHANNEL);
+  }
+
+  /**
+   * @param channel   Servo on the board, from 0
+   * @return          Duty cycle last read for that servo in tenths of a percent
+   */
+  public int getChannelPctX10(int channel) {
+    return channel < channelPctX10.length ? channelPctX10[channel] : 0;
+  }
+
+  public int getChannelCount() {
+    return channelPctX10.length;
+  }
+
+  public ReadMode getReadMode() {
+    return readMode;
+  }
+
+  /**
+   * @return  Number of I2C transactions issued by the last call to update().
+   */
+  public int getTransactionsLastUpdate() {
+    return transactionsLastUpdate;
+  }
+
+  /**
+   * @return  Total number of I2C transactions issued by update().
+   */
+  public long getTransactionCount() {
+    return transactionCount;
+  }
+
+  public long getUpdateCount() {
+    return updateCount;
+  }
+
+  /**
+   * @return  True if the last update() could not read the board, so the values are from an earlier one.
+   */
+  public boolean isStale() {
+    return stale;
+  }
+
+  /**
+   * @return  Time since the values were last read, or Long.MAX_VALUE if they never have been.
+   */
+  public long getSampleAgeNanos() {
+    return hasGoodSample ? clock.getAsLong() - lastGoodNanos : Long.MAX_VALUE;
+  }
+
+  public boolean isBreakerOpen() {
+    return breakerOpen;
+  }
+
+  /**
+   * @return  Number of reads tried again after a failure.
+   */
+  public long getRetryCount() {
+    return retryCount;
+  }
+
+  /**
+   * @return  Number of updates that read nothing after every attempt failed.
+   */
+  public long getFailedUpdateCount() {
+    return failedUpdateCount;
+  }
+
+  public long getBreakerTripCount() {
+    return breakerTripCount;
+  }
+
+  /**
+   * @return  Number of updates that left the bus alone because the breaker was open.
+   */
+  public long getSkippedUpdateCount() {
+    return skippedUpdateCount;
   }
-}
\ No newline at end of file
+}
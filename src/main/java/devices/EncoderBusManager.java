@@ -0,0 +1,305 @@
+package devices;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import com.diozero.api.I2CConstants;
+import com.diozero.api.I2CDevice;
+import com.diozero.internal.provider.I2CDeviceFactoryInterface;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Reads any number of Digispark encoder boards, on any buses and
+ * addresses, within a time budget each tick, so adding servos with
+ * feedback (an arm, a turret) does not add their reads to every tick.
+ * Boards are read highest priority first; boards of equal priority take
+ * turns, the one that has waited longest going first. The first board is
+ * always read. After that, a board is only read if its estimated read
+ * time still fits in the budget; otherwise it waits for a later tick.
+ * The estimate is a moving average of the board's reads, each divided by
+ * the attempts the encoder made, since retries measure a bus glitch
+ * rather than the board. A board deferred STARVED_DEFERRALS times in a
+ * row goes straight after the first board until it is read; if it does
+ * not fit even there it is logged as unschedulable and waits for room.
+ * 
+ * Each channel added to a board gets a feedback sensor that is updated
+ * whenever its board is read. A board whose read comes back stale is
+ * counted and its channels are left alone until it reads again.
+ */
+public class EncoderBusManager {
+  public static final long DEFAULT_READ_BUDGET_NANOS = 2000000;   // a fifth of a 10ms feedback tick
+  public static final int DRIVE_PRIORITY = Integer.MAX_VALUE;
+  public static final int STARVED_DEFERRALS = 10;
+
+  private final long readBudgetNanos;
+  private final LongSupplier clock;
+  private final List<Board> boards = new ArrayList<>();
+  private final List<ParallaxHallEffectFeedbackSensor> channels = new ArrayList<>();
+  private Board[] order = new Board[0];
+  private Board driveBoard;
+  private long tick;
+  private long deferredCount;
+  private long lastUpdateNanos;
+
+  public EncoderBusManager() {
+    this(DEFAULT_READ_BUDGET_NANOS, System::nanoTime);
+  }
+
+  /**
+   * @param readBudgetNanos   I2C time allowed for each update()
+   * @param clock             Source of timestamps in nanoseconds, normally System::nanoTime
+   */
+  public EncoderBusManager(long readBudgetNanos, LongSupplier clock) {
+    this.readBudgetNanos = readBudgetNanos;
+    this.clock = clock;
+  }
+
+  /**
+   * Open a board with the default 7 bit address size and clock frequency.
+   * @param deviceFactory   Factory for the bus the board is on
+   * @param bus             I2C bus number
+   * @param address         I2C address of the board
+   * @param channelCount    Number of servos the board's firmware reports
+   */
+  public static DigisparkFeedbackEncoder openBoard(I2CDeviceFactoryInterface deviceFactory, 
+      int bus, 
+      int address, 
+      int channelCount) {
+    I2CDevice device = new I2CDevice(deviceFactory, 
+        bus, 
+        address, 
+        I2CConstants.ADDR_SIZE_7, 
+        I2CConstants.DEFAULT_CLOCK_FREQUENCY, 
+        ByteOrder.BIG_ENDIAN);
+    return new DigisparkFeedbackEncoder(device, channelCount, DigisparkFeedbackEncoder.ReadMode.BLOCK);
+  }
+
+  /**
+   * @param encoder   The board
+   * @param priority  Higher priorities are read first; use DRIVE_PRIORITY for the drive wheels' board,
+   *                  which is then read first every update
+   * @return          Index of the board, for addChannel()
+   */
+  public synchronized int addBoard(DigisparkFeedbackEncoder encoder, int priority) {
+    if (priority == DRIVE_PRIORITY && driveBoard != null) {
+      throw new IllegalArgumentException("Only one board can have DRIVE_PRIORITY");
+    }
+    Board board = new Board(encoder, priority);
+    if (priority == DRIVE_PRIORITY) {
+      driveBoard = board;
+    }
+    boards.add(board);
+    order = boards.toArray(new Board[boards.size()]);
+    return boards.size() - 1;
+  }
+
+  /**
+   * @param board       Index returned by addBoard()
+   * @param channel     Servo on the board, from 0
+   * @param unwrapMode  How the sensor counts rotations
+   * @return            A sensor that is updated whenever the board is read
+   */
+  public synchronized ParallaxHallEffectFeedbackSensor addChannel(int board, 
+      int channel, 
+      ParallaxHallEffectFeedbackSensor.UnwrapMode unwrapMode) {
+    Board owner = boards.get(board);
+    if (channel < 0 || channel >= owner.encoder.getChannelCount()) {
+      throw new IllegalArgumentException("Board " + board + " has no channel " + channel);
+    }
+    ParallaxHallEffectFeedbackSensor sensor = new ParallaxHallEffectFeedbackSensor(owner.encoder, channel, unwrapMode);
+    owner.sensors = Arrays.copyOf(owner.sensors, owner.sensors.length + 1);
+    owner.sensors[owner.sensors.length - 1] = sensor;
+    channels.add(sensor);
+    return sensor;
+  }
+
+  public synchronized boolean hasBoard(DigisparkFeedbackEncoder encoder) {
+    for (Board board : boards) {
+      if (board.encoder == encoder) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return  True if the board was added with DRIVE_PRIORITY.
+   */
+  public synchronized boolean isDriveBoard(DigisparkFeedbackEncoder encoder) {
+    return driveBoard != null && driveBoard.encoder == encoder;
+  }
+
+  /**
+   * Read the boards that are due and fit in the budget, and update their channels.
+   * @param encoder   A board to report on
+   * @return          True if that board was read, though the read may have come back stale
+   */
+  public synchronized boolean update(DigisparkFeedbackEncoder encoder) {
+    update();
+    for (Board board : boards) {
+      if (board.encoder == encoder) {
+        return board.lastReadTick == tick;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read the boards that are due and fit in the budget, and update their channels.
+   */
+  public synchronized void update() {
+    tick++;
+    sortByTurn();
+    long start = clock.getAsLong();
+    long elapsed = 0;
+    for (int i = 0; i < order.length; i++) {
+      Board board = order[i];
+      if (i > 0 && elapsed + board.readNanosEstimate > readBudgetNanos) {
+        defer(board, i == 1);
+        continue;
+      }
+      long readStart = start + elapsed;
+      long retries = board.encoder.getRetryCount();
+      board.encoder.update();
+      long now = clock.getAsLong();
+      long readNanos = now - readStart;
+      board.lastReadTick = tick;
+      board.consecutiveDeferrals = 0;
+      elapsed = now - start;
+      if (board.encoder.isStale()) {
+        // The encoder has already retried and backs off by itself
+        board.errorCount++;
+        continue;
+      }
+      // A read the encoder retried is counted as one attempt, so a glitch does not inflate the estimate
+      long attemptNanos = readNanos / (1 + board.encoder.getRetryCount() - retries);
+      if (board.measured) {
+        board.readNanosEstimate += (attemptNanos - board.readNanosEstimate) / 4;
+      } else {
+        board.readNanosEstimate = attemptNanos;
+        board.measured = true;
+      }
+      board.readCount++;
+      for (ParallaxHallEffectFeedbackSensor sensor : board.sensors) {
+        sensor.update(now);
+      }
+    }
+    lastUpdateNanos = elapsed;
+  }
+
+  private void defer(Board board, boolean afterFirst) {
+    board.deferredCount++;
+    board.consecutiveDeferrals++;
+    deferredCount++;
+    if (afterFirst && board.consecutiveDeferrals > STARVED_DEFERRALS && !board.unschedulable) {
+      board.unschedulable = true;
+      Logger.warn("Encoder board " + boards.indexOf(board) + " takes " + board.readNanosEstimate / 1000 
+          + "us to read, more than the budget leaves after the first board.");
+    }
+  }
+
+  private void sortByTurn() {
+    // Insertion sort; there are only a few boards and it does not allocate
+    for (int i = 1; i < order.length; i++) {
+      Board board = order[i];
+      int j = i - 1;
+      while (j >= 0 && goesBefore(board, order[j])) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = board;
+    }
+  }
+
+  private static boolean goesBefore(Board a, Board b) {
+    // A starved board goes before everything but the drive board
+    boolean aStarved = a.isStarved();
+    boolean bStarved = b.isStarved();
+    if (aStarved != bStarved && a.priority != DRIVE_PRIORITY && b.priority != DRIVE_PRIORITY) {
+      return aStarved;
+    }
+    if (a.priority != b.priority) {
+      return a.priority > b.priority;
+    }
+    return a.lastReadTick < b.lastReadTick;
+  }
+
+  public synchronized int getBoardCount() {
+    return boards.size();
+  }
+
+  public synchronized DigisparkFeedbackEncoder getBoard(int board) {
+    return boards.get(board).encoder;
+  }
+
+  public synchronized long getReadCount(int board) {
+    return boards.get(board).readCount;
+  }
+
+  public synchronized long getErrorCount(int board) {
+    return boards.get(board).errorCount;
+  }
+
+  public synchronized long getDeferredCount(int board) {
+    return boards.get(board).deferredCount;
+  }
+
+  /**
+   * @return  True if the board was found not to fit in the budget even straight after the first board.
+   */
+  public synchronized boolean isUnschedulable(int board) {
+    return boards.get(board).unschedulable;
+  }
+
+  /**
+   * @return  Number of times any board was left for a later tick to stay within the budget.
+   */
+  public synchronized long getDeferredCount() {
+    return deferredCount;
+  }
+
+  /**
+   * @return  I2C time spent by the last update().
+   */
+  public synchronized long getLastUpdateNanos() {
+    return lastUpdateNanos;
+  }
+
+  public synchronized int getChannelCount() {
+    return channels.size();
+  }
+
+  /**
+   * @param index   Channel in the order they were added, from 0
+   */
+  public synchronized ParallaxHallEffectFeedbackSensor getChannel(int index) {
+    return channels.get(index);
+  }
+
+  private static class Board {
+    final DigisparkFeedbackEncoder encoder;
+    final int priority;
+    ParallaxHallEffectFeedbackSensor[] sensors = new ParallaxHallEffectFeedbackSensor[0];
+    long lastReadTick;
+    long readNanosEstimate;
+    boolean measured;
+    int consecutiveDeferrals;
+    boolean unschedulable;
+    long readCount;
+    long errorCount;
+    long deferredCount;
+
+    Board(DigisparkFeedbackEncoder encoder, int priority) {
+      this.encoder = encoder;
+      this.priority = priority;
+    }
+
+    boolean isStarved() {
+      return consecutiveDeferrals >= STARVED_DEFERRALS && !unschedulable;
+    }
+  }
+}
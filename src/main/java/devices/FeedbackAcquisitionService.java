@@ -0,0 +1,194 @@
+package devices;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.pmw.tinylog.Logger;
+
+import replay.DriveRecorder;
+
+/**
+ * Reads the Digispark encoder and updates both wheel feedback sensors
+ * on its own thread at a fixed rate, so I2C reads never hold up the
+ * command scheduler. The tick counts of each acquisition are published
+ * together as one FeedbackSample and fed to a velocity estimator per wheel,
+ * whose speeds are published in the same sample.
+ * The encoder can instead be read as one board of an EncoderBusManager,
+ * which reads any other boards on the same thread within its budget.
+ * When the encoder could not be read, the sensors, velocities and listener
+ * are left alone and the previous sample stays published; its timestamp
+ * tells readers how old it is.
+ */
+public class FeedbackAcquisitionService {
+  public static final int DEFAULT_VELOCITY_WINDOW = 5;
+
+  private final DigisparkFeedbackEncoder digisparkFeedbackEncoder;
+  private final ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor;
+  private final ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor;
+  private final WheelVelocityEstimator leftWheelVelocityEstimator;
+  private final WheelVelocityEstimator rightWheelVelocityEstimator;
+  private final LongSupplier clock;
+  private long sequence;
+  private volatile long staleCount;
+  private volatile FeedbackSample sample = FeedbackSample.EMPTY;
+  private volatile ScheduledExecutorService acquirer;
+  private volatile DriveRecorder recorder;
+  private volatile FeedbackListener listener;
+  private volatile EncoderBusManager encoderBus;
+
+  public FeedbackAcquisitionService(DigisparkFeedbackEncoder digisparkFeedbackEncoder,
+      ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor,
+      ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor) {
+    this(digisparkFeedbackEncoder, leftWheelFeedbackSensor, rightWheelFeedbackSensor, DEFAULT_VELOCITY_WINDOW, System::nanoTime);
+  }
+
+  /**
+   * @param velocityWindow  Number of acquisitions the wheel velocities are averaged over
+   * @param clock           Source of sample timestamps in nanoseconds, normally System::nanoTime
+   */
+  public FeedbackAcquisitionService(DigisparkFeedbackEncoder digisparkFeedbackEncoder,
+      ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor,
+      ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor,
+      int velocityWindow,
+      LongSupplier clock) {
+    this.clock = clock;
+    this.digisparkFeedbackEncoder = digisparkFeedbackEncoder;
+    this.leftWheelFeedbackSensor = leftWheelFeedbackSensor;
+    this.rightWheelFeedbackSensor = rightWheelFeedbackSensor;
+    this.leftWheelVelocityEstimator = new WheelVelocityEstimator(velocityWindow, ParallaxHallEffectFeedbackSensor.TICKS_PER_ROTATION);
+    this.rightWheelVelocityEstimator = new WheelVelocityEstimator(velocityWindow, ParallaxHallEffectFeedbackSensor.TICKS_PER_ROTATION);
+  }
+
+  /**
+   * Start acquiring on a background thread.
+   * @param periodMs  Time between encoder reads in milliseconds
+   */
+  public synchronized void start(long periodMs) {
+    if (acquirer != null) {
+      return;
+    }
+    acquirer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "FeedbackAcquisition");
+      thread.setDaemon(true);
+      return thread;
+    });
+    acquirer.scheduleAtFixedRate(this::acquireSafely, 0, periodMs, TimeUnit.MILLISECONDS);
+    Logger.info("Feedback acquisition started every " + periodMs + "ms.");
+  }
+
+  public synchronized void stop() {
+    if (acquirer != null) {
+      acquirer.shutdownNow();
+      acquirer = null;
+    }
+  }
+
+  public boolean isRunning() {
+    return acquirer != null;
+  }
+
+  private void acquireSafely() {
+    try {
+      acquire();
+    } catch (RuntimeException e) {
+      // Keep the acquirer alive; an exception would cancel the schedule
+      Logger.error("Error acquiring wheel feedback: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Read the encoder once, update both sensors and publish the result.
+   * Called by the background thread; only call directly when not running.
+   */
+  public synchronized void acquire() {
+    EncoderBusManager encoderBus = this.encoderBus;
+    boolean read = true;
+    if (encoderBus != null) {
+      read = encoderBus.update(digisparkFeedbackEncoder);
+    } else {
+      digisparkFeedbackEncoder.update();
+    }
+    // Without a fresh read the duty cycles are old, and a new timestamp would unwrap them as movement
+    if (!read || digisparkFeedbackEncoder.isStale()) {
+      staleCount++;
+      return;
+    }
+    long timestampNanos = clock.getAsLong();
+    leftWheelFeedbackSensor.update(timestampNanos);
+    rightWheelFeedbackSensor.update(timestampNanos);
+    long leftTickCount = leftWheelFeedbackSensor.getTickCount();
+    long rightTickCount = rightWheelFeedbackSensor.getTickCount();
+    leftWheelVelocityEstimator.addSample(timestampNanos, leftTickCount);
+    rightWheelVelocityEstimator.addSample(timestampNanos, rightTickCount);
+    sample = new FeedbackSample(++sequence, 
+        timestampNanos, 
+        leftTickCount, 
+        rightTickCount, 
+        leftWheelVelocityEstimator.getTicksPerSecond(), 
+        rightWheelVelocityEstimator.getTicksPerSecond());
+    FeedbackListener listener = this.listener;
+    if (listener != null) {
+      listener.feedbackAcquired(timestampNanos, leftTickCount, rightTickCount);
+    }
+    DriveRecorder recorder = this.recorder;
+    if (recorder != null) {
+      recorder.recordFeedback(timestampNanos, 
+          isRunning(), 
+          digisparkFeedbackEncoder.getLeftPctX10(), 
+          digisparkFeedbackEncoder.getRightPctX10(), 
+          leftTickCount, 
+          rightTickCount);
+    }
+  }
+
+  /**
+   * Record every acquisition from now on.
+   * @param recorder  The recorder, or null to stop recording
+   */
+  public void setRecorder(DriveRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Tell a listener about every acquisition from now on.
+   * @param listener  The listener, or null to stop telling it
+   */
+  public void setListener(FeedbackListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Read the encoder through a bus manager from now on.
+   * @param encoderBus  A bus with the encoder as its DRIVE_PRIORITY board, or null to read the encoder directly
+   */
+  public void setEncoderBus(EncoderBusManager encoderBus) {
+    if (encoderBus != null && !encoderBus.isDriveBoard(digisparkFeedbackEncoder)) {
+      throw new IllegalArgumentException("The encoder bus does not read the drive encoder as its DRIVE_PRIORITY board");
+    }
+    this.encoderBus = encoderBus;
+  }
+
+  /**
+   * @return  The latest acquisition; never null.
+   */
+  public FeedbackSample getSample() {
+    return sample;
+  }
+
+  /**
+   * @return  Number of acquisitions skipped because the encoder could not be read, or the bus did not read it.
+   */
+  public long getStaleCount() {
+    return staleCount;
+  }
+
+  public WheelVelocityEstimator getLeftWheelVelocityEstimator() {
+    return leftWheelVelocityEstimator;
+  }
+
+  public WheelVelocityEstimator getRightWheelVelocityEstimator() {
+    return rightWheelVelocityEstimator;
+  }
+}
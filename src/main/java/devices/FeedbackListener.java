@@ -0,0 +1,10 @@
+package devices;
+
+/**
+ * Told about every feedback acquisition, on the thread that made it.
+ * Implementations must be quick, as they hold up the next encoder read.
+ */
+@FunctionalInterface
+public interface FeedbackListener {
+  void feedbackAcquired(long timestampNanos, long leftTickCount, long rightTickCount);
+}
@@ -0,0 +1,68 @@
+package devices;
+
+/**
+ * An immutable set of wheel feedback values taken from the same
+ * read of the Digispark encoder, with the wheel speeds estimated
+ * up to and including it.
+ */
+public final class FeedbackSample {
+  public static final FeedbackSample EMPTY = new FeedbackSample(0, 0, 0, 0);
+
+  private final long sequence;
+  private final long timestampNanos;
+  private final long leftTickCount;
+  private final long rightTickCount;
+  private final double leftTicksPerSecond;
+  private final double rightTicksPerSecond;
+
+  public FeedbackSample(long sequence, long timestampNanos, long leftTickCount, long rightTickCount) {
+    this(sequence, timestampNanos, leftTickCount, rightTickCount, 0, 0);
+  }
+
+  public FeedbackSample(long sequence, 
+      long timestampNanos, 
+      long leftTickCount, 
+      long rightTickCount, 
+      double leftTicksPerSecond, 
+      double rightTicksPerSecond) {
+    this.sequence = sequence;
+    this.timestampNanos = timestampNanos;
+    this.leftTickCount = leftTickCount;
+    this.rightTickCount = rightTickCount;
+    this.leftTicksPerSecond = leftTicksPerSecond;
+    this.rightTicksPerSecond = rightTicksPerSecond;
+  }
+
+  /**
+   * @return  Increases by one for each acquisition; 0 means never acquired.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return  The System.nanoTime() at which the encoder was read.
+   */
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  public long getLeftTickCount() {
+    return leftTickCount;
+  }
+
+  public long getRightTickCount() {
+    return rightTickCount;
+  }
+
+  /**
+   * @return  Left wheel speed in ticks per second, averaged over the last few samples.
+   */
+  public double getLeftTicksPerSecond() {
+    return leftTicksPerSecond;
+  }
+
+  public double getRightTicksPerSecond() {
+    return rightTicksPerSecond;
+  }
+}
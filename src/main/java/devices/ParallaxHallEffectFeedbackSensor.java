@@ -7,26 +7,72 @@ import org.pmw.tinylog.Logger;
  * 900-00360 360 high-speed rotatation servo with feedback. See page 5-6 of
  * https://www.pololu.com/file/0J1395/900-00360-Feedback-360-HS-Servo-v1.2.pdf.
  * It relies on getting the duty cycle of the hall-sensor from custom
- * firmware running on a Digispark ATTINY85 breakout board.
+ * firmware running on a Digispark ATTINY85 breakout board, reading one of
+ * the board's channels.
  */
 public class ParallaxHallEffectFeedbackSensor {
   public enum WheelSide { LEFT, RIGHT };
 
+  /**
+   * QUADRANT counts a rotation when theta jumps between the first and last
+   * quadrants, which needs less than a quarter turn between samples.
+   * VELOCITY predicts each sample from the previous angular velocity and
+   * picks the wrap that is closest to the prediction, which copes with
+   * several quadrants (or turns) between samples as long as the wheel
+   * does not change speed by more than half a turn per sample. After a
+   * gap in the samples, such as the encoder being unreadable for a while,
+   * the old speed is not carried across it; that sample takes the
+   * shortest way round instead, as the wheel may have stopped.
+   */
+  public enum UnwrapMode { QUADRANT, VELOCITY };
+
+  public static final int TICKS_PER_ROTATION = 360;
+  // A gap is longer than both half a turn at the fastest a wheel turns and a few usual sample periods
+  private static final double MAX_RPM = 150;
+  private static final long HALF_TURN_AT_MAX_RPM_NANOS = (long)(60e9 / MAX_RPM / 2);
+  private static final int GAP_SAMPLE_PERIODS = 4;
+
   private long rotationCount;
-  private int fullCircleUnits = 360;
+  private int fullCircleUnits = TICKS_PER_ROTATION;
   private int quadrant2Min;
   private int quadrant3Max;
   private int previousTheta;
   private int theta;
-  private final WheelSide wheelSide;
+  private final int channel;
+  private final UnwrapMode unwrapMode;
   private final DigisparkFeedbackEncoder digisparkFeedbackEncoder;
+  private boolean hasPreviousSample;
+  private long previousTimestampNanos;
+  private long previousElapsedNanos;
+  private double ticksPerNano;
+  private long tickCount;
   private static final int DUTY_CYCLE_MIN = 29;
   private static final int DUTY_CYCLE_MAX = 971;
   
   
   public ParallaxHallEffectFeedbackSensor(DigisparkFeedbackEncoder digisparkFeedbackEncoder, WheelSide wheelSide) {
+    this(digisparkFeedbackEncoder, wheelSide, UnwrapMode.QUADRANT);
+  }
+
+  public ParallaxHallEffectFeedbackSensor(DigisparkFeedbackEncoder digisparkFeedbackEncoder, 
+      WheelSide wheelSide, 
+      UnwrapMode unwrapMode) {
+    this(digisparkFeedbackEncoder, 
+        wheelSide == WheelSide.LEFT ? DigisparkFeedbackEncoder.LEFT_CHANNEL : DigisparkFeedbackEncoder.RIGHT_CHANNEL, 
+        unwrapMode);
+  }
+
+  /**
+   * @param digisparkFeedbackEncoder  The board the servo's feedback is wired to
+   * @param channel                   Servo on the board, from 0
+   * @param unwrapMode                How to count rotations
+   */
+  public ParallaxHallEffectFeedbackSensor(DigisparkFeedbackEncoder digisparkFeedbackEncoder, 
+      int channel, 
+      UnwrapMode unwrapMode) {
     this.digisparkFeedbackEncoder = digisparkFeedbackEncoder;
-    this.wheelSide = wheelSide;
+    this.channel = channel;
+    this.unwrapMode = unwrapMode;
     computeQuadrants();
   }
 
@@ -41,27 +87,45 @@ public class ParallaxHallEffectFeedbackSensor {
 
   public void clearRotationCount() {
     rotationCount = 0;
+    tickCount = theta;
   }
 
   public long getTickCount() {
-    if (rotationCount >= 0) {
-      return (rotationCount * fullCircleUnits) + theta;
-    } else {
-      return ((rotationCount + 1) * fullCircleUnits) - (fullCircleUnits - theta);
-    }
+    return (rotationCount * fullCircleUnits) + theta;
   }
 
   public long getTheta() {
     return theta;
   }
 
+  public UnwrapMode getUnwrapMode() {
+    return unwrapMode;
+  }
+
+  public int getChannel() {
+    return channel;
+  }
+
   public boolean update() {
-    int dutyCycle = 0;
-    if (wheelSide == WheelSide.LEFT) {
-      dutyCycle = digisparkFeedbackEncoder.getLeftPctX10();
-    } else {
-      dutyCycle = digisparkFeedbackEncoder.getRightPctX10();
-    }
+    return update(System.nanoTime());
+  }
+
+  /**
+   * Update from the duty cycle last read by the encoder.
+   * @param timestampNanos    When the encoder was read, on the same clock as previous updates
+   * @return                  False if the duty cycle was out of range and was ignored
+   */
+  public boolean update(long timestampNanos) {
+    return update(digisparkFeedbackEncoder.getChannelPctX10(channel), timestampNanos);
+  }
+
+  /**
+   * Update from a raw duty cycle sample.
+   * @param dutyCycle         Duty cycle of the feedback signal in tenths of a percent
+   * @param timestampNanos    System.nanoTime() at which the duty cycle was read
+   * @return                  False if the duty cycle was out of range and was ignored
+   */
+  boolean update(int dutyCycle, long timestampNanos) {
     // Did we get pulses inside the prescribed timing window?
     if (dutyCycle >= DUTY_CYCLE_MIN && dutyCycle <= DUTY_CYCLE_MAX) {
       theta = (fullCircleUnits - 1) - ((dutyCycle - DUTY_CYCLE_MIN) * fullCircleUnits) / (DUTY_CYCLE_MAX - DUTY_CYCLE_MIN + 1);
@@ -70,10 +134,14 @@ public class ParallaxHallEffectFeedbackSensor {
       } else if (theta > (fullCircleUnits - 1)) {
         theta = fullCircleUnits - 1;
       }
-      if ((theta < quadrant2Min) && (previousTheta > quadrant3Max)) {
+      if (unwrapMode == UnwrapMode.VELOCITY) {
+        unwrapWithVelocity(timestampNanos);
+      } else if ((theta < quadrant2Min) && (previousTheta > quadrant3Max)) {
+        // wrapped forward past the top of the circle
         rotationCount++;
       } else if ((previousTheta < quadrant2Min) && (theta > quadrant3Max)) {
-        rotationCount++;
+        // wrapped backward past the bottom of the circle
+        rotationCount--;
       }
       previousTheta = theta;
       return true;
@@ -82,4 +150,29 @@ public class ParallaxHallEffectFeedbackSensor {
       return false;
     }
   }
-}
\ No newline at end of file
+
+  private void unwrapWithVelocity(long timestampNanos) {
+    if (!hasPreviousSample) {
+      hasPreviousSample = true;
+      tickCount = (rotationCount * fullCircleUnits) + theta;
+      previousTimestampNanos = timestampNanos;
+      return;
+    }
+    long elapsedNanos = timestampNanos - previousTimestampNanos;
+    if (elapsedNanos > Math.max(HALF_TURN_AT_MAX_RPM_NANOS, GAP_SAMPLE_PERIODS * previousElapsedNanos)) {
+      // Carrying the old speed across a gap would add turns the wheel may never have made
+      ticksPerNano = 0;
+    }
+    double predictedDelta = ticksPerNano * elapsedNanos;
+    int rawDelta = theta - previousTheta;
+    long wraps = Math.round((predictedDelta - rawDelta) / fullCircleUnits);
+    long delta = rawDelta + (wraps * fullCircleUnits);
+    tickCount += delta;
+    rotationCount = Math.floorDiv(tickCount, fullCircleUnits);
+    if (elapsedNanos > 0) {
+      ticksPerNano = (double)delta / elapsedNanos;
+      previousTimestampNanos = timestampNanos;
+      previousElapsedNanos = elapsedNanos;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package devices;
+
+import com.diozero.devices.Servo;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Stands between the drive train and a servo so that only real changes go
+ * out to pigpio. A pulse width is staged with set() and written by flush(),
+ * which skips the write if it is within epsilon of the last pulse width
+ * written. Staging several pulse widths before a flush writes only the last.
+ * The last pulse width written is kept as the servo's commanded state, so it
+ * can be read without asking the hardware, and reconcile() checks it against
+ * what the hardware reports.
+ */
+public class ServoOutput {
+  /**
+   * pigpio times servo pulses in whole microseconds, so smaller changes do nothing.
+   */
+  public static final float DEFAULT_EPSILON_MS = 0.001f;
+
+  private final Servo servo;
+  private final boolean inverted;
+  private final float midPulseWidthMs;
+  private float epsilonMs;
+  private float stagedPulseWidthMs = Float.NaN;
+  private volatile float writtenPulseWidthMs = Float.NaN;
+  private long writeCount;
+  private long suppressedCount;
+  private long mismatchCount;
+
+  public ServoOutput(Servo servo) {
+    this(servo, DEFAULT_EPSILON_MS);
+  }
+
+  /**
+   * @param epsilonMs   Largest pulse width change in milliseconds that is not written
+   */
+  public ServoOutput(Servo servo, float epsilonMs) {
+    this(servo, epsilonMs, false, Float.NaN);
+  }
+
+  /**
+   * @param epsilonMs         Largest pulse width change in milliseconds that is not written
+   * @param inverted          True if the servo was set inverted, so it reports pulse widths mirrored
+   * @param midPulseWidthMs   The mid pulse width of the servo's trim, which inversion mirrors around
+   */
+  public ServoOutput(Servo servo, float epsilonMs, boolean inverted, float midPulseWidthMs) {
+    this.servo = servo;
+    this.epsilonMs = epsilonMs;
+    this.inverted = inverted;
+    this.midPulseWidthMs = midPulseWidthMs;
+  }
+
+  /**
+   * Stage a pulse width for the next flush.
+   */
+  public synchronized void set(float pulseWidthMs) {
+    if (!Float.isNaN(stagedPulseWidthMs)) {
+      // Replaced before it was written
+      suppressedCount++;
+    }
+    stagedPulseWidthMs = pulseWidthMs;
+  }
+
+  /**
+   * Write the staged pulse width, unless it is within epsilon of the last one written.
+   * @return  True if the servo was written.
+   */
+  public synchronized boolean flush() {
+    if (Float.isNaN(stagedPulseWidthMs)) {
+      return false;
+    }
+    float pulseWidthMs = stagedPulseWidthMs;
+    stagedPulseWidthMs = Float.NaN;
+    if (Math.abs(pulseWidthMs - writtenPulseWidthMs) <= epsilonMs) {
+      suppressedCount++;
+      return false;
+    }
+    servo.setPulseWidthMs(pulseWidthMs);
+    writtenPulseWidthMs = pulseWidthMs;
+    writeCount++;
+    return true;
+  }
+
+  /**
+   * @return  The last pulse width written, before any inversion; NaN if nothing has been written yet.
+   */
+  public float getPulseWidthMs() {
+    return writtenPulseWidthMs;
+  }
+
+  /**
+   * Read the pulse width back from the hardware and compare it with the last
+   * one written. If they differ, for example because something else wrote
+   * the servo or pigpio restarted, log it and write the servo again.
+   * @param toleranceMs   Largest difference in milliseconds that still matches
+   * @return  False if the hardware did not match.
+   */
+  public synchronized boolean reconcile(float toleranceMs) {
+    float commandedPulseWidthMs = writtenPulseWidthMs;
+    if (Float.isNaN(commandedPulseWidthMs)) {
+      return true;
+    }
+    float hardwarePulseWidthMs = servo.getPulseWidthMs();
+    if (inverted) {
+      hardwarePulseWidthMs = 2 * midPulseWidthMs - hardwarePulseWidthMs;
+    }
+    if (Math.abs(hardwarePulseWidthMs - commandedPulseWidthMs) <= toleranceMs) {
+      return true;
+    }
+    mismatchCount++;
+    Logger.warn(String.format("Servo pulse width is %.3fms but %.3fms was written; writing it again.",
+        hardwarePulseWidthMs, commandedPulseWidthMs));
+    servo.setPulseWidthMs(commandedPulseWidthMs);
+    writeCount++;
+    return false;
+  }
+
+  /**
+   * @return  Number of times reconcile() found the hardware did not match.
+   */
+  public synchronized long getMismatchCount() {
+    return mismatchCount;
+  }
+
+  public synchronized void setEpsilonMs(float epsilonMs) {
+    this.epsilonMs = epsilonMs;
+  }
+
+  public synchronized float getEpsilonMs() {
+    return epsilonMs;
+  }
+
+  /**
+   * @return  Number of flushes that wrote the servo.
+   */
+  public synchronized long getWriteCount() {
+    return writeCount;
+  }
+
+  /**
+   * @return  Number of pulse widths not written, because they had not changed enough or were replaced before a flush.
+   */
+  public synchronized long getSuppressedCount() {
+    return suppressedCount;
+  }
+
+  public Servo getServo() {
+    return servo;
+  }
+}
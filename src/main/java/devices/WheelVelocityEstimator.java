@@ -0,0 +1,95 @@
+package devices;
+
+/**
+ * Estimates the velocity and acceleration of a wheel from timestamped
+ * tick counts, using the change over a fixed window of samples. Samples are
+ * kept in primitive ring buffers so adding one does not allocate, and the
+ * estimates are computed when a sample is added so reads are field reads.
+ * One thread adds samples; any thread may read the estimates.
+ */
+public class WheelVelocityEstimator {
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final int ticksPerRotation;
+  private final int windowSize;
+  private final long[] timestampNanos;
+  private final long[] tickCounts;
+  private final double[] velocities;
+  private final long[] velocityTimestampNanos;
+  private int newest = -1;
+  private int sampleCount;
+  private volatile double ticksPerSecond;
+  private volatile double ticksPerSecondSquared;
+
+  /**
+   * @param windowSize          Number of sample intervals to estimate over; larger is smoother but lags more
+   * @param ticksPerRotation    Ticks in one turn of the wheel
+   */
+  public WheelVelocityEstimator(int windowSize, int ticksPerRotation) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("Window size must be at least 1.");
+    }
+    this.windowSize = windowSize;
+    this.ticksPerRotation = ticksPerRotation;
+    this.timestampNanos = new long[windowSize + 1];
+    this.tickCounts = new long[windowSize + 1];
+    this.velocities = new double[windowSize + 1];
+    this.velocityTimestampNanos = new long[windowSize + 1];
+  }
+
+  public void addSample(long timestampNanos, long tickCount) {
+    if (sampleCount > 0 && timestampNanos <= this.timestampNanos[newest]) {
+      // Nothing to learn from a sample that is not newer
+      return;
+    }
+    newest = (newest + 1) % this.timestampNanos.length;
+    this.timestampNanos[newest] = timestampNanos;
+    tickCounts[newest] = tickCount;
+    sampleCount = Math.min(sampleCount + 1, this.timestampNanos.length);
+    if (sampleCount < 2) {
+      return;
+    }
+
+    int oldest = samplesAgo(sampleCount - 1);
+    long elapsedNanos = timestampNanos - this.timestampNanos[oldest];
+    double velocity = (tickCount - tickCounts[oldest]) * NANOS_PER_SECOND / elapsedNanos;
+    // A window average belongs to the middle of the window
+    long velocityTimestamp = this.timestampNanos[oldest] + (elapsedNanos / 2);
+    velocities[newest] = velocity;
+    velocityTimestampNanos[newest] = velocityTimestamp;
+    ticksPerSecond = velocity;
+
+    // The first sample has no velocity, so there is one less of them
+    int velocityCount = Math.min(sampleCount - 1, windowSize);
+    if (velocityCount >= 2) {
+      int oldestVelocity = samplesAgo(velocityCount - 1);
+      long velocityElapsedNanos = velocityTimestamp - velocityTimestampNanos[oldestVelocity];
+      if (velocityElapsedNanos > 0) {
+        ticksPerSecondSquared = (velocity - velocities[oldestVelocity]) * NANOS_PER_SECOND / velocityElapsedNanos;
+      }
+    }
+  }
+
+  private int samplesAgo(int count) {
+    return (newest + timestampNanos.length - count) % timestampNanos.length;
+  }
+
+  public void reset() {
+    newest = -1;
+    sampleCount = 0;
+    ticksPerSecond = 0;
+    ticksPerSecondSquared = 0;
+  }
+
+  public double getTicksPerSecond() {
+    return ticksPerSecond;
+  }
+
+  public double getTicksPerSecondSquared() {
+    return ticksPerSecondSquared;
+  }
+
+  public double getRpm() {
+    return ticksPerSecond * 60 / ticksPerRotation;
+  }
+}
@@ -0,0 +1,88 @@
+package host;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.pmw.tinylog.Logger;
+
+import oi.GamepadDiscovery;
+
+/**
+ * Drives every robot in a roster from one JVM, usually a lab server
+ * reaching each robot's pigpio daemon over the network. Each robot gets
+ * its own RobotStack with its own control loop thread, so the robots'
+ * loops run in parallel across the server's cores. Each robot's loop
+ * timing is logged every ten seconds and on shutdown.
+ * 
+ * Arguments: roster file, see RobotRoster
+ */
+public class HostMain {
+  private static final long reportPeriodMs = 10000;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: HostMain <roster file>");
+      System.exit(2);
+    }
+    List<RobotConfig> roster = RobotRoster.load(new File(args[0]));
+    List<RobotStack> robots = new ArrayList<>();
+    PigpioConnections connections = new PigpioConnections();
+    Set<String> claimedGamepadPorts = ConcurrentHashMap.newKeySet();
+    for (RobotConfig config : roster) {
+      // A robot whose gamepad is not plugged in yet stays stopped until it is
+      GamepadDiscovery gamepad = new GamepadDiscovery(config.getGamepadIndex(), claimedGamepadPorts);
+      gamepad.start(GamepadDiscovery.DEFAULT_SCAN_PERIOD_MS);
+      try {
+        robots.add(new RobotStack(config, connections.get(config), gamepad));
+      } catch (RuntimeException e) {
+        // One unreachable robot should not keep the rest of the lab from driving
+        Logger.error("Could not set up robot " + config.getName() + ": " + e.getMessage());
+        gamepad.close();
+      }
+    }
+    if (robots.isEmpty()) {
+      Logger.error("No robots could be set up.");
+      System.exit(1);
+    }
+
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "HostReporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reporter.scheduleAtFixedRate(() -> {
+      for (RobotStack robot : robots) {
+        robot.report(true);
+      }
+    }, reportPeriodMs, reportPeriodMs, TimeUnit.MILLISECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      reporter.shutdownNow();
+      for (RobotStack robot : robots) {
+        robot.report(false);
+        try {
+          robot.stop();
+        } catch (RuntimeException e) {
+          Logger.error("Error stopping robot " + robot.getConfig().getName() + ": " + e.getMessage());
+        }
+      }
+      connections.close();
+    }, "HostShutdown"));
+
+    for (RobotStack robot : robots) {
+      robot.start();
+    }
+    Logger.info("Driving " + robots.size() + " robots on " + Runtime.getRuntime().availableProcessors() + " cores.");
+    try {
+      Thread.currentThread().join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package host;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.diozero.internal.provider.NativeDeviceFactoryInterface;
+import com.diozero.internal.provider.pigpioj.PigpioJDeviceFactory;
+import com.diozero.util.DeviceFactoryHelper;
+import com.diozero.util.RuntimeIOException;
+
+import org.pmw.tinylog.Logger;
+
+import uk.pigpioj.PigpioSocket;
+
+/**
+ * One device provider per pigpio daemon, each with its own socket to
+ * that daemon. diozero's pigpio provider normally takes pigpioj's single
+ * process wide connection, which would put every robot on the first
+ * robot's daemon, so each provider is given a pigpioj socket of its own.
+ * Robots on the same daemon share its provider.
+ */
+public class PigpioConnections implements Closeable {
+  /**
+   * Opens a connection to one pigpio daemon.
+   */
+  public interface Connector {
+    NativeDeviceFactoryInterface connect(String host, int port);
+  }
+
+  private final Connector connector;
+  private final Map<String, NativeDeviceFactoryInterface> factories = new LinkedHashMap<>();
+
+  public PigpioConnections() {
+    this(PigpioConnections::connectSocket);
+  }
+
+  public PigpioConnections(Connector connector) {
+    this.connector = connector;
+  }
+
+  /**
+   * Connect to the pigpio daemon given in a roster entry, or use this
+   * machine's device provider if it gives none.
+   */
+  public synchronized NativeDeviceFactoryInterface get(RobotConfig config) {
+    if (config.getPigpioHost() == null) {
+      return DeviceFactoryHelper.getNativeDeviceFactory();
+    }
+    String key = config.getPigpioHost() + ":" + config.getPigpioPort();
+    NativeDeviceFactoryInterface factory = factories.get(key);
+    if (factory == null) {
+      factory = connector.connect(config.getPigpioHost(), config.getPigpioPort());
+      factories.put(key, factory);
+      Logger.info("Connected to pigpio at " + key + ".");
+    }
+    return factory;
+  }
+
+  /**
+   * @return  Number of daemons connected to.
+   */
+  public synchronized int getConnectionCount() {
+    return factories.size();
+  }
+
+  @Override
+  public synchronized void close() {
+    for (Map.Entry<String, NativeDeviceFactoryInterface> entry : factories.entrySet()) {
+      try {
+        entry.getValue().close();
+      } catch (RuntimeIOException e) {
+        Logger.error("Error closing pigpio at " + entry.getKey() + ": " + e.getMessage());
+      }
+    }
+    factories.clear();
+  }
+
+  private static NativeDeviceFactoryInterface connectSocket(String host, int port) {
+    try {
+      return new PigpioJDeviceFactory(new PigpioSocket(host, port));
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Could not connect to pigpio at " + host + ":" + port + ": " + e.getMessage(), e);
+    }
+  }
+}
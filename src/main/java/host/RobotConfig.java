@@ -0,0 +1,100 @@
+package host;
+
+/**
+ * How to reach one robot in the roster.
+ */
+public final class RobotConfig {
+  public static final int DEFAULT_PIGPIO_PORT = 8888;
+  public static final int DEFAULT_LEFT_WHEEL_PIN = 24;
+  public static final int DEFAULT_RIGHT_WHEEL_PIN = 23;
+  public static final int DEFAULT_I2C_BUS = 1;
+  public static final int DEFAULT_ENCODER_ADDRESS = 0x04;
+  public static final long DEFAULT_CONTROL_PERIOD_MS = 20;
+
+  private final String name;
+  private final String pigpioHost;
+  private final int pigpioPort;
+  private final int leftWheelPin;
+  private final int rightWheelPin;
+  private final int i2cBus;
+  private final int encoderAddress;
+  private final int gamepadIndex;
+  private final long controlPeriodMs;
+
+  /**
+   * @param name              Name of the robot, used for its threads and in its reports
+   * @param pigpioHost        Host running the robot's pigpio daemon, or null for this machine
+   * @param pigpioPort        Port of the pigpio daemon
+   * @param leftWheelPin      GPIO of the left wheel servo
+   * @param rightWheelPin     GPIO of the right wheel servo
+   * @param i2cBus            I2C bus of the Digispark feedback encoder
+   * @param encoderAddress    I2C address of the Digispark feedback encoder
+   * @param gamepadIndex      Which of the gamepads plugged into this machine drives the robot, from 0
+   * @param controlPeriodMs   Time between runs of the robot's control loop
+   */
+  public RobotConfig(String name, 
+      String pigpioHost, 
+      int pigpioPort, 
+      int leftWheelPin, 
+      int rightWheelPin, 
+      int i2cBus, 
+      int encoderAddress, 
+      int gamepadIndex, 
+      long controlPeriodMs) {
+    this.name = name;
+    this.pigpioHost = pigpioHost;
+    this.pigpioPort = pigpioPort;
+    this.leftWheelPin = leftWheelPin;
+    this.rightWheelPin = rightWheelPin;
+    this.i2cBus = i2cBus;
+    this.encoderAddress = encoderAddress;
+    this.gamepadIndex = gamepadIndex;
+    this.controlPeriodMs = controlPeriodMs;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return  Host running the robot's pigpio daemon, or null for this machine.
+   */
+  public String getPigpioHost() {
+    return pigpioHost;
+  }
+
+  public int getPigpioPort() {
+    return pigpioPort;
+  }
+
+  public int getLeftWheelPin() {
+    return leftWheelPin;
+  }
+
+  public int getRightWheelPin() {
+    return rightWheelPin;
+  }
+
+  public int getI2cBus() {
+    return i2cBus;
+  }
+
+  public int getEncoderAddress() {
+    return encoderAddress;
+  }
+
+  public int getGamepadIndex() {
+    return gamepadIndex;
+  }
+
+  public long getControlPeriodMs() {
+    return controlPeriodMs;
+  }
+
+  /**
+   * @return  Where the robot's hardware is, to tell robots that share it apart.
+   */
+  String getHardwareHost() {
+    return pigpioHost == null ? "localhost:" + pigpioPort : pigpioHost + ":" + pigpioPort;
+  }
+}
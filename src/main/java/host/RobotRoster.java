@@ -0,0 +1,95 @@
+package host;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads the robots to drive from a properties file. The robots key lists
+ * their names, and every other key is a robot's name, a dot and a setting:
+ * <pre>
+ * robots=alpha,bravo
+ * alpha.pigpioHost=learningbot1.local
+ * alpha.gamepad=0
+ * bravo.pigpioHost=learningbot2.local
+ * bravo.gamepad=1
+ * bravo.encoderAddress=0x05
+ * </pre>
+ * Settings are pigpioHost, pigpioPort, leftWheelPin, rightWheelPin,
+ * i2cBus, encoderAddress, gamepad and controlPeriodMs. Only gamepad has
+ * no default. Numbers may be decimal or 0x hex.
+ */
+public final class RobotRoster {
+  private RobotRoster() {
+  }
+
+  public static List<RobotConfig> load(File file) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      properties.load(in);
+    }
+    return parse(properties);
+  }
+
+  /**
+   * @throws IllegalArgumentException   If a setting is missing or not a number, or two robots share hardware
+   */
+  public static List<RobotConfig> parse(Properties properties) {
+    String names = properties.getProperty("robots", "").trim();
+    if (names.isEmpty()) {
+      throw new IllegalArgumentException("Roster lists no robots");
+    }
+    List<RobotConfig> robots = new ArrayList<>();
+    Map<String, String> hardwareOwners = new HashMap<>();
+    for (String name : names.split(",")) {
+      name = name.trim();
+      claim(hardwareOwners, name, "the name " + name);
+      String pigpioHost = properties.getProperty(name + ".pigpioHost");
+      RobotConfig robot = new RobotConfig(name, 
+          pigpioHost == null ? null : pigpioHost.trim(), 
+          getInt(properties, name, "pigpioPort", RobotConfig.DEFAULT_PIGPIO_PORT), 
+          getInt(properties, name, "leftWheelPin", RobotConfig.DEFAULT_LEFT_WHEEL_PIN), 
+          getInt(properties, name, "rightWheelPin", RobotConfig.DEFAULT_RIGHT_WHEEL_PIN), 
+          getInt(properties, name, "i2cBus", RobotConfig.DEFAULT_I2C_BUS), 
+          getInt(properties, name, "encoderAddress", RobotConfig.DEFAULT_ENCODER_ADDRESS), 
+          getInt(properties, name, "gamepad", null), 
+          getInt(properties, name, "controlPeriodMs", (int)RobotConfig.DEFAULT_CONTROL_PERIOD_MS));
+      claim(hardwareOwners, name, "gamepad " + robot.getGamepadIndex());
+      claim(hardwareOwners, name, robot.getHardwareHost() + " GPIO " + robot.getLeftWheelPin());
+      claim(hardwareOwners, name, robot.getHardwareHost() + " GPIO " + robot.getRightWheelPin());
+      claim(hardwareOwners, name, String.format("%s I2C %d/0x%02x", 
+          robot.getHardwareHost(), robot.getI2cBus(), robot.getEncoderAddress()));
+      robots.add(robot);
+    }
+    return Collections.unmodifiableList(robots);
+  }
+
+  private static int getInt(Properties properties, String name, String setting, Integer defaultValue) {
+    String value = properties.getProperty(name + "." + setting);
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new IllegalArgumentException("Robot " + name + " has no " + setting);
+      }
+      return defaultValue;
+    }
+    try {
+      return Integer.decode(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Robot " + name + " " + setting + " is not a number: " + value);
+    }
+  }
+
+  private static void claim(Map<String, String> hardwareOwners, String name, String hardware) {
+    String owner = hardwareOwners.putIfAbsent(hardware, name);
+    if (owner != null) {
+      throw new IllegalArgumentException("Robots " + owner + " and " + name + " both use " + hardware);
+    }
+  }
+}
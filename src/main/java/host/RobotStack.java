@@ -0,0 +1,185 @@
+package host;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import com.diozero.api.I2CConstants;
+import com.diozero.api.I2CDevice;
+import com.diozero.devices.Servo;
+import com.diozero.internal.provider.I2CDeviceFactoryInterface;
+import com.diozero.internal.provider.PwmOutputDeviceFactoryInterface;
+
+import org.pmw.tinylog.Logger;
+
+import commands.ArcadeDrive;
+import devices.DigisparkFeedbackEncoder;
+import devices.ParallaxHallEffectFeedbackSensor;
+import loop.ControlLoop;
+import loop.LatencyHistogram;
+import oi.Gamepad;
+import oi.OperatorInterface;
+import subsystems.DriveTrain;
+
+/**
+ * Everything one robot needs, built from its roster entry and kept apart
+ * from every other robot in the same JVM: its own device provider,
+ * servos, encoder, gamepad sampler, drive train and control loop. The
+ * gamepad and encoder are read on the robot's own background threads and
+ * its servos are written from its own control loop thread, so a robot with
+ * slow I/O only holds itself up.
+ * <p>
+ * The WPILib Scheduler is a single instance per JVM, so the robot's
+ * control loop runs its arcade drive command directly instead of through it.
+ */
+public class RobotStack {
+  private static final Servo.Trim TRIM = new Servo.Trim(1.5f, 1.5f, 1.28f, 1.72f);
+  private static final long GAMEPAD_SAMPLE_PERIOD_MS = 10;
+  private static final long FEEDBACK_SAMPLE_PERIOD_MS = 10;
+  private static final long STOP_TIMEOUT_MS = 1000;
+
+  private final RobotConfig config;
+  private final Servo leftWheelServo;
+  private final Servo rightWheelServo;
+  private final I2CDevice encoderDevice;
+  private final OperatorInterface operatorInterface;
+  private final DriveTrain driveTrain;
+  private final HostedArcadeDrive arcadeDrive;
+  private final ControlLoop controlLoop;
+  private final LatencyHistogram tickLatency = new LatencyHistogram();
+
+  /**
+   * @param config          Where the robot's hardware is
+   * @param deviceFactory   Provider for the robot's servos and encoder
+   * @param gamepad         The robot's gamepad
+   */
+  public <F extends PwmOutputDeviceFactoryInterface & I2CDeviceFactoryInterface> RobotStack(
+      RobotConfig config, 
+      F deviceFactory, 
+      Gamepad gamepad) {
+    this.config = config;
+    this.leftWheelServo = new Servo(deviceFactory, config.getLeftWheelPin(), TRIM.getMidPulseWidthMs(), 50, TRIM);
+    this.rightWheelServo = new Servo(deviceFactory, config.getRightWheelPin(), TRIM.getMidPulseWidthMs(), 50, TRIM);
+    leftWheelServo.setInverted(true);
+    this.encoderDevice = new I2CDevice(deviceFactory, 
+        config.getI2cBus(), 
+        config.getEncoderAddress(), 
+        I2CConstants.ADDR_SIZE_7, 
+        I2CConstants.DEFAULT_CLOCK_FREQUENCY, 
+        ByteOrder.BIG_ENDIAN);
+    DigisparkFeedbackEncoder encoder = new DigisparkFeedbackEncoder(encoderDevice);
+    this.operatorInterface = new OperatorInterface(gamepad);
+    this.driveTrain = new DriveTrain(TRIM, 
+        leftWheelServo, 
+        rightWheelServo, 
+        encoder, 
+        new ParallaxHallEffectFeedbackSensor(encoder, 
+            ParallaxHallEffectFeedbackSensor.WheelSide.LEFT, 
+            ParallaxHallEffectFeedbackSensor.UnwrapMode.VELOCITY), 
+        new ParallaxHallEffectFeedbackSensor(encoder, 
+            ParallaxHallEffectFeedbackSensor.WheelSide.RIGHT, 
+            ParallaxHallEffectFeedbackSensor.UnwrapMode.VELOCITY), 
+        operatorInterface);
+    driveTrain.setBatchedServoOutputs(true);
+    this.arcadeDrive = new HostedArcadeDrive(driveTrain, operatorInterface);
+    this.controlLoop = new ControlLoop(config.getName(), 
+        this::tick, 
+        TimeUnit.MILLISECONDS.toNanos(config.getControlPeriodMs()));
+  }
+
+  /**
+   * Start the robot's samplers and control loop, each on its own thread.
+   */
+  public void start() {
+    operatorInterface.startSampling(GAMEPAD_SAMPLE_PERIOD_MS);
+    driveTrain.startFeedbackAcquisition(FEEDBACK_SAMPLE_PERIOD_MS);
+    arcadeDrive.begin();
+    controlLoop.start();
+    Logger.info("Robot " + config.getName() + " started on " + config.getHardwareHost() + ".");
+  }
+
+  /**
+   * Stop the robot and let go of its hardware.
+   */
+  public void stop() {
+    controlLoop.stop();
+    try {
+      // Let the last tick finish before the servos are closed under it
+      if (!controlLoop.join(STOP_TIMEOUT_MS)) {
+        Logger.warn("Robot " + config.getName() + " control loop did not stop in time.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    operatorInterface.stopSampling();
+    driveTrain.stopFeedbackAcquisition();
+    try {
+      driveTrain.stop();
+    } finally {
+      leftWheelServo.close();
+      rightWheelServo.close();
+      encoderDevice.close();
+    }
+    Logger.info("Robot " + config.getName() + " stopped.");
+  }
+
+  private void tick() {
+    long start = System.nanoTime();
+    arcadeDrive.step();
+    driveTrain.flushServoOutputs();
+    tickLatency.record(System.nanoTime() - start);
+  }
+
+  public RobotConfig getConfig() {
+    return config;
+  }
+
+  public DriveTrain getDriveTrain() {
+    return driveTrain;
+  }
+
+  public ControlLoop getControlLoop() {
+    return controlLoop;
+  }
+
+  /**
+   * @return  How long each run of the robot's control loop took.
+   */
+  public LatencyHistogram getTickLatency() {
+    return tickLatency;
+  }
+
+  /**
+   * Log the robot's control loop timing.
+   * @param reset   Start the tick latencies again, so the next report covers only the time since this one
+   */
+  public void report(boolean reset) {
+    Logger.info(String.format("%s: ticks=%d overruns=%d skipped=%d p50=%.3fms p99=%.3fms max=%.3fms "
+        + "max wake lateness=%.3fms servo writes=%d",
+        config.getName(),
+        controlLoop.getIterationCount(),
+        controlLoop.getOverrunCount(),
+        controlLoop.getSkippedCount(),
+        tickLatency.getPercentileNanos(50) / 1e6,
+        tickLatency.getPercentileNanos(99) / 1e6,
+        tickLatency.getMaxNanos() / 1e6,
+        controlLoop.getMaxWakeLatenessNanos() / 1e6,
+        driveTrain.getServoWriteCount()));
+    if (reset) {
+      tickLatency.reset();
+    }
+  }
+
+  private static class HostedArcadeDrive extends ArcadeDrive {
+    HostedArcadeDrive(DriveTrain driveTrain, OperatorInterface operatorInterface) {
+      super(driveTrain, operatorInterface);
+    }
+
+    void begin() {
+      initialize();
+    }
+
+    void step() {
+      execute();
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package loop;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Runs a control loop body at a fixed rate. Each deadline is computed
+ * from the start time rather than from when the last run finished, so
+ * the loop does not drift. If a run overruns one or more periods the
+ * missed runs are skipped rather than bunched up.
+ * 
+ * Waiting parks the thread until spinThresholdNanos before the deadline
+ * and then busy spins, which gives tighter timing at the cost of a core.
+ * A threshold of 0 never spins.
+ */
+public class ControlLoop implements Runnable {
+  private final String name;
+  private final Runnable body;
+  private final long periodNanos;
+  private final long spinThresholdNanos;
+  private volatile boolean running;
+  private Thread thread;
+
+  private volatile long iterationCount;
+  private volatile long overrunCount;
+  private volatile long skippedCount;
+  private volatile long lastOverrunNanos;
+  private volatile long maxOverrunNanos;
+  private volatile long lastWakeLatenessNanos;
+  private volatile long maxWakeLatenessNanos;
+
+  /**
+   * @param name                  Name of the loop, also used for its thread
+   * @param body                  What to run every period
+   * @param periodNanos           Time between the starts of two runs
+   * @param spinThresholdNanos    How long before a deadline to stop parking and spin
+   */
+  public ControlLoop(String name, Runnable body, long periodNanos, long spinThresholdNanos) {
+    if (periodNanos <= 0) {
+      throw new IllegalArgumentException("Period must be positive.");
+    }
+    this.name = name;
+    this.body = body;
+    this.periodNanos = periodNanos;
+    this.spinThresholdNanos = spinThresholdNanos;
+  }
+
+  public ControlLoop(String name, Runnable body, long periodNanos) {
+    this(name, body, periodNanos, 0);
+  }
+
+  /**
+   * Run the loop on a new thread. Cancels a stop() that the loop has not
+   * finished yet rather than starting a second loop.
+   */
+  public synchronized void start() {
+    running = true;
+    if (thread != null) {
+      return;
+    }
+    thread = new Thread(this::loop, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Ask the loop to finish after the current run.
+   */
+  public synchronized void stop() {
+    running = false;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Wait for the loop to finish after stop().
+   * @param timeoutMs   Longest to wait in milliseconds
+   * @return            True if the loop has finished
+   */
+  public synchronized boolean join(long timeoutMs) throws InterruptedException {
+    long deadline = System.nanoTime() + (timeoutMs * 1000000);
+    long remaining = timeoutMs;
+    while (thread != null && remaining > 0) {
+      wait(remaining);
+      remaining = (deadline - System.nanoTime()) / 1000000;
+    }
+    return thread == null;
+  }
+
+  /**
+   * @return  True from start() until the loop has finished.
+   */
+  public synchronized boolean isRunning() {
+    return thread != null;
+  }
+
+  /**
+   * Run the loop on the calling thread until stop() is called.
+   */
+  @Override
+  public void run() {
+    synchronized (this) {
+      if (thread != null) {
+        throw new IllegalStateException(name + " is already running.");
+      }
+      running = true;
+      thread = Thread.currentThread();
+    }
+    loop();
+  }
+
+  private void loop() {
+    Logger.info(name + " running every " + periodNanos / 1000 + "us.");
+    try {
+      long deadline = System.nanoTime();
+      while (running || !finish()) {
+        long start = System.nanoTime();
+        long wakeLateness = start - deadline;
+        lastWakeLatenessNanos = wakeLateness;
+        if (wakeLateness > maxWakeLatenessNanos) {
+          maxWakeLatenessNanos = wakeLateness;
+        }
+
+        try {
+          body.run();
+        } catch (RuntimeException e) {
+          Logger.error(name + " run failed: " + e.getMessage());
+        }
+        iterationCount++;
+
+        deadline += periodNanos;
+        long overrun = System.nanoTime() - deadline;
+        lastOverrunNanos = overrun > 0 ? overrun : 0;
+        if (overrun > 0) {
+          overrunCount++;
+          if (overrun > maxOverrunNanos) {
+            maxOverrunNanos = overrun;
+          }
+          // Skip to the next deadline that is still ahead
+          long missed = (overrun / periodNanos) + 1;
+          skippedCount += missed - 1;
+          deadline += missed * periodNanos;
+        }
+        waitUntil(deadline);
+      }
+    } finally {
+      synchronized (this) {
+        // Also let go if the body threw an Error
+        if (thread == Thread.currentThread()) {
+          thread = null;
+          notifyAll();
+        }
+      }
+    }
+    Logger.info(name + " stopped.");
+  }
+
+  /**
+   * Finish the loop unless start() was called again since stop().
+   * @return  True if the loop should finish.
+   */
+  private synchronized boolean finish() {
+    if (running) {
+      return false;
+    }
+    thread = null;
+    notifyAll();
+    return true;
+  }
+
+  private void waitUntil(long deadline) {
+    long remaining = deadline - System.nanoTime();
+    while (remaining > spinThresholdNanos && running) {
+      LockSupport.parkNanos(remaining - spinThresholdNanos);
+      remaining = deadline - System.nanoTime();
+    }
+    while (remaining > 0 && running) {
+      remaining = deadline - System.nanoTime();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getPeriodNanos() {
+    return periodNanos;
+  }
+
+  public long getIterationCount() {
+    return iterationCount;
+  }
+
+  /**
+   * @return  Number of runs that finished after their deadline.
+   */
+  public long getOverrunCount() {
+    return overrunCount;
+  }
+
+  /**
+   * @return  Number of runs skipped because an earlier run took more than a period.
+   */
+  public long getSkippedCount() {
+    return skippedCount;
+  }
+
+  public long getLastOverrunNanos() {
+    return lastOverrunNanos;
+  }
+
+  public long getMaxOverrunNanos() {
+    return maxOverrunNanos;
+  }
+
+  /**
+   * @return  How late the last run started compared to its deadline.
+   */
+  public long getLastWakeLatenessNanos() {
+    return lastWakeLatenessNanos;
+  }
+
+  public long getMaxWakeLatenessNanos() {
+    return maxWakeLatenessNanos;
+  }
+}
@@ -0,0 +1,93 @@
+package loop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of latencies in nanoseconds, bucketed the way an
+ * HDR histogram is: each power of two is split into 32 linear sub-buckets,
+ * so any recorded value is reported within about 3% of what it was.
+ * Recording is a few atomic increments and never allocates, so any
+ * thread may record while another one reports.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  // Values from 2^40ns (about 18 minutes) up share the top bucket
+  private static final int MAX_MAGNITUDE = 40;
+  private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts.incrementAndGet(indexOf(nanos));
+    totalCount.incrementAndGet();
+    long max = maxNanos.get();
+    while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+      max = maxNanos.get();
+    }
+  }
+
+  private static int indexOf(long nanos) {
+    if (nanos < SUB_BUCKET_COUNT) {
+      return (int)nanos;
+    }
+    int magnitude = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_MAGNITUDE);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int)Math.min(nanos >> shift, (2 * SUB_BUCKET_COUNT) - 1);
+    return ((shift + 1) * SUB_BUCKET_COUNT) + (subBucket - SUB_BUCKET_COUNT);
+  }
+
+  /**
+   * @return  The largest value that falls in the bucket at index.
+   */
+  private static long highestValueAt(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index / SUB_BUCKET_COUNT) - 1;
+    long subBucket = (index % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  /**
+   * @param percentile  From 0 to 100
+   * @return            The value below which the given percentage of recorded values fall.
+   */
+  public long getPercentileNanos(double percentile) {
+    long total = totalCount.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long)Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueAt(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    maxNanos.set(0);
+  }
+}
@@ -0,0 +1,102 @@
+package loop;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Records how long each stage of the control loop takes. Timing is off
+ * unless the JVM is started with -DloopTiming=true; when off, start() and
+ * stop() do nothing and the JIT removes them.
+ * 
+ * <pre>
+ * long start = LoopTiming.start();
+ * doStage();
+ * LoopTiming.stop(LoopTiming.Stage.SOME_STAGE, start);
+ * </pre>
+ */
+public final class LoopTiming {
+  public enum Stage { 
+    SCHEDULER_RUN,
+    ARCADE_DRIVE_EXECUTE,
+    TANK_DRIVE_EXECUTE,
+    PROFILED_DRIVE_EXECUTE,
+    FOLLOW_TRAJECTORY_EXECUTE,
+    GAMEPAD_POLL,
+    SERVO_WRITE,
+    ENCODER_READ
+  };
+
+  private static final boolean ENABLED = Boolean.getBoolean("loopTiming");
+  private static final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+  private static ScheduledExecutorService reporter;
+
+  static {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  private LoopTiming() {
+  }
+
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * @return  A start time to pass to stop().
+   */
+  public static long start() {
+    return ENABLED ? System.nanoTime() : 0;
+  }
+
+  public static void stop(Stage stage, long startNanos) {
+    if (ENABLED) {
+      histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+  }
+
+  public static LatencyHistogram getHistogram(Stage stage) {
+    return histograms[stage.ordinal()];
+  }
+
+  /**
+   * Log the stage latencies every period, and once more when the JVM shuts down.
+   * Each periodic report covers only the time since the one before.
+   * Does nothing if timing is off.
+   * @param periodMs  Time between reports in milliseconds
+   */
+  public static synchronized void startReporting(long periodMs) {
+    if (!ENABLED || reporter != null) {
+      return;
+    }
+    reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "LoopTimingReporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reporter.scheduleAtFixedRate(() -> report(true), periodMs, periodMs, TimeUnit.MILLISECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> report(false), "LoopTimingShutdownReport"));
+  }
+
+  private static synchronized void report(boolean reset) {
+    for (Stage stage : Stage.values()) {
+      LatencyHistogram histogram = histograms[stage.ordinal()];
+      if (histogram.getCount() == 0) {
+        continue;
+      }
+      Logger.info(String.format("%s: n=%d p50=%.3fms p99=%.3fms max=%.3fms",
+          stage,
+          histogram.getCount(),
+          histogram.getPercentileNanos(50) / 1e6,
+          histogram.getPercentileNanos(99) / 1e6,
+          histogram.getMaxNanos() / 1e6));
+      if (reset) {
+        histogram.reset();
+      }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package motion;
+
+import devices.ParallaxHallEffectFeedbackSensor;
+
+/**
+ * Converts robot moves into wheel encoder ticks.
+ */
+public final class DriveGeometry {
+  private final double wheelDiameterMeters;
+  private final double trackWidthMeters;
+
+  /**
+   * @param wheelDiameterMeters   Diameter of the drive wheels
+   * @param trackWidthMeters      Distance between the middles of the two drive wheels
+   */
+  public DriveGeometry(double wheelDiameterMeters, double trackWidthMeters) {
+    this.wheelDiameterMeters = wheelDiameterMeters;
+    this.trackWidthMeters = trackWidthMeters;
+  }
+
+  /**
+   * The learning bot: 2 9/16" wheels about 4 3/16" apart.
+   */
+  public static DriveGeometry learningBot() {
+    return new DriveGeometry(0.0655, 0.106);
+  }
+
+  public double getWheelDiameterMeters() {
+    return wheelDiameterMeters;
+  }
+
+  public double getTrackWidthMeters() {
+    return trackWidthMeters;
+  }
+
+  /**
+   * @return  Ticks each wheel turns to roll the robot the given distance.
+   */
+  public double metersToTicks(double meters) {
+    return meters / (Math.PI * wheelDiameterMeters) * ParallaxHallEffectFeedbackSensor.TICKS_PER_ROTATION;
+  }
+
+  public double ticksToMeters(double ticks) {
+    return ticks * Math.PI * wheelDiameterMeters / ParallaxHallEffectFeedbackSensor.TICKS_PER_ROTATION;
+  }
+
+  /**
+   * @return  Ticks each wheel turns, in opposite directions, to spin the robot in place by the given angle.
+   */
+  public double radiansToTicks(double radians) {
+    return metersToTicks(radians * trackWidthMeters / 2);
+  }
+}
@@ -0,0 +1,44 @@
+package motion;
+
+/**
+ * Limits for a motion profile, in whatever distance unit the profile
+ * uses, normally wheel encoder ticks.
+ */
+public final class MotionConstraints {
+  private final double maxVelocity;
+  private final double maxAcceleration;
+  private final double maxJerk;
+
+  /**
+   * A trapezoidal profile, with acceleration switched on and off instantly.
+   */
+  public MotionConstraints(double maxVelocity, double maxAcceleration) {
+    this(maxVelocity, maxAcceleration, 0);
+  }
+
+  /**
+   * @param maxVelocity       Distance per second
+   * @param maxAcceleration   Distance per second^2
+   * @param maxJerk           Distance per second^3, or 0 for a trapezoidal profile
+   */
+  public MotionConstraints(double maxVelocity, double maxAcceleration, double maxJerk) {
+    if (maxVelocity <= 0 || maxAcceleration <= 0 || maxJerk < 0) {
+      throw new IllegalArgumentException("Motion constraints must be positive");
+    }
+    this.maxVelocity = maxVelocity;
+    this.maxAcceleration = maxAcceleration;
+    this.maxJerk = maxJerk;
+  }
+
+  public double getMaxVelocity() {
+    return maxVelocity;
+  }
+
+  public double getMaxAcceleration() {
+    return maxAcceleration;
+  }
+
+  public double getMaxJerk() {
+    return maxJerk;
+  }
+}
@@ -0,0 +1,119 @@
+package motion;
+
+/**
+ * Position, velocity and acceleration set points for a move, worked out
+ * ahead of time at a fixed time step so that following it costs an array
+ * lookup per step. The move starts and ends at rest.
+ * <p>
+ * Without a jerk limit the profile is trapezoidal: full acceleration, cruise
+ * at the maximum velocity (if the move is long enough to reach it) and full
+ * deceleration. With a jerk limit the trapezoidal velocity is smoothed by a
+ * moving average as long as it takes to ramp acceleration up at that jerk,
+ * which gives an S-curve of the same distance that is longer by that time.
+ */
+public final class MotionProfile {
+  private final double dtSeconds;
+  private final double[] position;
+  private final double[] velocity;
+  private final double[] acceleration;
+
+  private MotionProfile(double dtSeconds, double[] position, double[] velocity, double[] acceleration) {
+    this.dtSeconds = dtSeconds;
+    this.position = position;
+    this.velocity = velocity;
+    this.acceleration = acceleration;
+  }
+
+  /**
+   * @param distance      How far to move; negative moves backwards
+   * @param constraints   Limits on the move
+   * @param dtSeconds     Time between set points, normally the control loop period
+   */
+  public static MotionProfile generate(double distance, MotionConstraints constraints, double dtSeconds) {
+    double sign = Math.signum(distance);
+    double length = Math.abs(distance);
+    double maxAcceleration = constraints.getMaxAcceleration();
+    double peakVelocity = Math.min(constraints.getMaxVelocity(), Math.sqrt(length * maxAcceleration));
+    double accelerationSeconds = peakVelocity / maxAcceleration;
+    double cruiseSeconds = peakVelocity > 0
+        ? (length - peakVelocity * accelerationSeconds) / peakVelocity
+        : 0;
+    double totalSeconds = 2 * accelerationSeconds + cruiseSeconds;
+    int smoothingSteps = constraints.getMaxJerk() > 0
+        ? (int)Math.round(maxAcceleration / constraints.getMaxJerk() / dtSeconds)
+        : 0;
+    int trapezoidSteps = (int)Math.ceil(totalSeconds / dtSeconds);
+    int steps = trapezoidSteps + smoothingSteps + 1;
+
+    // Trapezoidal velocity at each step
+    double[] trapezoid = new double[steps];
+    for (int i = 0; i <= trapezoidSteps; i++) {
+      double t = Math.min(i * dtSeconds, totalSeconds);
+      if (t < accelerationSeconds) {
+        trapezoid[i] = maxAcceleration * t;
+      } else if (t < accelerationSeconds + cruiseSeconds) {
+        trapezoid[i] = peakVelocity;
+      } else {
+        trapezoid[i] = Math.max(0, maxAcceleration * (totalSeconds - t));
+      }
+    }
+
+    // Smooth into an S-curve with a running sum over the window
+    double[] velocity = new double[steps];
+    double windowSum = 0;
+    for (int i = 0; i < steps; i++) {
+      windowSum += trapezoid[i];
+      if (i > smoothingSteps) {
+        windowSum -= trapezoid[i - smoothingSteps - 1];
+      }
+      velocity[i] = windowSum / (smoothingSteps + 1);
+    }
+
+    // Integrate, then scale away the discretization error so the move ends exactly at the distance
+    double[] position = new double[steps];
+    for (int i = 1; i < steps; i++) {
+      position[i] = position[i - 1] + (velocity[i - 1] + velocity[i]) * dtSeconds / 2;
+    }
+    double scale = position[steps - 1] > 0 ? length / position[steps - 1] : 0;
+    double[] acceleration = new double[steps];
+    for (int i = 0; i < steps; i++) {
+      position[i] *= scale * sign;
+      velocity[i] *= scale * sign;
+      if (i > 0) {
+        acceleration[i - 1] = (velocity[i] - velocity[i - 1]) / dtSeconds;
+      }
+    }
+    return new MotionProfile(dtSeconds, position, velocity, acceleration);
+  }
+
+  /**
+   * @return  Number of set points; the last is the end of the move, at rest.
+   */
+  public int getLength() {
+    return position.length;
+  }
+
+  public double getDtSeconds() {
+    return dtSeconds;
+  }
+
+  public double getDurationSeconds() {
+    return (position.length - 1) * dtSeconds;
+  }
+
+  public double getPosition(int step) {
+    return position[step];
+  }
+
+  public double getVelocity(int step) {
+    return velocity[step];
+  }
+
+  public double getAcceleration(int step) {
+    return acceleration[step];
+  }
+
+  public double getDistance() {
+    return position[position.length - 1];
+  }
+}
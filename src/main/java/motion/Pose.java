@@ -0,0 +1,40 @@
+package motion;
+
+/**
+ * An immutable position and heading of the robot on the field. The robot
+ * starts at the origin facing along x, and a positive heading is counter
+ * clockwise.
+ */
+public final class Pose {
+  public static final Pose ORIGIN = new Pose(0, 0, 0);
+
+  private final double xMeters;
+  private final double yMeters;
+  private final double headingRadians;
+
+  public Pose(double xMeters, double yMeters, double headingRadians) {
+    this.xMeters = xMeters;
+    this.yMeters = yMeters;
+    this.headingRadians = headingRadians;
+  }
+
+  public double getXMeters() {
+    return xMeters;
+  }
+
+  public double getYMeters() {
+    return yMeters;
+  }
+
+  /**
+   * @return  Heading in radians, not wrapped, so whole turns add up.
+   */
+  public double getHeadingRadians() {
+    return headingRadians;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("(%.3fm, %.3fm, %.1fdeg)", xMeters, yMeters, Math.toDegrees(headingRadians));
+  }
+}
@@ -0,0 +1,61 @@
+package motion;
+
+/**
+ * Gains for following a motion profile on one wheel. Distances are in
+ * encoder ticks and the output is a drive percentage from -100 to 100.
+ */
+public final class ProfileGains {
+  private final double kS;
+  private final double kV;
+  private final double kA;
+  private final double kP;
+
+  /**
+   * @param kS  Percent needed to overcome static friction, applied in the direction of the profile velocity
+   * @param kV  Percent per tick/s of profile velocity
+   * @param kA  Percent per tick/s^2 of profile acceleration
+   * @param kP  Percent per tick of position error
+   */
+  public ProfileGains(double kS, double kV, double kA, double kP) {
+    this.kS = kS;
+    this.kV = kV;
+    this.kA = kA;
+    this.kP = kP;
+  }
+
+  /**
+   * Gains for the 120rpm Parallax 900-00360 on the learning bot's trim,
+   * where full drive is about 720 ticks/s and the servo does not move
+   * below about 9%.
+   */
+  public static ProfileGains parallax360HighSpeed() {
+    return new ProfileGains(9, 0.126, 0.01, 0.5);
+  }
+
+  public double getKS() {
+    return kS;
+  }
+
+  public double getKV() {
+    return kV;
+  }
+
+  public double getKA() {
+    return kA;
+  }
+
+  public double getKP() {
+    return kP;
+  }
+
+  /**
+   * @param velocity        Profile velocity in ticks/s
+   * @param acceleration    Profile acceleration in ticks/s^2
+   * @param positionError   Profile position less the measured position, in ticks
+   * @return  Drive percentage, clamped to -100 to 100.
+   */
+  public double calculate(double velocity, double acceleration, double positionError) {
+    double pct = kS * Math.signum(velocity) + kV * velocity + kA * acceleration + kP * positionError;
+    return Math.max(-100, Math.min(100, pct));
+  }
+}
@@ -0,0 +1,126 @@
+package motion;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A path with the speed to drive along it, worked out ahead of time at a
+ * fixed time step. Each step holds where the robot should be, which way it
+ * should face, how fast it should be going and how sharply the path turns,
+ * in parallel arrays so that following it is an index into each.
+ */
+public final class Trajectory {
+  // dt and the step count, then x, y, heading, velocity and curvature per step
+  private static final int HEADER_BYTES = 8 + 4;
+  private static final int STEP_BYTES = 5 * 8;
+
+  private final double dtSeconds;
+  private final double[] x;
+  private final double[] y;
+  private final double[] heading;
+  private final double[] velocity;
+  private final double[] curvature;
+
+  /**
+   * @param dtSeconds   Time between steps
+   * @param x           Meters along x at each step
+   * @param y           Meters along y at each step
+   * @param heading     Radians counter clockwise from x at each step
+   * @param velocity    Meters per second at each step
+   * @param curvature   Radians turned per meter driven at each step
+   */
+  Trajectory(double dtSeconds, double[] x, double[] y, double[] heading, double[] velocity, double[] curvature) {
+    this.dtSeconds = dtSeconds;
+    this.x = x;
+    this.y = y;
+    this.heading = heading;
+    this.velocity = velocity;
+    this.curvature = curvature;
+  }
+
+  public int getLength() {
+    return x.length;
+  }
+
+  public double getDtSeconds() {
+    return dtSeconds;
+  }
+
+  public double getDurationSeconds() {
+    return (x.length - 1) * dtSeconds;
+  }
+
+  public double getX(int step) {
+    return x[step];
+  }
+
+  public double getY(int step) {
+    return y[step];
+  }
+
+  public double getHeading(int step) {
+    return heading[step];
+  }
+
+  public double getVelocity(int step) {
+    return velocity[step];
+  }
+
+  public double getCurvature(int step) {
+    return curvature[step];
+  }
+
+  /**
+   * @return  Radians per second the robot should be turning at a step.
+   */
+  public double getAngularVelocity(int step) {
+    return velocity[step] * curvature[step];
+  }
+
+  /**
+   * Write the steps, big endian: dt in seconds, the step count, then x, y,
+   * heading, velocity and curvature of each step.
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeDouble(dtSeconds);
+    out.writeInt(x.length);
+    for (int i = 0; i < x.length; i++) {
+      out.writeDouble(x[i]);
+      out.writeDouble(y[i]);
+      out.writeDouble(heading[i]);
+      out.writeDouble(velocity[i]);
+      out.writeDouble(curvature[i]);
+    }
+  }
+
+  /**
+   * Read steps written by write().
+   * 
+   * @param availableBytes   Bytes left in the stream, so a corrupt step count
+   *                         fails here instead of allocating for it
+   */
+  static Trajectory read(DataInputStream in, long availableBytes) throws IOException {
+    double dtSeconds = in.readDouble();
+    int length = in.readInt();
+    if (length <= 0) {
+      throw new IOException("Trajectory has no steps");
+    }
+    if (length > (availableBytes - HEADER_BYTES) / STEP_BYTES) {
+      throw new IOException("Trajectory has " + length + " steps but only " + availableBytes + " bytes");
+    }
+    double[] x = new double[length];
+    double[] y = new double[length];
+    double[] heading = new double[length];
+    double[] velocity = new double[length];
+    double[] curvature = new double[length];
+    for (int i = 0; i < length; i++) {
+      x[i] = in.readDouble();
+      y[i] = in.readDouble();
+      heading[i] = in.readDouble();
+      velocity[i] = in.readDouble();
+      curvature[i] = in.readDouble();
+    }
+    return new Trajectory(dtSeconds, x, y, heading, velocity, curvature);
+  }
+}
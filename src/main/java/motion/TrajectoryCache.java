@@ -0,0 +1,135 @@
+package motion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Keeps generated trajectories in a directory so the robot program does not
+ * work them out again every time it starts. Each trajectory is stored in a
+ * file named after a hash of everything it was generated from, so changing
+ * a waypoint or a limit generates a new one. A file starts with MAGIC,
+ * VERSION and the hash, then the trajectory, all big endian. Bump VERSION
+ * whenever TrajectoryGenerator changes, to throw away what it made before.
+ * <p>
+ * If a cached file cannot be read, or the cache cannot be written, the
+ * problem is logged and the trajectory is generated as if there were no cache.
+ */
+public class TrajectoryCache {
+  public static final int MAGIC = 0x5452414A;   // "TRAJ"
+  public static final short VERSION = 1;
+
+  private static final int HEADER_BYTES = 4 + 2 + 8;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File directory;
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * @param directory   Where to keep trajectories; created when first needed
+   */
+  public TrajectoryCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Load a trajectory from the cache, or generate and cache it.
+   * Takes the same arguments as TrajectoryGenerator.generate().
+   */
+  public synchronized Trajectory get(List<Pose> waypoints, 
+      MotionConstraints constraints, 
+      DriveGeometry geometry, 
+      double dtSeconds) {
+    long key = key(waypoints, constraints, geometry, dtSeconds);
+    File file = new File(directory, String.format("trajectory-%016x.bin", key));
+    if (file.isFile()) {
+      try {
+        Trajectory trajectory = read(file, key);
+        hitCount++;
+        return trajectory;
+      } catch (IOException e) {
+        Logger.warn("Could not read cached trajectory " + file + ", generating it again: " + e.getMessage());
+      }
+    }
+    missCount++;
+    Trajectory trajectory = TrajectoryGenerator.generate(waypoints, constraints, geometry, dtSeconds);
+    try {
+      write(file, key, trajectory);
+    } catch (IOException e) {
+      Logger.warn("Could not cache trajectory " + file + ": " + e.getMessage());
+    }
+    return trajectory;
+  }
+
+  /**
+   * @return  Number of trajectories loaded from the cache rather than generated.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  private static Trajectory read(File file, long key) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a trajectory file");
+      }
+      if (in.readShort() != VERSION) {
+        throw new IOException("Trajectory file is from another version");
+      }
+      if (in.readLong() != key) {
+        throw new IOException("Trajectory file is for another path");
+      }
+      return Trajectory.read(in, file.length() - HEADER_BYTES);
+    }
+  }
+
+  private void write(File file, long key, Trajectory trajectory) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create " + directory);
+    }
+    // Write to the side and rename, so a half written file is never read back
+    File partial = new File(directory, file.getName() + ".partial");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial), BUFFER_SIZE))) {
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeLong(key);
+      trajectory.write(out);
+    }
+    if (!partial.renameTo(file)) {
+      partial.delete();
+      throw new IOException("Could not rename " + partial);
+    }
+  }
+
+  private static long key(List<Pose> waypoints, MotionConstraints constraints, DriveGeometry geometry, double dtSeconds) {
+    long hash = mix(0xcbf29ce484222325L, VERSION);
+    for (Pose waypoint : waypoints) {
+      hash = mix(hash, Double.doubleToLongBits(waypoint.getXMeters()));
+      hash = mix(hash, Double.doubleToLongBits(waypoint.getYMeters()));
+      hash = mix(hash, Double.doubleToLongBits(waypoint.getHeadingRadians()));
+    }
+    hash = mix(hash, Double.doubleToLongBits(constraints.getMaxVelocity()));
+    hash = mix(hash, Double.doubleToLongBits(constraints.getMaxAcceleration()));
+    hash = mix(hash, Double.doubleToLongBits(geometry.getTrackWidthMeters()));
+    return mix(hash, Double.doubleToLongBits(dtSeconds));
+  }
+
+  private static long mix(long hash, long value) {
+    hash ^= value;
+    hash *= 0x100000001b3L;
+    return hash ^ (hash >>> 29);
+  }
+}
@@ -0,0 +1,145 @@
+package motion;
+
+import java.util.List;
+
+/**
+ * Works out a trajectory through a list of waypoints. Each pair of waypoints
+ * is joined by a cubic Hermite spline that leaves the first along its heading
+ * and arrives at the second along its heading. The spline is sampled finely,
+ * then the fastest speed at each sample is found within the velocity limit,
+ * slowed on bends so the outer wheel stays within it, and within the
+ * acceleration limit both speeding up from the start and slowing down for
+ * the end. Finally the samples are timed and resampled at a fixed step.
+ */
+public final class TrajectoryGenerator {
+  private static final double SAMPLE_SPACING_METERS = 0.005;
+  private static final int MIN_SAMPLES_PER_SEGMENT = 20;
+
+  private TrajectoryGenerator() {
+  }
+
+  /**
+   * @param waypoints     Poses to pass through in order, at least two; the robot drives forward
+   * @param constraints   Velocity in m/s and acceleration in m/s^2; jerk is not limited
+   * @param geometry      Track width of the robot, for slowing down on bends
+   * @param dtSeconds     Time between steps, normally the scheduler period
+   */
+  public static Trajectory generate(List<Pose> waypoints, 
+      MotionConstraints constraints, 
+      DriveGeometry geometry, 
+      double dtSeconds) {
+    if (waypoints.size() < 2) {
+      throw new IllegalArgumentException("A trajectory needs at least two waypoints");
+    }
+
+    // Sample the splines
+    int[] segmentSamples = new int[waypoints.size() - 1];
+    int count = 1;
+    for (int i = 0; i < segmentSamples.length; i++) {
+      double chord = chord(waypoints.get(i), waypoints.get(i + 1));
+      if (chord == 0) {
+        throw new IllegalArgumentException("Waypoints " + i + " and " + (i + 1) + " are in the same place");
+      }
+      segmentSamples[i] = Math.max(MIN_SAMPLES_PER_SEGMENT, (int)Math.ceil(chord / SAMPLE_SPACING_METERS));
+      count += segmentSamples[i];
+    }
+    double[] x = new double[count];
+    double[] y = new double[count];
+    double[] heading = new double[count];
+    double[] curvature = new double[count];
+    double[] arcLength = new double[count];
+    int sample = 0;
+    double lastHeading = waypoints.get(0).getHeadingRadians();
+    for (int i = 0; i < segmentSamples.length; i++) {
+      Pose start = waypoints.get(i);
+      Pose end = waypoints.get(i + 1);
+      double chord = chord(start, end);
+      double startTangentX = chord * Math.cos(start.getHeadingRadians());
+      double startTangentY = chord * Math.sin(start.getHeadingRadians());
+      double endTangentX = chord * Math.cos(end.getHeadingRadians());
+      double endTangentY = chord * Math.sin(end.getHeadingRadians());
+      // Each segment starts where the last ended, so only the first includes its start
+      for (int j = (i == 0 ? 0 : 1); j <= segmentSamples[i]; j++) {
+        double t = (double)j / segmentSamples[i];
+        double t2 = t * t;
+        double t3 = t2 * t;
+        x[sample] = (2 * t3 - 3 * t2 + 1) * start.getXMeters() + (t3 - 2 * t2 + t) * startTangentX 
+            + (-2 * t3 + 3 * t2) * end.getXMeters() + (t3 - t2) * endTangentX;
+        y[sample] = (2 * t3 - 3 * t2 + 1) * start.getYMeters() + (t3 - 2 * t2 + t) * startTangentY 
+            + (-2 * t3 + 3 * t2) * end.getYMeters() + (t3 - t2) * endTangentY;
+        double dx = (6 * t2 - 6 * t) * start.getXMeters() + (3 * t2 - 4 * t + 1) * startTangentX 
+            + (-6 * t2 + 6 * t) * end.getXMeters() + (3 * t2 - 2 * t) * endTangentX;
+        double dy = (6 * t2 - 6 * t) * start.getYMeters() + (3 * t2 - 4 * t + 1) * startTangentY 
+            + (-6 * t2 + 6 * t) * end.getYMeters() + (3 * t2 - 2 * t) * endTangentY;
+        double ddx = (12 * t - 6) * start.getXMeters() + (6 * t - 4) * startTangentX 
+            + (-12 * t + 6) * end.getXMeters() + (6 * t - 2) * endTangentX;
+        double ddy = (12 * t - 6) * start.getYMeters() + (6 * t - 4) * startTangentY 
+            + (-12 * t + 6) * end.getYMeters() + (6 * t - 2) * endTangentY;
+        // Keep the heading continuous rather than wrapped, so it matches odometry
+        lastHeading += wrap(Math.atan2(dy, dx) - lastHeading);
+        heading[sample] = lastHeading;
+        curvature[sample] = (dx * ddy - dy * ddx) / Math.pow(dx * dx + dy * dy, 1.5);
+        if (sample > 0) {
+          arcLength[sample] = arcLength[sample - 1] + Math.hypot(x[sample] - x[sample - 1], y[sample] - y[sample - 1]);
+        }
+        sample++;
+      }
+    }
+
+    // Fastest speed at each sample
+    double maxVelocity = constraints.getMaxVelocity();
+    double maxAcceleration = constraints.getMaxAcceleration();
+    double halfTrack = geometry.getTrackWidthMeters() / 2;
+    double[] velocity = new double[count];
+    for (int i = 1; i < count; i++) {
+      double distance = arcLength[i] - arcLength[i - 1];
+      double bendVelocity = maxVelocity / (1 + Math.abs(curvature[i]) * halfTrack);
+      velocity[i] = Math.min(bendVelocity, Math.sqrt(velocity[i - 1] * velocity[i - 1] + 2 * maxAcceleration * distance));
+    }
+    velocity[count - 1] = 0;
+    for (int i = count - 2; i > 0; i--) {
+      double distance = arcLength[i + 1] - arcLength[i];
+      velocity[i] = Math.min(velocity[i], Math.sqrt(velocity[i + 1] * velocity[i + 1] + 2 * maxAcceleration * distance));
+    }
+
+    // Time each sample, then resample at the time step
+    double[] time = new double[count];
+    for (int i = 1; i < count; i++) {
+      double averageVelocity = (velocity[i - 1] + velocity[i]) / 2;
+      double distance = arcLength[i] - arcLength[i - 1];
+      time[i] = time[i - 1] + (averageVelocity > 0 ? distance / averageVelocity : 0);
+    }
+    int steps = (int)Math.ceil(time[count - 1] / dtSeconds) + 1;
+    double[] stepX = new double[steps];
+    double[] stepY = new double[steps];
+    double[] stepHeading = new double[steps];
+    double[] stepVelocity = new double[steps];
+    double[] stepCurvature = new double[steps];
+    int j = 0;
+    for (int i = 0; i < steps; i++) {
+      double t = Math.min(i * dtSeconds, time[count - 1]);
+      while (j < count - 2 && time[j + 1] < t) {
+        j++;
+      }
+      double span = time[j + 1] - time[j];
+      double f = span > 0 ? Math.min(1, (t - time[j]) / span) : 1;
+      stepX[i] = x[j] + (x[j + 1] - x[j]) * f;
+      stepY[i] = y[j] + (y[j + 1] - y[j]) * f;
+      stepHeading[i] = heading[j] + (heading[j + 1] - heading[j]) * f;
+      stepVelocity[i] = velocity[j] + (velocity[j + 1] - velocity[j]) * f;
+      stepCurvature[i] = curvature[j] + (curvature[j + 1] - curvature[j]) * f;
+    }
+    return new Trajectory(dtSeconds, stepX, stepY, stepHeading, stepVelocity, stepCurvature);
+  }
+
+  private static double chord(Pose start, Pose end) {
+    return Math.hypot(end.getXMeters() - start.getXMeters(), end.getYMeters() - start.getYMeters());
+  }
+
+  /**
+   * @return  The angle brought within -pi to pi.
+   */
+  static double wrap(double radians) {
+    return radians - 2 * Math.PI * Math.floor((radians + Math.PI) / (2 * Math.PI));
+  }
+}
@@ -0,0 +1,64 @@
+package oi;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Turns a raw gamepad axis into a drive percentage through a response
+ * curve. The curve is any chain of stages, such as deadband(0.05).andThen(expo(0.3)),
+ * and is worked out once for every axis value the table resolves, so shaping
+ * an axis is a single array lookup however many stages there are.
+ */
+public class AxisShaper {
+  private static final int HALF_RESOLUTION = 1000;
+
+  private final byte[] table = new byte[2 * HALF_RESOLUTION + 1];
+
+  /**
+   * @param curve   Maps an axis value from -1 to 1 to a value from -1 to 1
+   */
+  public AxisShaper(DoubleUnaryOperator curve) {
+    for (int i = 0; i < table.length; i++) {
+      double shaped = curve.applyAsDouble((double)(i - HALF_RESOLUTION) / HALF_RESOLUTION);
+      table[i] = (byte)Math.max(-100, Math.min(100, Math.round(shaped * 100)));
+    }
+  }
+
+  /**
+   * Zero near the middle of the axis. The rest of the axis is stretched
+   * to start from zero at the edge of the deadband, so there is no jump.
+   * @param width   Distance either side of the middle that reads as zero
+   */
+  public static DoubleUnaryOperator deadband(double width) {
+    return value -> {
+      if (Math.abs(value) < width) {
+        return 0;
+      }
+      return Math.signum(value) * (Math.abs(value) - width) / (1 - width);
+    };
+  }
+
+  /**
+   * Soften the middle of the axis for finer control at low speed,
+   * blending a straight line with a cube.
+   * @param expo  0 leaves the axis linear and 1 is a pure cube
+   */
+  public static DoubleUnaryOperator expo(double expo) {
+    return value -> (1 - expo) * value + expo * value * value * value;
+  }
+
+  /**
+   * @param axis  Raw axis value from -1 to 1
+   * @return  Drive percentage from -100 to 100.
+   */
+  public int shape(float axis) {
+    if (Float.isNaN(axis)) {
+      return table[HALF_RESOLUTION];
+    }
+    if (axis < -1) {
+      axis = -1;
+    } else if (axis > 1) {
+      axis = 1;
+    }
+    return table[Math.round((axis + 1) * HALF_RESOLUTION)];
+  }
+}
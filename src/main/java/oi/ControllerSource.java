@@ -0,0 +1,37 @@
+package oi;
+
+import java.io.Closeable;
+
+import net.java.games.input.Controller;
+
+/**
+ * Where GamepadDiscovery gets its controllers from. Enumerating opens
+ * every input device, so it is only done again when the cheap device
+ * generation check says something was plugged in or pulled out.
+ */
+public interface ControllerSource extends Closeable {
+  /**
+   * Called on every scan, so it must not open any device.
+   * @return  A number that changes whenever an input device is plugged in or pulled out.
+   */
+  long getDeviceGeneration();
+
+  /**
+   * List the controllers plugged in now, releasing the devices opened
+   * by the enumeration before.
+   */
+  Controller[] enumerate();
+
+  /**
+   * Name the USB port a controller is plugged into. Unlike its position in
+   * the enumeration, it stays the same when other controllers come and go.
+   * @return  The port, or null if it cannot be told.
+   */
+  String identify(Controller controller);
+
+  /**
+   * Release the devices opened by the last enumeration.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,87 @@
+package oi;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The gamepad to wheel pipeline that every drive command shares: each axis
+ * goes through an AxisShaper, arcade style commands mix throttle and turn
+ * with a DriveMixer, and each wheel goes through a SlewRateLimiter. Every
+ * stage is a table lookup or a compare. A drive command keeps its own
+ * shaper, as the slew rate limiters remember the last tick.
+ */
+public class DriveInputShaper {
+  public static final double DEFAULT_DEADBAND = 0.05;
+  public static final double DEFAULT_EXPO = 0.2;
+  public static final int DEFAULT_MAX_CHANGE_PCT = 10;   // full speed from a stop in 0.2s at 50Hz
+
+  private final AxisShaper axisShaper;
+  private final DriveMixer mixer;
+  private final SlewRateLimiter leftWheelLimiter;
+  private final SlewRateLimiter rightWheelLimiter;
+  private int leftWheelPct;
+  private int rightWheelPct;
+
+  /**
+   * @param curve           Response curve applied to every axis
+   * @param mode            How arcade style commands mix throttle and turn
+   * @param maxChangePct    Largest change in either wheel percentage per tick
+   */
+  public DriveInputShaper(DoubleUnaryOperator curve, DriveMixer.Mode mode, int maxChangePct) {
+    this.axisShaper = new AxisShaper(curve);
+    this.mixer = new DriveMixer(mode);
+    this.leftWheelLimiter = new SlewRateLimiter(maxChangePct);
+    this.rightWheelLimiter = new SlewRateLimiter(maxChangePct);
+  }
+
+  /**
+   * The default deadband, expo and slew rate.
+   * @param mode  How arcade style commands mix throttle and turn
+   */
+  public static DriveInputShaper standard(DriveMixer.Mode mode) {
+    return new DriveInputShaper(
+        AxisShaper.deadband(DEFAULT_DEADBAND).andThen(AxisShaper.expo(DEFAULT_EXPO)), 
+        mode, 
+        DEFAULT_MAX_CHANGE_PCT);
+  }
+
+  /**
+   * Shape a throttle and turn axis into wheel percentages.
+   * @param throttleAxis  Raw axis, positive to drive forward
+   * @param turnAxis      Raw axis, positive to turn right
+   */
+  public void arcade(float throttleAxis, float turnAxis) {
+    int throttlePct = axisShaper.shape(throttleAxis);
+    int turnPct = axisShaper.shape(turnAxis);
+    leftWheelPct = leftWheelLimiter.calculate(mixer.getLeftWheelPct(throttlePct, turnPct));
+    rightWheelPct = rightWheelLimiter.calculate(mixer.getRightWheelPct(throttlePct, turnPct));
+  }
+
+  /**
+   * Shape an axis per wheel into wheel percentages.
+   */
+  public void tank(float leftAxis, float rightAxis) {
+    leftWheelPct = leftWheelLimiter.calculate(axisShaper.shape(leftAxis));
+    rightWheelPct = rightWheelLimiter.calculate(axisShaper.shape(rightAxis));
+  }
+
+  /**
+   * Start the slew rate limiters from a standstill.
+   */
+  public void reset() {
+    leftWheelLimiter.reset(0);
+    rightWheelLimiter.reset(0);
+    leftWheelPct = 0;
+    rightWheelPct = 0;
+  }
+
+  /**
+   * @return  Left wheel percentage from the last arcade() or tank() call.
+   */
+  public int getLeftWheelPct() {
+    return leftWheelPct;
+  }
+
+  public int getRightWheelPct() {
+    return rightWheelPct;
+  }
+}
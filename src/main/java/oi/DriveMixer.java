@@ -0,0 +1,78 @@
+package oi;
+
+/**
+ * Mixes a throttle and a turn percentage into left and right wheel
+ * percentages. Both wheels are scaled down together when either would go
+ * past 100%, so a hard turn at full throttle keeps its shape instead of
+ * being clipped. Every combination of whole percentages is worked out
+ * up front, so mixing is an array lookup.
+ * <p>
+ * A positive turn steers to the right, whether driving forward, backward
+ * or spinning in place.
+ */
+public class DriveMixer {
+  public enum Mode {
+    /**
+     * The turn is added to one wheel and taken from the other, so the
+     * turn rate is the same at any speed.
+     */
+    ARCADE,
+    /**
+     * The turn is scaled by the throttle, so the turn sets how tight the
+     * curve is rather than how fast the robot turns. Near zero throttle
+     * this blends into spinning in place.
+     */
+    CURVATURE
+  }
+
+  // Below this throttle curvature mixing blends into spinning in place
+  private static final int quickTurnPct = 20;
+
+  private final Mode mode;
+  private final byte[] leftTable = new byte[201 * 201];
+  private final byte[] rightTable = new byte[201 * 201];
+
+  public DriveMixer(Mode mode) {
+    this.mode = mode;
+    for (int throttle = -100; throttle <= 100; throttle++) {
+      for (int turn = -100; turn <= 100; turn++) {
+        double mixedTurn = turn;
+        if (mode == Mode.CURVATURE) {
+          double curvatureTurn = turn * Math.abs(throttle) / 100.0;
+          double blend = Math.min(1, Math.abs(throttle) / (double)quickTurnPct);
+          mixedTurn = (1 - blend) * turn + blend * curvatureTurn;
+        }
+        double left = throttle + mixedTurn;
+        double right = throttle - mixedTurn;
+        double max = Math.max(Math.abs(left), Math.abs(right));
+        if (max > 100) {
+          left = left * 100 / max;
+          right = right * 100 / max;
+        }
+        int index = index(throttle, turn);
+        leftTable[index] = (byte)Math.round(left);
+        rightTable[index] = (byte)Math.round(right);
+      }
+    }
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * @param throttlePct   Forward percentage from -100 to 100
+   * @param turnPct       Turn percentage from -100 to 100, positive to the right
+   */
+  public int getLeftWheelPct(int throttlePct, int turnPct) {
+    return leftTable[index(throttlePct, turnPct)];
+  }
+
+  public int getRightWheelPct(int throttlePct, int turnPct) {
+    return rightTable[index(throttlePct, turnPct)];
+  }
+
+  private static int index(int throttlePct, int turnPct) {
+    return (throttlePct + 100) * 201 + (turnPct + 100);
+  }
+}
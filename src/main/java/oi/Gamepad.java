@@ -0,0 +1,28 @@
+package oi;
+
+/**
+ * The parts of a gamepad that the operator interface reads. Implemented
+ * by JInputJoystick for real controllers.
+ */
+public interface Gamepad {
+  /**
+   * Capture the current state of the controller.
+   * @return  True if the controller is connected/valid, false otherwise.
+   */
+  boolean pollController();
+
+  float getX_LeftJoystick_Value();
+
+  float getY_LeftJoystick_Value();
+
+  float getX_RightJoystick_Value();
+
+  float getY_RightJoystick_Value();
+
+  /**
+   * @return  The first 32 buttons as bits, button 0 in the lowest bit.
+   */
+  default int getButtons() {
+    return 0;
+  }
+}
@@ -0,0 +1,251 @@
+package oi;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.java.games.input.Controller;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * A gamepad that can be plugged in, pulled out and plugged back in while
+ * the robot program runs. A background thread scans for a STICK or GAMEPAD
+ * controller whenever none is connected and swaps it in atomically once it
+ * answers a poll. Polling reads the active controller; when it stops
+ * answering it is dropped and scanning starts again. Until a controller is
+ * found, and while it is gone, every axis reads zero and no button is
+ * pressed, so the robot stops. Neither starting up nor reconnecting ever
+ * waits for device enumeration on the thread that polls. Scans reuse the
+ * last enumeration until the source reports a device was plugged in or
+ * pulled out, or the connected controller stops answering, since a pad
+ * replugged between two generation checks leaves the device list as it was.
+ * <p>
+ * The index picks the first controller only. Once connected, the robot is
+ * bound to the USB port that controller is plugged into and reconnects only
+ * to a controller on that port, so a pad dropping out never hands the robot
+ * the next robot's pad. Discoveries sharing a set of claimed ports also
+ * never connect to a port another robot is bound to. Controllers whose port
+ * cannot be told are picked by index every time.
+ */
+public class GamepadDiscovery implements Gamepad, Closeable {
+  public static final long DEFAULT_SCAN_PERIOD_MS = 1000;
+
+  private final int index;
+  private final ControllerSource source;
+  private final Set<String> claimedPorts;
+  private volatile String port;
+  private Controller[] controllers;
+  private long deviceGeneration;
+  private volatile boolean lostController;
+  private final AtomicReference<JInputJoystick> active = new AtomicReference<>();
+  private JInputJoystick polled;
+  private ScheduledExecutorService discoverer;
+  private volatile long scanCount;
+  private volatile long enumerationCount;
+  private volatile long connectCount;
+  private volatile long disconnectCount;
+
+  /**
+   * @param index   Number of matching controllers to skip, 0 for the first
+   */
+  public GamepadDiscovery(int index) {
+    this(index, ConcurrentHashMap.newKeySet());
+  }
+
+  /**
+   * @param index         Number of matching controllers to skip, 0 for the first
+   * @param claimedPorts  Ports the robots sharing this machine are bound to
+   */
+  public GamepadDiscovery(int index, Set<String> claimedPorts) {
+    this(index, new JInputControllerSource(), claimedPorts);
+  }
+
+  /**
+   * @param index     Number of matching controllers to skip, 0 for the first
+   * @param source    Lists the controllers plugged in
+   */
+  public GamepadDiscovery(int index, ControllerSource source) {
+    this(index, source, ConcurrentHashMap.newKeySet());
+  }
+
+  /**
+   * @param index         Number of matching controllers to skip, 0 for the first
+   * @param source        Lists the controllers plugged in
+   * @param claimedPorts  Ports the robots sharing this machine are bound to
+   */
+  public GamepadDiscovery(int index, ControllerSource source, Set<String> claimedPorts) {
+    this.index = index;
+    this.source = source;
+    this.claimedPorts = claimedPorts;
+  }
+
+  /**
+   * Start scanning on a background thread.
+   * @param scanPeriodMs  Time between scans while no controller is connected
+   */
+  public synchronized void start(long scanPeriodMs) {
+    if (discoverer != null) {
+      return;
+    }
+    discoverer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "GamepadDiscovery");
+      thread.setDaemon(true);
+      return thread;
+    });
+    discoverer.scheduleWithFixedDelay(this::scanSafely, 0, scanPeriodMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (discoverer != null) {
+      discoverer.shutdownNow();
+      discoverer = null;
+    }
+    if (port != null) {
+      claimedPorts.remove(port);
+    }
+    source.close();
+  }
+
+  private void scanSafely() {
+    try {
+      scan();
+    } catch (RuntimeException e) {
+      // Keep scanning; an exception would cancel the schedule
+      Logger.error("Error scanning for gamepads: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Look for a controller if none is connected.
+   * Called by the background thread; only call directly when not started.
+   * @return  True if a controller is connected afterwards.
+   */
+  public synchronized boolean scan() {
+    if (active.get() != null) {
+      return true;
+    }
+    scanCount++;
+    long generation = source.getDeviceGeneration();
+    if (controllers == null || generation != deviceGeneration || lostController) {
+      lostController = false;
+      controllers = source.enumerate();
+      deviceGeneration = generation;
+      enumerationCount++;
+    }
+    String found = null;
+    Controller controller = null;
+    int matches = 0;
+    for (Controller candidate : controllers) {
+      if (candidate.getType() != Controller.Type.STICK && candidate.getType() != Controller.Type.GAMEPAD) {
+        continue;
+      }
+      String candidatePort = source.identify(candidate);
+      if (port != null ? port.equals(candidatePort) : matches++ == index) {
+        found = candidatePort;
+        controller = candidate;
+        break;
+      }
+    }
+    if (controller == null) {
+      return false;
+    }
+    boolean claiming = port == null && found != null;
+    if (claiming && !claimedPorts.add(found)) {
+      // Another robot is bound to it
+      return false;
+    }
+    JInputJoystick joystick = new JInputJoystick(controller);
+    if (!joystick.pollController() || !active.compareAndSet(null, joystick)) {
+      if (claiming) {
+        claimedPorts.remove(found);
+      }
+      return active.get() != null;
+    }
+    if (claiming) {
+      port = found;
+    }
+    connectCount++;
+    Logger.info("Gamepad connected: " + controller.getName() + (found == null ? "" : " on " + found));
+    return true;
+  }
+
+  /**
+   * Poll the active controller, dropping it if it no longer answers.
+   * @return  Always true, so the operator interface publishes zero axes while disconnected.
+   */
+  @Override
+  public boolean pollController() {
+    JInputJoystick joystick = active.get();
+    if (joystick != null && !joystick.pollController()) {
+      if (active.compareAndSet(joystick, null)) {
+        lostController = true;
+        disconnectCount++;
+        Logger.warn("Gamepad disconnected; stopping until it is back.");
+      }
+      joystick = null;
+    }
+    polled = joystick;
+    return true;
+  }
+
+  /**
+   * @return  The USB port this robot reconnects to, or null until a controller on a known port connects.
+   */
+  public String getPort() {
+    return port;
+  }
+
+  public boolean isConnected() {
+    return active.get() != null;
+  }
+
+  @Override
+  public float getX_LeftJoystick_Value() {
+    return polled == null ? 0 : polled.getX_LeftJoystick_Value();
+  }
+
+  @Override
+  public float getY_LeftJoystick_Value() {
+    return polled == null ? 0 : polled.getY_LeftJoystick_Value();
+  }
+
+  @Override
+  public float getX_RightJoystick_Value() {
+    return polled == null ? 0 : polled.getX_RightJoystick_Value();
+  }
+
+  @Override
+  public float getY_RightJoystick_Value() {
+    return polled == null ? 0 : polled.getY_RightJoystick_Value();
+  }
+
+  @Override
+  public int getButtons() {
+    return polled == null ? 0 : polled.getButtons();
+  }
+
+  public long getScanCount() {
+    return scanCount;
+  }
+
+  /**
+   * @return  Number of times the input devices were opened and listed.
+   */
+  public long getEnumerationCount() {
+    return enumerationCount;
+  }
+
+  public long getConnectCount() {
+    return connectCount;
+  }
+
+  public long getDisconnectCount() {
+    return disconnectCount;
+  }
+}
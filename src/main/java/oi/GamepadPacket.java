@@ -0,0 +1,61 @@
+package oi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the UDP packets that carry a gamepad from the driver's laptop
+ * to the robot. Every packet is SIZE bytes, big endian:
+ * <ul>
+ * <li>0: MAGIC (int)</li>
+ * <li>4: VERSION (short)</li>
+ * <li>6: reserved, 0 (short)</li>
+ * <li>8: session, picked at random when the sender starts (int)</li>
+ * <li>12: sequence, one more than the packet before in the session (long)</li>
+ * <li>20: left x, left y, right x, right y, each axis times AXIS_SCALE (shorts)</li>
+ * <li>28: buttons, button 0 in the lowest bit (int)</li>
+ * </ul>
+ */
+public final class GamepadPacket {
+  public static final int MAGIC = 0x47504144;   // "GPAD"
+  public static final short VERSION = 1;
+  public static final int SIZE = 32;
+  public static final int DEFAULT_PORT = 5801;
+
+  static final float AXIS_SCALE = Short.MAX_VALUE;
+
+  private GamepadPacket() {
+  }
+
+  /**
+   * Write one packet at the buffer's position.
+   */
+  public static void encode(ByteBuffer buffer, 
+      int session, 
+      long sequence, 
+      float leftXAxis, 
+      float leftYAxis, 
+      float rightXAxis, 
+      float rightYAxis, 
+      int buttons) {
+    buffer.putInt(MAGIC);
+    buffer.putShort(VERSION);
+    buffer.putShort((short)0);
+    buffer.putInt(session);
+    buffer.putLong(sequence);
+    buffer.putShort(toShort(leftXAxis));
+    buffer.putShort(toShort(leftYAxis));
+    buffer.putShort(toShort(rightXAxis));
+    buffer.putShort(toShort(rightYAxis));
+    buffer.putInt(buttons);
+  }
+
+  private static short toShort(float axis) {
+    if (!(axis >= -1)) {
+      // Below range, or NaN from a controller that went away; NaN becomes 0 below
+      axis = Float.isNaN(axis) ? 0 : -1;
+    } else if (axis > 1) {
+      axis = 1;
+    }
+    return (short)Math.round(axis * AXIS_SCALE);
+  }
+}
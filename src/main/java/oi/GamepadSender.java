@@ -0,0 +1,122 @@
+package oi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.java.games.input.Controller;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Runs on the driver's laptop. Polls a gamepad at a fixed rate and sends
+ * every poll to the robot as a GamepadPacket, whether or not anything
+ * changed, so a lost packet is made good by the next one. Nothing is sent
+ * while the gamepad is disconnected, which lets the robot time out and stop.
+ * 
+ * Arguments: robot host [port, default 5801] [period in ms, default 5]
+ */
+public class GamepadSender implements Closeable {
+  private final Gamepad gamepad;
+  private final DatagramChannel channel;
+  private final InetSocketAddress robot;
+  private final ByteBuffer packet = ByteBuffer.allocateDirect(GamepadPacket.SIZE);
+  private final int session = ThreadLocalRandom.current().nextInt();
+  private long sequence;
+  private ScheduledExecutorService sender;
+
+  /**
+   * @param gamepad   The gamepad to send
+   * @param robot     Address the robot's UdpGamepad listens on
+   */
+  public GamepadSender(Gamepad gamepad, InetSocketAddress robot) throws IOException {
+    this.gamepad = gamepad;
+    this.robot = robot;
+    this.channel = DatagramChannel.open();
+  }
+
+  /**
+   * Send on a background thread from now on.
+   * @param periodMs  Time between packets in milliseconds
+   */
+  public synchronized void start(long periodMs) {
+    if (sender != null) {
+      return;
+    }
+    sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "GamepadSender");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sender.scheduleAtFixedRate(this::sendSafely, 0, periodMs, TimeUnit.MILLISECONDS);
+    Logger.info("Sending gamepad to " + robot + " every " + periodMs + "ms.");
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (sender != null) {
+      sender.shutdownNow();
+      sender = null;
+    }
+    channel.close();
+  }
+
+  private void sendSafely() {
+    try {
+      send();
+    } catch (IOException | RuntimeException e) {
+      // Keep sending; an exception would cancel the schedule
+      Logger.error("Error sending gamepad: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Poll the gamepad and send one packet, unless the gamepad is disconnected.
+   * Called by the background thread; only call directly when not started.
+   * @return  True if a packet was sent.
+   */
+  public boolean send() throws IOException {
+    if (!gamepad.pollController()) {
+      return false;
+    }
+    packet.clear();
+    GamepadPacket.encode(packet, 
+        session, 
+        ++sequence, 
+        gamepad.getX_LeftJoystick_Value(), 
+        gamepad.getY_LeftJoystick_Value(), 
+        gamepad.getX_RightJoystick_Value(), 
+        gamepad.getY_RightJoystick_Value(), 
+        gamepad.getButtons());
+    packet.flip();
+    channel.send(packet, robot);
+    return true;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 1) {
+      System.err.println("Usage: GamepadSender <robot host> [port] [period ms]");
+      System.exit(2);
+    }
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : GamepadPacket.DEFAULT_PORT;
+    long periodMs = args.length > 2 ? Long.parseLong(args[2]) : 5;
+    JInputJoystick gamepad = new JInputJoystick(Controller.Type.STICK, Controller.Type.GAMEPAD);
+    if (!gamepad.isControllerConnected()) {
+      Logger.info("No gamepad controller found!");
+      System.exit(1);
+    }
+    GamepadSender sender = new GamepadSender(gamepad, new InetSocketAddress(args[0], port));
+    sender.start(periodMs);
+    Thread.currentThread().join();
+  }
+}
@@ -0,0 +1,61 @@
+package oi;
+
+/**
+ * An immutable set of gamepad axis values captured by a single poll
+ * of the controller. Commands should read all the axes they need from
+ * one snapshot so that they are consistent with each other.
+ */
+public final class GamepadSnapshot {
+  public static final GamepadSnapshot EMPTY = new GamepadSnapshot(0, 0, 0, 0, 0, 0);
+
+  private final long sequence;
+  private final long timestampNanos;
+  private final float leftXAxis;
+  private final float leftYAxis;
+  private final float rightXAxis;
+  private final float rightYAxis;
+
+  public GamepadSnapshot(long sequence, 
+      long timestampNanos, 
+      float leftXAxis, 
+      float leftYAxis, 
+      float rightXAxis, 
+      float rightYAxis) {
+    this.sequence = sequence;
+    this.timestampNanos = timestampNanos;
+    this.leftXAxis = leftXAxis;
+    this.leftYAxis = leftYAxis;
+    this.rightXAxis = rightXAxis;
+    this.rightYAxis = rightYAxis;
+  }
+
+  /**
+   * @return  Increases by one for each poll of the controller; 0 means never polled.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return  The System.nanoTime() at which the controller was polled.
+   */
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  public float getLeftXAxis() {
+    return leftXAxis;
+  }
+
+  public float getLeftYAxis() {
+    return leftYAxis;
+  }
+
+  public float getRightXAxis() {
+    return rightXAxis;
+  }
+
+  public float getRightYAxis() {
+    return rightYAxis;
+  }
+}
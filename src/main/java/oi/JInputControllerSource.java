@@ -0,0 +1,123 @@
+package oi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import net.java.games.input.Controller;
+import net.java.games.input.ControllerEnvironment;
+import net.java.games.input.LinuxEnvironmentPlugin;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Controllers from JInput. The first enumeration uses JInput's default
+ * environment, which only ever enumerates once. On Linux, a device node
+ * appearing or disappearing under /dev/input opens a fresh
+ * LinuxEnvironmentPlugin and closes the devices of the one before it.
+ * Each plugin also registers a JVM shutdown hook that cannot be removed,
+ * so only a real plug or unplug, never a periodic scan, creates one.
+ * Elsewhere the controllers are enumerated once, so a gamepad has to be
+ * plugged in before the robot program starts. A controller is identified
+ * by its /dev/input/by-path link, which names the USB port, found through
+ * the device node JInput holds open for it.
+ */
+class JInputControllerSource implements ControllerSource {
+  private static final File INPUT_DEVICES = new File("/dev/input");
+  private static final Path DEVICES_BY_PATH = Paths.get("/dev/input/by-path");
+
+  private final boolean linux = System.getProperty("os.name", "").startsWith("Linux");
+  private boolean enumerated;
+  private ControllerEnvironment environment;
+
+  @Override
+  public long getDeviceGeneration() {
+    if (!linux) {
+      return 0;
+    }
+    String[] names = INPUT_DEVICES.list();
+    if (names == null) {
+      return 0;
+    }
+    Arrays.sort(names);
+    return Arrays.hashCode(names);
+  }
+
+  @Override
+  public synchronized Controller[] enumerate() {
+    if (!enumerated) {
+      enumerated = true;
+      return ControllerEnvironment.getDefaultEnvironment().getControllers();
+    }
+    if (!linux) {
+      return ControllerEnvironment.getDefaultEnvironment().getControllers();
+    }
+    close();
+    environment = new LinuxEnvironmentPlugin();
+    return environment.getControllers();
+  }
+
+  @Override
+  public String identify(Controller controller) {
+    if (!linux) {
+      return null;
+    }
+    try {
+      Object device = readField(controller, "device");
+      Path node = Files.readSymbolicLink(Paths.get("/proc/self/fd/" + readField(device, "fd")));
+      try (DirectoryStream<Path> links = Files.newDirectoryStream(DEVICES_BY_PATH)) {
+        for (Path link : links) {
+          if (link.toRealPath().equals(node)) {
+            return link.getFileName().toString();
+          }
+        }
+      }
+    } catch (ReflectiveOperationException | IOException | RuntimeException e) {
+      Logger.debug("Could not tell where " + controller.getName() + " is plugged in: " + e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * JInput keeps the device behind a controller, and its file descriptor,
+   * to itself.
+   */
+  private static Object readField(Object object, String name) throws ReflectiveOperationException {
+    Field field = object.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(object);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (environment != null) {
+      closeDevices(environment);
+      environment = null;
+    }
+  }
+
+  /**
+   * The plugin keeps its open devices to itself until the JVM exits, so
+   * reach in and close them.
+   */
+  private static void closeDevices(ControllerEnvironment environment) {
+    try {
+      Field devicesField = environment.getClass().getDeclaredField("devices");
+      devicesField.setAccessible(true);
+      for (Object device : (List<?>)devicesField.get(environment)) {
+        Method close = device.getClass().getMethod("close");
+        close.setAccessible(true);
+        close.invoke(device);
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      Logger.warn("Could not close input devices: " + e.getMessage());
+    }
+  }
+}
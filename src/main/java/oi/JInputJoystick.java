@@ -1,6 +1,7 @@
 package oi;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import net.java.games.input.Component;
 import net.java.games.input.Component.Identifier;
 import net.java.games.input.Controller;
@@ -31,12 +32,41 @@ import net.java.games.input.ControllerEnvironment;
  * 
  */
 
-public class JInputJoystick {
+public class JInputJoystick implements Gamepad {
+    
+    // Snapshot slots for the axes this class knows about
+    private static final int AXIS_X = 0;
+    private static final int AXIS_Y = 1;
+    private static final int AXIS_Z = 2;
+    private static final int AXIS_RX = 3;
+    private static final int AXIS_RY = 4;
+    private static final int AXIS_RZ = 5;
+    private static final int AXIS_POV = 6;
+    private static final Identifier[] AXIS_IDENTIFIERS = {
+        Component.Identifier.Axis.X,
+        Component.Identifier.Axis.Y,
+        Component.Identifier.Axis.Z,
+        Component.Identifier.Axis.RX,
+        Component.Identifier.Axis.RY,
+        Component.Identifier.Axis.RZ,
+        Component.Identifier.Axis.POV
+    };
     
     private Controller controller;
+    
+    // Component handles, resolved once when the controller is found
+    private Component[] axisComponents;
+    private Component[] buttonComponents;
+    
+    // Right joystick slots depend on STICK vs GAMEPAD, also resolved once
+    private int rightXAxis;
+    private int rightYAxis;
         
-    // Controller buttons states
-    private ArrayList<Boolean> buttonsValues;
+    // Controller state captured by the last pollController()
+    private float[] axisValues;
+    private BitSet buttonsValues;
+    // The first 32 buttons again, so getButtons() does not allocate
+    private int buttonBits;
 
     /**
      * Creates a controller, of type that has been given.
@@ -46,7 +76,7 @@ public class JInputJoystick {
     public JInputJoystick(Controller.Type controllerType)
     {
         initialize();
-        initController(controllerType, null);
+        initController(0, controllerType, null);
     }
     
     /**
@@ -57,43 +87,132 @@ public class JInputJoystick {
      * @param controllerType_2 Desired controller type.
      */
     public JInputJoystick(Controller.Type controllerType_1, Controller.Type controllerType_2)
+    {
+        this(0, controllerType_1, controllerType_2);
+    }
+    
+    /**
+     * Creates a controller, of one of the types that has been given,
+     * skipping the ones of those types that were found before it.
+     * Used when several gamepads are plugged into one computer.
+     * 
+     * @param index Number of matching controllers to skip, 0 for the first.
+     * @param controllerType_1 Desired controller type.
+     * @param controllerType_2 Desired controller type.
+     */
+    public JInputJoystick(int index, Controller.Type controllerType_1, Controller.Type controllerType_2)
+    {
+        initialize();
+        initController(index, controllerType_1, controllerType_2);
+    }
+    
+    /**
+     * Wraps a controller that has already been found.
+     * 
+     * @param controller The controller to read.
+     */
+    public JInputJoystick(Controller controller)
     {
         initialize();
-        initController(controllerType_1, controllerType_2);
+        this.controller = controller;
+        resolveComponents();
     }
     
     private void initialize()
     {
         this.controller = null;
-        this.buttonsValues = new ArrayList<Boolean>();
+        this.axisComponents = new Component[AXIS_IDENTIFIERS.length];
+        this.buttonComponents = new Component[0];
+        this.axisValues = new float[AXIS_IDENTIFIERS.length];
+        this.buttonsValues = new BitSet();
+        this.rightXAxis = AXIS_RX;
+        this.rightYAxis = AXIS_RY;
     }
     
     /**
-     * Save first founded controller of given type.
+     * Save the index-th founded controller of given type.
      * 
+     * @param index Number of matching controllers to skip.
      * @param controllerType Desired controller type.
      */
-    private void initController(Controller.Type controllerType_1, Controller.Type controllerType_2)
+    private void initController(int index, Controller.Type controllerType_1, Controller.Type controllerType_2)
     {
         Controller[] controllers = ControllerEnvironment.getDefaultEnvironment().getControllers();
         
-        for(int i=0; i < controllers.length && controller == null; i++) {
+        controller = findController(controllers, index, controllerType_1, controllerType_2);
+        
+        if(controller != null)
+            resolveComponents();
+    }
+    
+    /**
+     * Find the index-th controller of given type.
+     * 
+     * @param controllers Controllers to look through.
+     * @param index Number of matching controllers to skip.
+     * @param controllerType_1 Desired controller type.
+     * @param controllerType_2 Desired controller type.
+     * @return The controller, or null if there are not enough of them.
+     */
+    public static Controller findController(Controller[] controllers, int index, Controller.Type controllerType_1, Controller.Type controllerType_2)
+    {
+        int matches = 0;
+        for(int i=0; i < controllers.length; i++) {
             if(
                controllers[i].getType() == controllerType_1 ||
                controllers[i].getType() == controllerType_2
               )
             {
-                controller = controllers[i];
-                break;
+                if(matches++ == index)
+                    return controllers[i];
             }
         }
+        return null;
+    }
+    
+    /**
+     * Look up the component handles and the right joystick mapping of the
+     * current controller so that polling and the axis getters never have to
+     * search the component list or check the controller type again.
+     */
+    private void resolveComponents()
+    {
+        for(int i=0; i < AXIS_IDENTIFIERS.length; i++) {
+            axisComponents[i] = controller.getComponent(AXIS_IDENTIFIERS[i]);
+            axisValues[i] = 0.0f;
+        }
+        
+        ArrayList<Component> buttons = new ArrayList<Component>();
+        Component[] components = controller.getComponents();
+        for(int i=0; i < components.length; i++) {
+            Component component = components[i];
+            
+            // 2nd or clause is a hack to accomodate OSX...getName() does not return the name of the class...figures
+            if(component.getName().contains("Button") || component.getIdentifier().getClass().toString().contains("Button"))
+                buttons.add(component);
+        }
+        buttonComponents = buttons.toArray(new Component[buttons.size()]);
+        buttonsValues = new BitSet(buttonComponents.length);
+        
+        // stick type controller
+        if(controller.getType() == Controller.Type.STICK)
+        {
+            rightXAxis = AXIS_Z;
+            rightYAxis = AXIS_RZ;
+        }
+        // gamepad type controller
+        else
+        {
+            rightXAxis = AXIS_RX;
+            rightYAxis = AXIS_RY;
+        }
     }
         
     /**
      * Checks if the controller is connected/valid.
      * It also poll the controller for data, but it doesn't save states
-     * of the buttons into buttons array list that is used by getButtonsValues() 
-     * and getButtonValue(int index) methods.
+     * of the axes and buttons into the snapshot that is used by the axis value
+     * methods, getButtonsValues() and getButtonValue(int index) methods.
      * 
      * @see joystick.JInputJoystick#pollController()
      * 
@@ -137,6 +256,8 @@ public class JInputJoystick {
      * Check and save current controller state (controller components values).
      * Must be called every time before using controller state methods (eg. method for x axis value),
      * so that you get latest controller components values.
+     * Values are copied into a primitive snapshot using component handles
+     * resolved when the controller was found, so this does not allocate.
      * 
      * @return True if controller is connected/valid, false otherwise.
      */
@@ -146,6 +267,7 @@ public class JInputJoystick {
         
         // Clear previous values of buttons.
         buttonsValues.clear();
+        buttonBits = 0;
         
         try {
             isControllerValid = controller.poll();
@@ -155,18 +277,19 @@ public class JInputJoystick {
         if(!isControllerValid)
             return false;
         
-        Component[] components = controller.getComponents();
+        // Save states of the axes
+        for(int i=0; i < axisComponents.length; i++) {
+            Component component = axisComponents[i];
+            axisValues[i] = (component == null) ? 0.0f : component.getPollData();
+        }
         
-        for(int i=0; i < components.length; i++) {
-            Component component = components[i];
-            
-            // Add states of the buttons
-            // 2nd or clause is a hack to accomodate OSX...getName() does not return the name of the class...figures
-            if(component.getName().contains("Button") || component.getIdentifier().getClass().toString().contains("Button"))
-                if(component.getPollData() == 1.0f)
-                    buttonsValues.add(Boolean.TRUE);
-                else
-                    buttonsValues.add(Boolean.FALSE);
+        // Save states of the buttons
+        for(int i=0; i < buttonComponents.length; i++) {
+            if(buttonComponents[i].getPollData() == 1.0f) {
+                buttonsValues.set(i);
+                if(i < Integer.SIZE)
+                    buttonBits |= 1 << i;
+            }
         }
         
         return isControllerValid;
@@ -206,7 +329,7 @@ public class JInputJoystick {
      */
     public int getNumberOfButtons()
     {
-        return buttonsValues.size();
+        return buttonComponents.length;
     }
     
     /**
@@ -215,11 +338,17 @@ public class JInputJoystick {
      * If element is true then button is pressed, if element is false then 
      * button is not pressed.
      * 
+     * Builds a new list on every call; use getButtonValue(int index) when
+     * reading buttons from the control loop.
+     * 
      * @return Array list of states of all controller buttons.
      */
     public ArrayList<Boolean> getButtonsValues()
     {
-        return buttonsValues;
+        ArrayList<Boolean> values = new ArrayList<Boolean>(buttonComponents.length);
+        for(int i=0; i < buttonComponents.length; i++)
+            values.add(Boolean.valueOf(buttonsValues.get(i)));
+        return values;
     }
     
     /**
@@ -230,7 +359,20 @@ public class JInputJoystick {
      */
     public boolean getButtonValue(int index)
     {
-         return buttonsValues.get(index);
+        if(index < 0 || index >= buttonComponents.length)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + buttonComponents.length);
+        return buttonsValues.get(index);
+    }
+    
+    /**
+     * States of the first 32 buttons as bits, button 0 in the lowest bit.
+     * 
+     * @return Bit mask of the pressed buttons.
+     */
+    @Override
+    public int getButtons()
+    {
+        return buttonBits;
     }
     
     
@@ -241,8 +383,7 @@ public class JInputJoystick {
      */
     public float getXAxisValue()
     {
-        Identifier identifier = Component.Identifier.Axis.X;
-        return controller.getComponent(identifier).getPollData();
+        return axisValues[AXIS_X];
     }
     
     /**
@@ -269,8 +410,7 @@ public class JInputJoystick {
      */
     public float getYAxisValue()
     {
-        Identifier identifier = Component.Identifier.Axis.Y;
-        return controller.getComponent(identifier).getPollData();
+        return axisValues[AXIS_Y];
     }
 
     /**
@@ -297,8 +437,7 @@ public class JInputJoystick {
      */
     public float getZRotationValue()
     {
-        Identifier identifier = Component.Identifier.Axis.RZ;
-        return controller.getComponent(identifier).getPollData();
+        return axisValues[AXIS_RZ];
     }
     
     /**
@@ -325,8 +464,7 @@ public class JInputJoystick {
      */
     public float getZAxisValue()
     {
-        Identifier identifier = Component.Identifier.Axis.Z;
-        return controller.getComponent(identifier).getPollData();
+        return axisValues[AXIS_Z];
     }
     
     /**
@@ -353,8 +491,7 @@ public class JInputJoystick {
      */
     public float getXRotationValue()
     {
-        Identifier identifier = Component.Identifier.Axis.RX;
-        return controller.getComponent(identifier).getPollData();
+        return axisValues[AXIS_RX];
     }
     
     /**
@@ -381,8 +518,7 @@ public class JInputJoystick {
      */
     public float getYRotationValue()
     {
-        Identifier identifier = Component.Identifier.Axis.RY;
-        return controller.getComponent(identifier).getPollData();
+        return axisValues[AXIS_RY];
     }
     
     /**
@@ -411,8 +547,7 @@ public class JInputJoystick {
      */
     public float getHatSwitchPosition()
     {
-        Identifier identifier = Component.Identifier.Axis.POV;
-        return controller.getComponent(identifier).getPollData();
+        return axisValues[AXIS_POV];
     }
     
     
@@ -495,20 +630,7 @@ public class JInputJoystick {
      */
     public float getX_RightJoystick_Value()
     {
-        float xValueRightJoystick;
-        
-        // stick type controller
-        if(this.controller.getType() == Controller.Type.STICK)
-        {
-            xValueRightJoystick = this.getZAxisValue();
-        }
-        // gamepad type controller
-        else
-        {
-            xValueRightJoystick = this.getXRotationValue();
-        }
-        
-        return xValueRightJoystick;
+        return axisValues[rightXAxis];
     }
     
     /**
@@ -524,20 +646,7 @@ public class JInputJoystick {
      */
     public int getX_RightJoystick_Percentage()
     {
-        int xValueRightJoystickPercentage;
-        
-        // stick type controller
-        if(this.controller.getType() == Controller.Type.STICK)
-        {
-            xValueRightJoystickPercentage = this.getZAxisPercentage();
-        }
-        // gamepad type controller
-        else
-        {
-            xValueRightJoystickPercentage = this.getXRotationPercentage();
-        }
-        
-        return xValueRightJoystickPercentage;
+        return toPercentage(axisValues[rightXAxis]);
     }
     
     
@@ -554,20 +663,7 @@ public class JInputJoystick {
      */
     public float getY_RightJoystick_Value()
     {
-        float yValueRightJoystick;
-        
-        // stick type controller
-        if(this.controller.getType() == Controller.Type.STICK)
-        {
-            yValueRightJoystick = this.getZRotationValue();
-        }
-        // gamepad type controller
-        else
-        {
-            yValueRightJoystick = this.getYRotationValue();
-        }
-        
-        return yValueRightJoystick;
+        return axisValues[rightYAxis];
     }
     
     /**
@@ -583,19 +679,12 @@ public class JInputJoystick {
      */
     public int getY_RightJoystick_Percentage()
     {
-        int yValueRightJoystickPercentage;
-        
-        // stick type controller
-        if(this.controller.getType() == Controller.Type.STICK)
-        {
-            yValueRightJoystickPercentage = this.getZRotationPercentage();
-        }
-        // gamepad type controller
-        else
-        {
-            yValueRightJoystickPercentage = this.getYRotationPercentage();
-        }
-        
-        return yValueRightJoystickPercentage;
+        return toPercentage(axisValues[rightYAxis]);
+    }
+    
+    
+    private static int toPercentage(float axisValue)
+    {
+        return (int)((2 - (1 - axisValue)) * 100) / 2;
     }
 }
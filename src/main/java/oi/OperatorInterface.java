@@ -1,34 +1,143 @@
 package oi;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.pmw.tinylog.Logger;
+
+import loop.LoopTiming;
+import replay.DriveRecorder;
+
+/**
+ * Reads the gamepad for the commands. By default the gamepad is polled
+ * inline by whichever command first asks for an axis, at most once per
+ * poll interval. Calling startSampling() instead polls it on a background
+ * thread at a fixed rate, so reads never wait on the device.
+ */
 public class OperatorInterface {
-  private final JInputJoystick gamepad;
+  private static final long DEFAULT_MAX_POLL_INTERVAL_MS = 20;
+
+  private final Gamepad gamepad;
+  private final long maxPollIntervalNanos;
   private long lastPolled;
-  private final long maxPollIntervalMs = 20;
+  private long sequence;
+  private volatile GamepadSnapshot snapshot = GamepadSnapshot.EMPTY;
+  private volatile ScheduledExecutorService sampler;
+  private volatile DriveRecorder recorder;
 
-  public OperatorInterface(JInputJoystick gamepad) {
+  public OperatorInterface(Gamepad gamepad) {
+    this(gamepad, DEFAULT_MAX_POLL_INTERVAL_MS);
+  }
+
+  /**
+   * @param gamepad               The gamepad to read
+   * @param maxPollIntervalMs     Minimum time between inline polls of the gamepad
+   */
+  public OperatorInterface(Gamepad gamepad, long maxPollIntervalMs) {
     this.gamepad = gamepad;
+    this.maxPollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(maxPollIntervalMs);
+    this.lastPolled = System.nanoTime() - maxPollIntervalNanos - 1;
+  }
+
+  /**
+   * Start polling the gamepad on a background thread. From now on reads
+   * return the latest published snapshot and never poll the device.
+   * @param periodMs  Time between polls in milliseconds
+   */
+  public synchronized void startSampling(long periodMs) {
+    if (sampler != null) {
+      return;
+    }
+    sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "GamepadSampler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sampler.scheduleAtFixedRate(this::sample, 0, periodMs, TimeUnit.MILLISECONDS);
+    Logger.info("Gamepad sampling started every " + periodMs + "ms.");
+  }
+
+  public synchronized void stopSampling() {
+    if (sampler != null) {
+      sampler.shutdownNow();
+      sampler = null;
+    }
+  }
+
+  public boolean isSampling() {
+    return sampler != null;
+  }
+
+  private void sample() {
+    try {
+      long start = LoopTiming.start();
+      boolean polled = gamepad.pollController();
+      LoopTiming.stop(LoopTiming.Stage.GAMEPAD_POLL, start);
+      if (polled) {
+        publish(System.nanoTime());
+      }
+    } catch (RuntimeException e) {
+      // Keep the sampler alive; an exception would cancel the schedule
+      Logger.error("Error sampling gamepad: " + e.getMessage());
+    }
   }
 
   private void pollController() {
-    long now = System.currentTimeMillis();
-    if ((now - lastPolled) > maxPollIntervalMs) {
-      gamepad.pollController();
-      lastPolled = System.currentTimeMillis();
+    long now = System.nanoTime();
+    if ((now - lastPolled) > maxPollIntervalNanos) {
+      boolean polled = gamepad.pollController();
+      LoopTiming.stop(LoopTiming.Stage.GAMEPAD_POLL, now);
+      if (polled) {
+        publish(now);
+      }
+      lastPolled = System.nanoTime();
+    }
+  }
+
+  private void publish(long timestampNanos) {
+    GamepadSnapshot snapshot = new GamepadSnapshot(
+        ++sequence, 
+        timestampNanos, 
+        gamepad.getX_LeftJoystick_Value(), 
+        gamepad.getY_LeftJoystick_Value(), 
+        gamepad.getX_RightJoystick_Value(), 
+        gamepad.getY_RightJoystick_Value());
+    this.snapshot = snapshot;
+    DriveRecorder recorder = this.recorder;
+    if (recorder != null) {
+      recorder.recordGamepad(snapshot);
+    }
+  }
+
+  /**
+   * Record every published snapshot from now on.
+   * @param recorder  The recorder, or null to stop recording
+   */
+  public void setRecorder(DriveRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Get all axes from the same poll of the gamepad.
+   * @return  The latest snapshot; never null.
+   */
+  public GamepadSnapshot getSnapshot() {
+    if (sampler == null) {
+      pollController();
     }
+    return snapshot;
   }
 
   public float getLeftYAxis() {
-    pollController();
-    return gamepad.getY_LeftJoystick_Value();
+    return getSnapshot().getLeftYAxis();
   }
 
   public float getLeftXAxis() {
-    pollController();
-    return gamepad.getX_LeftJoystick_Value();
+    return getSnapshot().getLeftXAxis();
   }
 
   public float getRightYAxis() {
-    pollController();
-    return gamepad.getY_RightJoystick_Value();
+    return getSnapshot().getRightYAxis();
   }
-}
\ No newline at end of file
+}
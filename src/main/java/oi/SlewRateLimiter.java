@@ -0,0 +1,35 @@
+package oi;
+
+/**
+ * Limits how fast a drive percentage can change from one tick to the next,
+ * so a stick slammed from one end to the other does not jerk the robot.
+ */
+public class SlewRateLimiter {
+  private final int maxChangePct;
+  private int lastPct;
+
+  /**
+   * @param maxChangePct  Largest change allowed per call, in percent
+   */
+  public SlewRateLimiter(int maxChangePct) {
+    this.maxChangePct = maxChangePct;
+  }
+
+  /**
+   * @return  The percentage moved towards pct by no more than the limit.
+   */
+  public int calculate(int pct) {
+    if (pct > lastPct + maxChangePct) {
+      lastPct += maxChangePct;
+    } else if (pct < lastPct - maxChangePct) {
+      lastPct -= maxChangePct;
+    } else {
+      lastPct = pct;
+    }
+    return lastPct;
+  }
+
+  public void reset(int pct) {
+    lastPct = pct;
+  }
+}
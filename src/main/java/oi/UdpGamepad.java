@@ -0,0 +1,272 @@
+package oi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * A gamepad on the driver's laptop, received from a GamepadSender. A thread
+ * blocks on the socket and publishes each packet as soon as it arrives, so
+ * polling is a volatile read and an OperatorInterface can poll it inline on
+ * every tick instead of sampling it. UDP means a lost packet never holds
+ * up the ones behind it.
+ * <p>
+ * The first valid packet pins its sender's address and session. Until
+ * the pinned sender has been silent for the timeout, packets from any
+ * other address or session are dropped, so a second laptop, a forgotten
+ * GamepadSender or a late packet from before a restart cannot take over.
+ * Packets older in the sender's sequence than one already received are
+ * dropped too. If no packet arrives for the timeout the axes read zero
+ * and the buttons released, so the robot stops when the laptop or the
+ * network goes away, and the next valid packet pins a sender again.
+ */
+public class UdpGamepad implements Gamepad, Closeable {
+  public static final long DEFAULT_TIMEOUT_MS = 250;
+
+  private final DatagramChannel channel;
+  private final long timeoutNanos;
+  private final LongSupplier clock;
+  private final ByteBuffer packet = ByteBuffer.allocateDirect(GamepadPacket.SIZE + 1);
+  private Thread thread;
+  private volatile State latest = State.NONE;
+  private State polled = State.NONE;
+  private volatile long receivedCount;
+  private volatile long outOfOrderCount;
+  private volatile long rejectedCount;
+  private volatile long malformedCount;
+
+  /**
+   * An immutable copy of one packet, so a poll sees all of it.
+   */
+  private static final class State {
+    static final State NONE = new State(null, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    final SocketAddress source;
+    final int session;
+    final long sequence;
+    final long receivedNanos;
+    final float leftXAxis;
+    final float leftYAxis;
+    final float rightXAxis;
+    final float rightYAxis;
+    final int buttons;
+
+    State(SocketAddress source, 
+        int session, 
+        long sequence, 
+        long receivedNanos, 
+        float leftXAxis, 
+        float leftYAxis, 
+        float rightXAxis, 
+        float rightYAxis, 
+        int buttons) {
+      this.source = source;
+      this.session = session;
+      this.sequence = sequence;
+      this.receivedNanos = receivedNanos;
+      this.leftXAxis = leftXAxis;
+      this.leftYAxis = leftYAxis;
+      this.rightXAxis = rightXAxis;
+      this.rightYAxis = rightYAxis;
+      this.buttons = buttons;
+    }
+  }
+
+  /**
+   * @param port        UDP port to listen on; 0 picks a free one
+   * @param timeoutMs   Time without a packet after which the gamepad reads as released
+   */
+  public UdpGamepad(int port, long timeoutMs) throws IOException {
+    this(port, timeoutMs, System::nanoTime);
+  }
+
+  /**
+   * @param clock   Source of receive times in nanoseconds, normally System::nanoTime
+   */
+  public UdpGamepad(int port, long timeoutMs, LongSupplier clock) throws IOException {
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    this.clock = clock;
+    this.channel = DatagramChannel.open();
+    channel.bind(new InetSocketAddress(port));
+  }
+
+  public synchronized void start() {
+    if (thread != null) {
+      return;
+    }
+    thread = new Thread(this::run, "GamepadReceiver");
+    thread.setDaemon(true);
+    thread.start();
+    Logger.info("Listening for the gamepad on UDP port " + getPort() + ".");
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+    if (thread != null) {
+      try {
+        thread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      thread = null;
+    }
+  }
+
+  public int getPort() {
+    return channel.socket().getLocalPort();
+  }
+
+  private void run() {
+    while (channel.isOpen()) {
+      try {
+        packet.clear();
+        SocketAddress source = channel.receive(packet);
+        packet.flip();
+        accept(packet, source, clock.getAsLong());
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException | RuntimeException e) {
+        // Keep listening; one bad packet must not cost the driver the robot
+        Logger.error("Error receiving gamepad: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Check a packet and make it the latest if it comes from the pinned
+   * sender and is newer than the one before.
+   * Called by the receive thread; only call directly when not started.
+   * @return  True if the packet was taken.
+   */
+  boolean accept(ByteBuffer packet, SocketAddress source, long receivedNanos) {
+    if (packet.remaining() != GamepadPacket.SIZE
+        || packet.getInt() != GamepadPacket.MAGIC
+        || packet.getShort() != GamepadPacket.VERSION) {
+      malformedCount++;
+      return false;
+    }
+    packet.getShort();
+    int session = packet.getInt();
+    long sequence = packet.getLong();
+    State last = latest;
+    boolean pinned = last != State.NONE && receivedNanos - last.receivedNanos <= timeoutNanos;
+    if (pinned) {
+      if (!last.source.equals(source) || session != last.session) {
+        rejectedCount++;
+        return false;
+      }
+      if (sequence <= last.sequence) {
+        outOfOrderCount++;
+        return false;
+      }
+    } else if (source.equals(last.source) && session == last.session && sequence <= last.sequence) {
+      // Timed out, but still behind the last packet taken from the same sender
+      outOfOrderCount++;
+      return false;
+    }
+    if (!pinned) {
+      Logger.info("Taking the gamepad from " + source + ".");
+    }
+    latest = new State(source, 
+        session, 
+        sequence, 
+        receivedNanos, 
+        packet.getShort() / GamepadPacket.AXIS_SCALE, 
+        packet.getShort() / GamepadPacket.AXIS_SCALE, 
+        packet.getShort() / GamepadPacket.AXIS_SCALE, 
+        packet.getShort() / GamepadPacket.AXIS_SCALE, 
+        packet.getInt());
+    receivedCount++;
+    return true;
+  }
+
+  /**
+   * Capture the latest packet, or a released gamepad if it is too old.
+   * @return  Always true, so the operator interface publishes the release.
+   */
+  @Override
+  public boolean pollController() {
+    State state = latest;
+    boolean stale = state == State.NONE || clock.getAsLong() - state.receivedNanos > timeoutNanos;
+    polled = stale ? State.NONE : state;
+    return true;
+  }
+
+  /**
+   * @return  True if the last poll found a packet within the timeout.
+   */
+  public boolean isConnected() {
+    return polled != State.NONE;
+  }
+
+  @Override
+  public float getX_LeftJoystick_Value() {
+    return polled.leftXAxis;
+  }
+
+  @Override
+  public float getY_LeftJoystick_Value() {
+    return polled.leftYAxis;
+  }
+
+  @Override
+  public float getX_RightJoystick_Value() {
+    return polled.rightXAxis;
+  }
+
+  @Override
+  public float getY_RightJoystick_Value() {
+    return polled.rightYAxis;
+  }
+
+  @Override
+  public int getButtons() {
+    return polled.buttons;
+  }
+
+  /**
+   * @return  Nanoseconds since the latest packet arrived, or Long.MAX_VALUE if none has.
+   */
+  public long getPacketAgeNanos() {
+    State state = latest;
+    return state == State.NONE ? Long.MAX_VALUE : clock.getAsLong() - state.receivedNanos;
+  }
+
+  /**
+   * @return  Sequence number of the latest packet taken in its session.
+   */
+  public long getSequence() {
+    return latest.sequence;
+  }
+
+  public long getReceivedCount() {
+    return receivedCount;
+  }
+
+  /**
+   * @return  Number of packets dropped for arriving after a later one.
+   */
+  public long getOutOfOrderCount() {
+    return outOfOrderCount;
+  }
+
+  /**
+   * @return  Number of packets dropped for coming from another sender or session than the pinned one.
+   */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  public long getMalformedCount() {
+    return malformedCount;
+  }
+}
@@ -0,0 +1,23 @@
+package replay;
+
+/**
+ * Layout of a binary drive log. A log starts with MAGIC and VERSION,
+ * followed by records of a type byte, a timestamp in nanoseconds and
+ * a fixed payload per type, all big endian:
+ * <ul>
+ * <li>GAMEPAD: sequence (long), left x, left y, right x, right y (floats)</li>
+ * <li>FEEDBACK: background (byte), left and right duty cycle x 10 (shorts), left and right ticks (longs)</li>
+ * <li>SERVO: wheel side ordinal (byte), pulse width in ms (float)</li>
+ * </ul>
+ */
+public final class DriveLog {
+  public static final int MAGIC = 0x44524C47;   // "DRLG"
+  public static final short VERSION = 1;
+
+  public static final byte GAMEPAD = 1;
+  public static final byte FEEDBACK = 2;
+  public static final byte SERVO = 3;
+
+  private DriveLog() {
+  }
+}
@@ -0,0 +1,164 @@
+package replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import devices.ParallaxHallEffectFeedbackSensor.WheelSide;
+
+/**
+ * Reads a binary drive log one record at a time. The fields of the
+ * current record are held by the reader, so reading allocates nothing;
+ * only the getters for the current record type are meaningful.
+ */
+public class DriveLogReader implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final WheelSide[] WHEEL_SIDES = WheelSide.values();
+
+  private final DataInputStream in;
+  private byte type;
+  private long timestampNanos;
+  private long sequence;
+  private float leftXAxis;
+  private float leftYAxis;
+  private float rightXAxis;
+  private float rightYAxis;
+  private boolean background;
+  private int leftPctX10;
+  private int rightPctX10;
+  private long leftTickCount;
+  private long rightTickCount;
+  private WheelSide side;
+  private float pulseWidthMs;
+
+  public DriveLogReader(String fileName) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), BUFFER_SIZE));
+    if (in.readInt() != DriveLog.MAGIC) {
+      in.close();
+      throw new IOException(fileName + " is not a drive log");
+    }
+    short version = in.readShort();
+    if (version != DriveLog.VERSION) {
+      in.close();
+      throw new IOException(fileName + " is drive log version " + version + ", expected " + DriveLog.VERSION);
+    }
+  }
+
+  /**
+   * Move to the next record.
+   * @return  False at the end of the log.
+   */
+  public boolean next() throws IOException {
+    int nextType = in.read();
+    if (nextType < 0) {
+      return false;
+    }
+    type = (byte)nextType;
+    try {
+      timestampNanos = in.readLong();
+      switch (type) {
+        case DriveLog.GAMEPAD:
+          sequence = in.readLong();
+          leftXAxis = in.readFloat();
+          leftYAxis = in.readFloat();
+          rightXAxis = in.readFloat();
+          rightYAxis = in.readFloat();
+          break;
+        case DriveLog.FEEDBACK:
+          background = in.readBoolean();
+          leftPctX10 = in.readUnsignedShort();
+          rightPctX10 = in.readUnsignedShort();
+          leftTickCount = in.readLong();
+          rightTickCount = in.readLong();
+          break;
+        case DriveLog.SERVO:
+          side = WHEEL_SIDES[in.readByte()];
+          pulseWidthMs = in.readFloat();
+          break;
+        default:
+          throw new IOException("Unknown drive log record type " + type);
+      }
+    } catch (EOFException e) {
+      // The robot was switched off part way through a record
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Move to the next record of the given type, skipping the others.
+   * @return  False at the end of the log.
+   */
+  public boolean next(byte recordType) throws IOException {
+    while (next()) {
+      if (type == recordType) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public byte getType() {
+    return type;
+  }
+
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public float getLeftXAxis() {
+    return leftXAxis;
+  }
+
+  public float getLeftYAxis() {
+    return leftYAxis;
+  }
+
+  public float getRightXAxis() {
+    return rightXAxis;
+  }
+
+  public float getRightYAxis() {
+    return rightYAxis;
+  }
+
+  public boolean isBackground() {
+    return background;
+  }
+
+  public int getLeftPctX10() {
+    return leftPctX10;
+  }
+
+  public int getRightPctX10() {
+    return rightPctX10;
+  }
+
+  public long getLeftTickCount() {
+    return leftTickCount;
+  }
+
+  public long getRightTickCount() {
+    return rightTickCount;
+  }
+
+  public WheelSide getSide() {
+    return side;
+  }
+
+  public float getPulseWidthMs() {
+    return pulseWidthMs;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,206 @@
+package replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.pmw.tinylog.Logger;
+
+import devices.ParallaxHallEffectFeedbackSensor.WheelSide;
+import oi.GamepadSnapshot;
+
+/**
+ * Records a drive session to a binary drive log file. Gamepad snapshots
+ * are only written when an axis changed, so an idle gamepad costs nothing.
+ * Recording a record only copies it into a preallocated buffer; a writer
+ * thread swaps that buffer for a second one every DRAIN_PERIOD_MS and
+ * writes it to the file, so the threads that record never wait on the SD
+ * card. If the writer falls so far behind that the buffer fills, records
+ * are dropped and counted. If the file cannot be written the error is
+ * logged once and recording stops; the robot keeps driving.
+ */
+public class DriveLogWriter implements DriveRecorder, Closeable {
+  public static final long DRAIN_PERIOD_MS = 100;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int GAMEPAD_RECORD_SIZE = 1 + 8 + 8 + 4 * 4;
+  private static final int FEEDBACK_RECORD_SIZE = 1 + 8 + 1 + 2 + 2 + 8 + 8;
+  private static final int SERVO_RECORD_SIZE = 1 + 8 + 1 + 4;
+
+  private final DataOutputStream out;
+  private final ScheduledExecutorService writer;
+  private final Object drainLock = new Object();
+  private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+  private ByteBuffer draining = ByteBuffer.allocate(BUFFER_SIZE);
+  private volatile boolean failed;
+  private boolean closed;
+  private long recordCount;
+  private long droppedCount;
+  private float lastLeftXAxis = Float.NaN;
+  private float lastLeftYAxis = Float.NaN;
+  private float lastRightXAxis = Float.NaN;
+  private float lastRightYAxis = Float.NaN;
+
+  public DriveLogWriter(String fileName) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), BUFFER_SIZE));
+    out.writeInt(DriveLog.MAGIC);
+    out.writeShort(DriveLog.VERSION);
+    writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "DriveLogWriter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    writer.scheduleWithFixedDelay(this::drainSafely, DRAIN_PERIOD_MS, DRAIN_PERIOD_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void recordGamepad(GamepadSnapshot snapshot) {
+    if (snapshot.getLeftXAxis() == lastLeftXAxis
+        && snapshot.getLeftYAxis() == lastLeftYAxis
+        && snapshot.getRightXAxis() == lastRightXAxis
+        && snapshot.getRightYAxis() == lastRightYAxis) {
+      return;
+    }
+    lastLeftXAxis = snapshot.getLeftXAxis();
+    lastLeftYAxis = snapshot.getLeftYAxis();
+    lastRightXAxis = snapshot.getRightXAxis();
+    lastRightYAxis = snapshot.getRightYAxis();
+    if (!reserve(GAMEPAD_RECORD_SIZE)) {
+      return;
+    }
+    pending.put(DriveLog.GAMEPAD);
+    pending.putLong(snapshot.getTimestampNanos());
+    pending.putLong(snapshot.getSequence());
+    pending.putFloat(lastLeftXAxis);
+    pending.putFloat(lastLeftYAxis);
+    pending.putFloat(lastRightXAxis);
+    pending.putFloat(lastRightYAxis);
+  }
+
+  @Override
+  public synchronized void recordFeedback(long timestampNanos, 
+      boolean background, 
+      int leftPctX10, 
+      int rightPctX10, 
+      long leftTickCount, 
+      long rightTickCount) {
+    if (!reserve(FEEDBACK_RECORD_SIZE)) {
+      return;
+    }
+    pending.put(DriveLog.FEEDBACK);
+    pending.putLong(timestampNanos);
+    pending.put((byte)(background ? 1 : 0));
+    pending.putShort((short)leftPctX10);
+    pending.putShort((short)rightPctX10);
+    pending.putLong(leftTickCount);
+    pending.putLong(rightTickCount);
+  }
+
+  @Override
+  public synchronized void recordServo(long timestampNanos, WheelSide side, float pulseWidthMs) {
+    if (!reserve(SERVO_RECORD_SIZE)) {
+      return;
+    }
+    pending.put(DriveLog.SERVO);
+    pending.putLong(timestampNanos);
+    pending.put((byte)side.ordinal());
+    pending.putFloat(pulseWidthMs);
+  }
+
+  /**
+   * @return  Number of records accepted, whether or not they have reached the file yet.
+   */
+  public synchronized long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * @return  Number of records dropped because the writer thread had not emptied the buffer.
+   */
+  public synchronized long getDroppedCount() {
+    return droppedCount;
+  }
+
+  /**
+   * Stop recording, write every record accepted so far and close the file.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    writer.shutdown();
+    try {
+      writer.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    drain();
+    out.close();
+  }
+
+  /**
+   * Make room for a record of the given size in the pending buffer.
+   * @return  False if the record should not be written.
+   */
+  private boolean reserve(int size) {
+    if (failed || closed) {
+      return false;
+    }
+    if (pending.remaining() < size) {
+      if (droppedCount++ == 0) {
+        Logger.warn("Drive log writer is falling behind; dropping records.");
+      }
+      return false;
+    }
+    recordCount++;
+    return true;
+  }
+
+  private void drainSafely() {
+    try {
+      drain();
+    } catch (RuntimeException e) {
+      // Keep the writer alive; an exception would cancel the schedule
+      Logger.error("Error writing drive log: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Swap the buffers and write out the records that were pending.
+   * Called by the writer thread, and by close() once it has stopped.
+   */
+  private void drain() {
+    synchronized (drainLock) {
+      ByteBuffer records;
+      synchronized (this) {
+        records = pending;
+        pending = draining;
+        draining = records;
+      }
+      try {
+        if (!failed && records.position() > 0) {
+          out.write(records.array(), 0, records.position());
+        }
+      } catch (IOException e) {
+        fail(e);
+      } finally {
+        records.clear();
+      }
+    }
+  }
+
+  private void fail(IOException e) {
+    failed = true;
+    Logger.error("Error writing drive log, recording stopped: " + e.getMessage());
+  }
+}
@@ -0,0 +1,38 @@
+package replay;
+
+import devices.ParallaxHallEffectFeedbackSensor.WheelSide;
+import oi.GamepadSnapshot;
+
+/**
+ * Receives the inputs and outputs of the drive control path as they
+ * happen, so that a drive session can be replayed later. Called from
+ * the gamepad sampler, the feedback acquirer and the control loop,
+ * so implementations must be thread safe and should not block.
+ */
+public interface DriveRecorder {
+  /**
+   * A new gamepad snapshot was published by the operator interface.
+   */
+  void recordGamepad(GamepadSnapshot snapshot);
+
+  /**
+   * The Digispark encoder was read and both feedback sensors updated.
+   * @param timestampNanos    Timestamp given to the feedback sensors
+   * @param background        True if read by the acquisition thread, false if inline by a command
+   * @param leftPctX10        Raw left duty cycle from the encoder
+   * @param rightPctX10       Raw right duty cycle from the encoder
+   * @param leftTickCount     Left sensor tick count after the update
+   * @param rightTickCount    Right sensor tick count after the update
+   */
+  void recordFeedback(long timestampNanos, 
+      boolean background, 
+      int leftPctX10, 
+      int rightPctX10, 
+      long leftTickCount, 
+      long rightTickCount);
+
+  /**
+   * The drive train set a servo pulse width.
+   */
+  void recordServo(long timestampNanos, WheelSide side, float pulseWidthMs);
+}
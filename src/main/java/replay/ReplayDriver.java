@@ -0,0 +1,300 @@
+package replay;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.LongSupplier;
+
+import com.diozero.api.I2CDevice;
+import com.diozero.devices.Servo;
+
+import org.pmw.tinylog.Logger;
+
+import commands.ArcadeDrive;
+import devices.DigisparkFeedbackEncoder;
+import devices.FeedbackAcquisitionService;
+import devices.ParallaxHallEffectFeedbackSensor;
+import devices.ParallaxHallEffectFeedbackSensor.UnwrapMode;
+import devices.ParallaxHallEffectFeedbackSensor.WheelSide;
+import oi.Gamepad;
+import oi.GamepadSnapshot;
+import oi.OperatorInterface;
+import sim.SimulatedClock;
+import sim.SimulatedDeviceFactory;
+import sim.SimulatedDriveTrain;
+import subsystems.DriveTrain;
+
+/**
+ * Replays a recorded drive log through the current ArcadeDrive and feedback
+ * sensor code as fast as the CPU allows, and compares the servo pulse widths
+ * and tick counts they produce with the recorded ones.
+ * <p>
+ * Recorded gamepad snapshots and raw encoder duty cycles are fed back in log
+ * order. Each recorded left servo write marks one execute of the drive command,
+ * since ArcadeDrive writes the left and then the right wheel every execute.
+ * Encoder reads made inline by the command are fed to it in order, and those
+ * made by the acquisition thread are replayed where they were recorded.
+ * Only open loop driving can be replayed; closed loop servo writes come from
+ * the velocity loop thread and will show up as mismatches.
+ * <p>
+ * Arguments: drive log file [unwrap mode, default VELOCITY]
+ */
+public class ReplayDriver {
+  // Must match the trim the log was recorded with
+  public static final Servo.Trim TRIM = SimulatedDriveTrain.TRIM;
+  public static final float DEFAULT_PULSE_WIDTH_TOLERANCE_MS = 0.0001f;
+
+  private final String logFileName;
+  private final UnwrapMode unwrapMode;
+  private final float pulseWidthToleranceMs;
+
+  public ReplayDriver(String logFileName) {
+    this(logFileName, UnwrapMode.VELOCITY, DEFAULT_PULSE_WIDTH_TOLERANCE_MS);
+  }
+
+  /**
+   * @param logFileName             A log written by DriveLogWriter
+   * @param unwrapMode              How the replayed feedback sensors unwrap rotations
+   * @param pulseWidthToleranceMs   Largest servo pulse width difference that still matches
+   */
+  public ReplayDriver(String logFileName, UnwrapMode unwrapMode, float pulseWidthToleranceMs) {
+    this.logFileName = logFileName;
+    this.unwrapMode = unwrapMode;
+    this.pulseWidthToleranceMs = pulseWidthToleranceMs;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      Logger.info("Usage: ReplayDriver <drive log> [QUADRANT|VELOCITY]");
+      System.exit(2);
+    }
+    UnwrapMode unwrapMode = args.length > 1 ? UnwrapMode.valueOf(args[1]) : UnwrapMode.VELOCITY;
+    ReplayReport report = new ReplayDriver(args[0], unwrapMode, DEFAULT_PULSE_WIDTH_TOLERANCE_MS).replay();
+    Logger.info(report);
+    System.exit(report.isMatch() ? 0 : 1);
+  }
+
+  public ReplayReport replay() throws IOException {
+    ReplayReport report = new ReplayReport();
+    SimulatedClock clock = new SimulatedClock();
+    SimulatedDeviceFactory deviceFactory = new SimulatedDeviceFactory();
+    try (DriveLogReader log = new DriveLogReader(logFileName);
+        ReplayFeedbackEncoder encoder = new ReplayFeedbackEncoder(logFileName, clock)) {
+      Servo leftWheelServo = SimulatedDriveTrain.newWheelServo(deviceFactory, WheelSide.LEFT, TRIM);
+      Servo rightWheelServo = SimulatedDriveTrain.newWheelServo(deviceFactory, WheelSide.RIGHT, TRIM);
+      ReplayAcquisitionService acquisition = new ReplayAcquisitionService(
+          encoder,
+          new ParallaxHallEffectFeedbackSensor(encoder, WheelSide.LEFT, unwrapMode),
+          new ParallaxHallEffectFeedbackSensor(encoder, WheelSide.RIGHT, unwrapMode),
+          clock);
+      acquisition.background = isBackgroundAcquisition(logFileName);
+      ReplayGamepad gamepad = new ReplayGamepad();
+      OperatorInterface operatorInterface = new OperatorInterface(gamepad, 0);
+      DriveTrain driveTrain = new DriveTrain(TRIM, leftWheelServo, rightWheelServo, acquisition, operatorInterface, clock);
+      ServoCapture servos = new ServoCapture();
+      driveTrain.setRecorder(servos);
+      ReplayedArcadeDrive arcadeDrive = new ReplayedArcadeDrive(driveTrain, operatorInterface);
+
+      long start = System.nanoTime();
+      while (log.next()) {
+        long timestampNanos = log.getTimestampNanos();
+        report.addRecord(timestampNanos);
+        switch (log.getType()) {
+          case DriveLog.GAMEPAD:
+            gamepad.load(log);
+            report.addGamepad();
+            break;
+          case DriveLog.FEEDBACK:
+            acquisition.background = log.isBackground();
+            if (log.isBackground()) {
+              // Inline reads were already made by the command that made them
+              encoder.load(log);
+              acquisition.acquire();
+            }
+            report.compareTicks(timestampNanos, 
+                log.getLeftTickCount(), 
+                log.getRightTickCount(), 
+                driveTrain.getLeftWheelTickCount(), 
+                driveTrain.getRightWheelTickCount());
+            break;
+          case DriveLog.SERVO:
+            if (log.getSide() == WheelSide.LEFT) {
+              clock.set(timestampNanos);
+              arcadeDrive.step();
+              report.addExecute();
+            }
+            report.comparePulseWidth(timestampNanos, 
+                log.getPulseWidthMs(), 
+                servos.pulseWidthMs[log.getSide().ordinal()], 
+                pulseWidthToleranceMs);
+            break;
+          default:
+            break;
+        }
+      }
+      report.setReplayNanos(System.nanoTime() - start);
+      leftWheelServo.close();
+      rightWheelServo.close();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return report;
+  }
+
+  private static boolean isBackgroundAcquisition(String logFileName) throws IOException {
+    try (DriveLogReader log = new DriveLogReader(logFileName)) {
+      return log.next(DriveLog.FEEDBACK) && log.isBackground();
+    }
+  }
+
+  /**
+   * Lets the replay call execute() directly instead of through the scheduler.
+   */
+  private static class ReplayedArcadeDrive extends ArcadeDrive {
+    ReplayedArcadeDrive(DriveTrain driveTrain, OperatorInterface operatorInterface) {
+      super(driveTrain, operatorInterface);
+    }
+
+    void step() {
+      execute();
+    }
+  }
+
+  /**
+   * Reports as running while replaying acquisitions that the background
+   * thread made, so that commands do not read the encoder inline.
+   */
+  private static class ReplayAcquisitionService extends FeedbackAcquisitionService {
+    private boolean background;
+
+    ReplayAcquisitionService(DigisparkFeedbackEncoder encoder,
+        ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor,
+        ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor,
+        LongSupplier clock) {
+      super(encoder, leftWheelFeedbackSensor, rightWheelFeedbackSensor, DEFAULT_VELOCITY_WINDOW, clock);
+    }
+
+    @Override
+    public boolean isRunning() {
+      return background;
+    }
+  }
+
+  /**
+   * Returns recorded duty cycles instead of reading I2C. A read either takes
+   * the record loaded by the replay, or the next inline read from the log,
+   * and moves the clock to when that read was recorded.
+   */
+  private static class ReplayFeedbackEncoder extends DigisparkFeedbackEncoder implements AutoCloseable {
+    private final DriveLogReader inlineReads;
+    private final SimulatedClock clock;
+    private boolean loaded;
+    private long timestampNanos;
+    private int leftPctX10;
+    private int rightPctX10;
+
+    ReplayFeedbackEncoder(String logFileName, SimulatedClock clock) throws IOException {
+      super((I2CDevice)null);
+      this.inlineReads = new DriveLogReader(logFileName);
+      this.clock = clock;
+    }
+
+    void load(DriveLogReader log) {
+      loaded = true;
+      timestampNanos = log.getTimestampNanos();
+      leftPctX10 = log.getLeftPctX10();
+      rightPctX10 = log.getRightPctX10();
+    }
+
+    @Override
+    public void update() {
+      if (!loaded) {
+        try {
+          while (inlineReads.next(DriveLog.FEEDBACK)) {
+            if (!inlineReads.isBackground()) {
+              load(inlineReads);
+              break;
+            }
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      loaded = false;
+      clock.set(timestampNanos);
+    }
+
+    @Override
+    public int getChannelPctX10(int channel) {
+      return channel == LEFT_CHANNEL ? leftPctX10 : rightPctX10;
+    }
+
+    @Override
+    public void close() throws IOException {
+      inlineReads.close();
+    }
+  }
+
+  private static class ReplayGamepad implements Gamepad {
+    private float leftXAxis;
+    private float leftYAxis;
+    private float rightXAxis;
+    private float rightYAxis;
+
+    void load(DriveLogReader log) {
+      leftXAxis = log.getLeftXAxis();
+      leftYAxis = log.getLeftYAxis();
+      rightXAxis = log.getRightXAxis();
+      rightYAxis = log.getRightYAxis();
+    }
+
+    @Override
+    public boolean pollController() {
+      return true;
+    }
+
+    @Override
+    public float getX_LeftJoystick_Value() {
+      return leftXAxis;
+    }
+
+    @Override
+    public float getY_LeftJoystick_Value() {
+      return leftYAxis;
+    }
+
+    @Override
+    public float getX_RightJoystick_Value() {
+      return rightXAxis;
+    }
+
+    @Override
+    public float getY_RightJoystick_Value() {
+      return rightYAxis;
+    }
+  }
+
+  /**
+   * Keeps the last pulse width the replayed drive train wrote to each servo.
+   */
+  private static class ServoCapture implements DriveRecorder {
+    private final float[] pulseWidthMs = { TRIM.getMidPulseWidthMs(), TRIM.getMidPulseWidthMs() };
+
+    @Override
+    public void recordGamepad(GamepadSnapshot snapshot) {
+    }
+
+    @Override
+    public void recordFeedback(long timestampNanos, 
+        boolean background, 
+        int leftPctX10, 
+        int rightPctX10, 
+        long leftTickCount, 
+        long rightTickCount) {
+    }
+
+    @Override
+    public void recordServo(long timestampNanos, WheelSide side, float pulseWidthMs) {
+      this.pulseWidthMs[side.ordinal()] = pulseWidthMs;
+    }
+  }
+}
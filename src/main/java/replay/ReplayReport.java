@@ -0,0 +1,144 @@
+package replay;
+
+/**
+ * What a replay of a drive log found: how much was replayed, and where the
+ * current control code produced different outputs from the recording.
+ */
+public class ReplayReport {
+  private long records;
+  private long gamepadRecords;
+  private long feedbackRecords;
+  private long servoRecords;
+  private long executes;
+  private long tickMismatches;
+  private long maxTickError;
+  private long servoMismatches;
+  private float maxPulseWidthErrorMs;
+  private long firstMismatchNanos;
+  private long firstTimestampNanos;
+  private long lastTimestampNanos;
+  private long replayNanos;
+
+  void addRecord(long timestampNanos) {
+    if (records++ == 0) {
+      firstTimestampNanos = timestampNanos;
+    }
+    lastTimestampNanos = timestampNanos;
+  }
+
+  void addGamepad() {
+    gamepadRecords++;
+  }
+
+  void addExecute() {
+    executes++;
+  }
+
+  void compareTicks(long timestampNanos, long recordedLeft, long recordedRight, long replayedLeft, long replayedRight) {
+    feedbackRecords++;
+    long error = Math.max(Math.abs(replayedLeft - recordedLeft), Math.abs(replayedRight - recordedRight));
+    if (error > 0) {
+      tickMismatches++;
+      maxTickError = Math.max(maxTickError, error);
+      mismatchAt(timestampNanos);
+    }
+  }
+
+  void comparePulseWidth(long timestampNanos, float recordedMs, float replayedMs, float toleranceMs) {
+    servoRecords++;
+    float error = Math.abs(replayedMs - recordedMs);
+    if (error > toleranceMs) {
+      servoMismatches++;
+      maxPulseWidthErrorMs = Math.max(maxPulseWidthErrorMs, error);
+      mismatchAt(timestampNanos);
+    }
+  }
+
+  void setReplayNanos(long replayNanos) {
+    this.replayNanos = replayNanos;
+  }
+
+  private void mismatchAt(long timestampNanos) {
+    if (tickMismatches + servoMismatches == 1) {
+      firstMismatchNanos = timestampNanos;
+    }
+  }
+
+  /**
+   * @return  True if every replayed output matched the recording.
+   */
+  public boolean isMatch() {
+    return tickMismatches == 0 && servoMismatches == 0;
+  }
+
+  public long getGamepadRecords() {
+    return gamepadRecords;
+  }
+
+  public long getFeedbackRecords() {
+    return feedbackRecords;
+  }
+
+  public long getServoRecords() {
+    return servoRecords;
+  }
+
+  /**
+   * @return  Number of times the drive command was executed.
+   */
+  public long getExecutes() {
+    return executes;
+  }
+
+  public long getTickMismatches() {
+    return tickMismatches;
+  }
+
+  public long getMaxTickError() {
+    return maxTickError;
+  }
+
+  public long getServoMismatches() {
+    return servoMismatches;
+  }
+
+  public float getMaxPulseWidthErrorMs() {
+    return maxPulseWidthErrorMs;
+  }
+
+  /**
+   * @return  Nanoseconds into the recording of the first mismatch; only meaningful if there was one.
+   */
+  public long getFirstMismatchNanos() {
+    return firstMismatchNanos - firstTimestampNanos;
+  }
+
+  /**
+   * @return  Length of the recording in nanoseconds.
+   */
+  public long getRecordedNanos() {
+    return lastTimestampNanos - firstTimestampNanos;
+  }
+
+  /**
+   * @return  Wall clock time the replay took in nanoseconds.
+   */
+  public long getReplayNanos() {
+    return replayNanos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder(String.format(
+        "Replayed %.1fs of driving in %.3fs: %d gamepad, %d feedback, %d servo records, %d executes. ",
+        getRecordedNanos() / 1e9, replayNanos / 1e9, gamepadRecords, feedbackRecords, servoRecords, executes));
+    if (isMatch()) {
+      report.append("All outputs match.");
+    } else {
+      report.append(String.format(
+          "%d tick mismatches (max %d ticks), %d servo mismatches (max %.4fms), first at %.3fs.",
+          tickMismatches, maxTickError, servoMismatches, maxPulseWidthErrorMs, getFirstMismatchNanos() / 1e9));
+    }
+    return report.toString();
+  }
+}
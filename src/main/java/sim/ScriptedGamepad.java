@@ -0,0 +1,105 @@
+package sim;
+
+import java.util.function.LongSupplier;
+
+import oi.Gamepad;
+
+/**
+ * A virtual gamepad that plays back a fixed script of stick positions,
+ * timed by a clock. Once the script ends all sticks return to center.
+ */
+public class ScriptedGamepad implements Gamepad {
+  /**
+   * Hold the sticks in one position for a while.
+   */
+  public static final class Step {
+    private final long durationNanos;
+    private final float leftXAxis;
+    private final float leftYAxis;
+    private final float rightXAxis;
+    private final float rightYAxis;
+
+    public Step(long durationMs, float leftXAxis, float leftYAxis, float rightXAxis, float rightYAxis) {
+      this.durationNanos = durationMs * 1000000;
+      this.leftXAxis = leftXAxis;
+      this.leftYAxis = leftYAxis;
+      this.rightXAxis = rightXAxis;
+      this.rightYAxis = rightYAxis;
+    }
+  }
+
+  private final LongSupplier clock;
+  private final Step[] steps;
+  private final long startNanos;
+  private long totalNanos;
+  private Step current;
+
+  public ScriptedGamepad(LongSupplier clock, Step... steps) {
+    this.clock = clock;
+    this.steps = steps;
+    this.startNanos = clock.getAsLong();
+    for (Step step : steps) {
+      totalNanos += step.durationNanos;
+    }
+  }
+
+  /**
+   * A drive that exercises arcade and tank driving: forward, both turns,
+   * a spin in each direction, reverse and stop.
+   * @param repeats   Number of times to play the drive
+   */
+  public static ScriptedGamepad driveTest(LongSupplier clock, int repeats) {
+    Step[] drive = {
+        new Step(2000, 0, 1, 0, 1),
+        new Step(1000, 0.5f, 0.8f, 0, 0.4f),
+        new Step(1000, -0.5f, 0.8f, 0, 0.4f),
+        new Step(1500, 1, 0, 0, 0),
+        new Step(1500, -1, 0, 0, 0),
+        new Step(2000, 0, -1, 0, -1),
+        new Step(1000, 0, 0, 0, 0)
+    };
+    Step[] steps = new Step[drive.length * repeats];
+    for (int i = 0; i < steps.length; i++) {
+      steps[i] = drive[i % drive.length];
+    }
+    return new ScriptedGamepad(clock, steps);
+  }
+
+  public boolean isFinished() {
+    return clock.getAsLong() - startNanos >= totalNanos;
+  }
+
+  @Override
+  public boolean pollController() {
+    long elapsed = clock.getAsLong() - startNanos;
+    current = null;
+    for (Step step : steps) {
+      if (elapsed < step.durationNanos) {
+        current = step;
+        break;
+      }
+      elapsed -= step.durationNanos;
+    }
+    return true;
+  }
+
+  @Override
+  public float getX_LeftJoystick_Value() {
+    return current == null ? 0 : current.leftXAxis;
+  }
+
+  @Override
+  public float getY_LeftJoystick_Value() {
+    return current == null ? 0 : current.leftYAxis;
+  }
+
+  @Override
+  public float getX_RightJoystick_Value() {
+    return current == null ? 0 : current.rightXAxis;
+  }
+
+  @Override
+  public float getY_RightJoystick_Value() {
+    return current == null ? 0 : current.rightYAxis;
+  }
+}
@@ -0,0 +1,98 @@
+package sim;
+
+/**
+ * Physics model of a Parallax 360 high speed servo with feedback. The
+ * pulse width sets a target speed, which the wheel approaches with a
+ * first order lag to stand in for its inertia. Pulses above the middle
+ * turn the wheel so that the feedback angle increases.
+ */
+public class ServoModel {
+  private final float midPulseWidthMs;
+  private final float fullSpeedPulseDeltaMs;
+  private final float deadbandMs;
+  private final double maxDegreesPerSecond;
+  private final double timeConstantSeconds;
+  private float pulseWidthMs;
+  private double degreesPerSecond;
+  private double angleDegrees;
+
+  /**
+   * @param midPulseWidthMs         Pulse width at which the servo stops
+   * @param fullSpeedPulseDeltaMs   Distance from the middle at which the servo reaches full speed
+   * @param deadbandMs              Distance from the middle within which the servo does not move
+   * @param maxRpm                  Speed at full pulse
+   * @param timeConstantSeconds     Time to reach about 63% of a change in speed
+   */
+  public ServoModel(float midPulseWidthMs, 
+      float fullSpeedPulseDeltaMs, 
+      float deadbandMs, 
+      double maxRpm, 
+      double timeConstantSeconds) {
+    this.midPulseWidthMs = midPulseWidthMs;
+    this.fullSpeedPulseDeltaMs = fullSpeedPulseDeltaMs;
+    this.deadbandMs = deadbandMs;
+    this.maxDegreesPerSecond = maxRpm * 360 / 60;
+    this.timeConstantSeconds = timeConstantSeconds;
+    this.pulseWidthMs = midPulseWidthMs;
+  }
+
+  /**
+   * A model of the 120rpm Parallax 900-00360.
+   */
+  public static ServoModel parallax360HighSpeed() {
+    return new ServoModel(1.5f, 0.22f, 0.02f, 120, 0.08);
+  }
+
+  public void setPulseWidthMs(float pulseWidthMs) {
+    this.pulseWidthMs = pulseWidthMs;
+  }
+
+  public float getPulseWidthMs() {
+    return pulseWidthMs;
+  }
+
+  /**
+   * Advance the model.
+   * @param seconds   Simulated time to advance by
+   */
+  public void step(double seconds) {
+    double targetDegreesPerSecond = targetDegreesPerSecond();
+    // Exact solution of the first order lag over the step, so large steps stay stable
+    double blend = 1 - Math.exp(-seconds / timeConstantSeconds);
+    double nextDegreesPerSecond = degreesPerSecond + ((targetDegreesPerSecond - degreesPerSecond) * blend);
+    angleDegrees += (degreesPerSecond + nextDegreesPerSecond) * seconds / 2;
+    degreesPerSecond = nextDegreesPerSecond;
+  }
+
+  private double targetDegreesPerSecond() {
+    float delta = pulseWidthMs - midPulseWidthMs;
+    if (Math.abs(delta) <= deadbandMs) {
+      return 0;
+    }
+    double fraction = (Math.abs(delta) - deadbandMs) / (fullSpeedPulseDeltaMs - deadbandMs);
+    if (fraction > 1) {
+      fraction = 1;
+    }
+    return Math.signum(delta) * fraction * maxDegreesPerSecond;
+  }
+
+  /**
+   * @return  Total angle turned, not wrapped.
+   */
+  public double getAngleDegrees() {
+    return angleDegrees;
+  }
+
+  public double getDegreesPerSecond() {
+    return degreesPerSecond;
+  }
+
+  /**
+   * @return  Duty cycle of the feedback signal in tenths of a percent, as the Digispark reports it.
+   */
+  public int getFeedbackDutyCycleX10() {
+    long theta = Math.floorMod((long)Math.floor(angleDegrees), 360L);
+    // Inverse of the decoding in ParallaxHallEffectFeedbackSensor
+    return 29 + (int)(((359 - theta) * 943 + 359) / 360);
+  }
+}
@@ -0,0 +1,27 @@
+package sim;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A nanosecond clock that only moves when the simulation advances it,
+ * so a simulation can run faster (or slower) than real time.
+ */
+public class SimulatedClock implements LongSupplier {
+  private volatile long nanos;
+
+  @Override
+  public long getAsLong() {
+    return nanos;
+  }
+
+  public void advance(long nanos) {
+    this.nanos += nanos;
+  }
+
+  /**
+   * Jump to a time, for example one read from a recording.
+   */
+  public void set(long nanos) {
+    this.nanos = nanos;
+  }
+}
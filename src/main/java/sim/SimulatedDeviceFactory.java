@@ -0,0 +1,225 @@
+package sim;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.diozero.api.DeviceMode;
+import com.diozero.api.I2CConstants;
+import com.diozero.api.I2CDevice;
+import com.diozero.api.PinInfo;
+import com.diozero.devices.Servo;
+import com.diozero.internal.provider.AbstractDevice;
+import com.diozero.internal.provider.AbstractDeviceFactory;
+import com.diozero.internal.provider.I2CDeviceFactoryInterface;
+import com.diozero.internal.provider.I2CDeviceInterface;
+import com.diozero.internal.provider.PwmOutputDeviceFactoryInterface;
+import com.diozero.internal.provider.PwmOutputDeviceInterface;
+import com.diozero.util.BoardPinInfo;
+import com.diozero.util.RuntimeIOException;
+
+/**
+ * A diozero device provider with no hardware behind it. Servos drive
+ * ServoModels attached to their GPIO numbers, and the I2C device answers
+ * like the Digispark feedback encoder firmware, reporting the feedback
+ * duty cycles of the left and right ServoModels.
+ */
+public class SimulatedDeviceFactory extends AbstractDeviceFactory 
+    implements PwmOutputDeviceFactoryInterface, I2CDeviceFactoryInterface {
+  private static final String NAME = "Simulated";
+  private static final int GPIO_COUNT = 28;
+  private static final int DIGISPARK_REGISTER_COUNT = 4;
+
+  private final BoardPinInfo boardPinInfo = new SimulatedBoardPinInfo();
+  private final Map<Integer, ServoModel> servoModels = new HashMap<>();
+  private ServoModel leftFeedbackModel;
+  private ServoModel rightFeedbackModel;
+  private int boardPwmFrequency = 50;
+
+  public SimulatedDeviceFactory() {
+    super(NAME);
+  }
+
+  /**
+   * Drive the model with the servo that is created on the given GPIO.
+   */
+  public void attachServoModel(int gpio, ServoModel model) {
+    servoModels.put(gpio, model);
+  }
+
+  /**
+   * Report the feedback of these models from the Digispark encoder.
+   */
+  public void attachFeedbackModels(ServoModel leftFeedbackModel, ServoModel rightFeedbackModel) {
+    this.leftFeedbackModel = leftFeedbackModel;
+    this.rightFeedbackModel = rightFeedbackModel;
+  }
+
+  public Servo newServo(int gpio, float initialPulseWidthMs, int pwmFrequency, Servo.Trim trim) {
+    return new Servo(this, gpio, initialPulseWidthMs, pwmFrequency, trim);
+  }
+
+  public I2CDevice newI2CDevice(int controller, int address) {
+    return new I2CDevice(
+        this, 
+        controller, 
+        address, 
+        I2CConstants.ADDR_SIZE_7, 
+        I2CConstants.DEFAULT_CLOCK_FREQUENCY, 
+        ByteOrder.BIG_ENDIAN);
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public BoardPinInfo getBoardPinInfo() {
+    return boardPinInfo;
+  }
+
+  @Override
+  public int getBoardPwmFrequency() {
+    return boardPwmFrequency;
+  }
+
+  @Override
+  public void setBoardPwmFrequency(int pwmFrequency) {
+    boardPwmFrequency = pwmFrequency;
+  }
+
+  @Override
+  public PwmOutputDeviceInterface createPwmOutputDevice(String key, PinInfo pinInfo, int pwmFrequency, float initialValue) {
+    return new SimulatedPwmOutputDevice(key, this, pinInfo.getDeviceNumber(), pwmFrequency, initialValue);
+  }
+
+  @Override
+  public I2CDeviceInterface createI2CDevice(String key, int controller, int address, int addressSize, int clockFrequency) {
+    return new SimulatedDigisparkDevice(key, this);
+  }
+
+  private static class SimulatedBoardPinInfo extends BoardPinInfo {
+    SimulatedBoardPinInfo() {
+      for (int gpio = 0; gpio < GPIO_COUNT; gpio++) {
+        addPwmPinInfo(gpio, gpio, gpio, EnumSet.of(DeviceMode.PWM_OUTPUT));
+      }
+    }
+  }
+
+  private class SimulatedPwmOutputDevice extends AbstractDevice implements PwmOutputDeviceInterface {
+    private final int gpio;
+    private final int pwmFrequency;
+    private final ServoModel model;
+    private float value;
+
+    SimulatedPwmOutputDevice(String key, SimulatedDeviceFactory factory, int gpio, int pwmFrequency, float initialValue) {
+      super(key, factory);
+      this.gpio = gpio;
+      this.pwmFrequency = pwmFrequency;
+      this.model = servoModels.get(gpio);
+      setValue(initialValue);
+    }
+
+    @Override
+    public int getGpio() {
+      return gpio;
+    }
+
+    @Override
+    public int getPwmNum() {
+      return gpio;
+    }
+
+    @Override
+    public float getValue() {
+      return value;
+    }
+
+    @Override
+    public void setValue(float value) {
+      this.value = value;
+      if (model != null) {
+        // The value is the fraction of each period that the pulse is high
+        model.setPulseWidthMs(value * 1000 / pwmFrequency);
+      }
+    }
+
+    @Override
+    protected void closeDevice() {
+    }
+  }
+
+  /**
+   * Registers are the left then right duty cycle x 10, each little endian.
+   */
+  private class SimulatedDigisparkDevice extends AbstractDevice implements I2CDeviceInterface {
+    private int register;
+
+    SimulatedDigisparkDevice(String key, SimulatedDeviceFactory factory) {
+      super(key, factory);
+    }
+
+    private byte registerValue(int register) {
+      ServoModel model = (register % DIGISPARK_REGISTER_COUNT) < 2 ? leftFeedbackModel : rightFeedbackModel;
+      int dutyCycle = (model == null) ? 0 : model.getFeedbackDutyCycleX10();
+      return (byte)((register % 2 == 0) ? dutyCycle : dutyCycle >> 8);
+    }
+
+    @Override
+    public boolean probe(I2CDevice.ProbeMode mode) {
+      return true;
+    }
+
+    @Override
+    public byte readByte() {
+      return registerValue(register++);
+    }
+
+    @Override
+    public void writeByte(byte b) {
+      register = b;
+    }
+
+    @Override
+    public void read(ByteBuffer buffer) {
+      while (buffer.hasRemaining()) {
+        buffer.put(readByte());
+      }
+    }
+
+    @Override
+    public void write(ByteBuffer buffer) {
+      if (buffer.hasRemaining()) {
+        register = buffer.get();
+      }
+    }
+
+    @Override
+    public byte readByteData(int register) {
+      return registerValue(register);
+    }
+
+    @Override
+    public void writeByteData(int register, byte b) {
+      throw new RuntimeIOException("The Digispark encoder registers are read only");
+    }
+
+    @Override
+    public void readI2CBlockData(int register, int subAddressSize, ByteBuffer buffer) {
+      this.register = register;
+      read(buffer);
+    }
+
+    @Override
+    public void writeI2CBlockData(int register, int subAddressSize, ByteBuffer buffer) {
+      throw new RuntimeIOException("The Digispark encoder registers are read only");
+    }
+
+    @Override
+    protected void closeDevice() {
+    }
+  }
+}
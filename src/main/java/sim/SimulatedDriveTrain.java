@@ -0,0 +1,102 @@
+package sim;
+
+import com.diozero.devices.Servo;
+
+import devices.DigisparkFeedbackEncoder;
+import devices.ParallaxHallEffectFeedbackSensor;
+import devices.ParallaxHallEffectFeedbackSensor.UnwrapMode;
+import devices.ParallaxHallEffectFeedbackSensor.WheelSide;
+import oi.OperatorInterface;
+import subsystems.DriveTrain;
+
+/**
+ * The robot's drive train on simulated hardware, wired the way Main wires
+ * the real one: two Parallax 360 servo models behind a simulated device
+ * factory, the Digispark encoder reporting them and a DriveTrain on a
+ * simulated clock. step() moves the wheels and the clock on together.
+ */
+public class SimulatedDriveTrain implements AutoCloseable {
+  public static final int LEFT_WHEEL_PIN = 24;
+  public static final int RIGHT_WHEEL_PIN = 23;
+  public static final int ENCODER_BUS = 1;
+  public static final int ENCODER_ADDRESS = 0x04;
+  public static final Servo.Trim TRIM = new Servo.Trim(1.5f, 1.5f, 1.28f, 1.72f);
+
+  private final SimulatedClock clock;
+  private final SimulatedDeviceFactory deviceFactory = new SimulatedDeviceFactory();
+  private final ServoModel leftWheel = ServoModel.parallax360HighSpeed();
+  private final ServoModel rightWheel = ServoModel.parallax360HighSpeed();
+  private final Servo leftWheelServo;
+  private final Servo rightWheelServo;
+  private final DigisparkFeedbackEncoder encoder;
+  private final DriveTrain driveTrain;
+
+  public SimulatedDriveTrain(OperatorInterface operatorInterface) {
+    this(new SimulatedClock(), operatorInterface);
+  }
+
+  /**
+   * @param clock               Clock shared with anything else simulated, such as a ScriptedGamepad
+   * @param operatorInterface   Operator interface for the drive train's commands
+   */
+  public SimulatedDriveTrain(SimulatedClock clock, OperatorInterface operatorInterface) {
+    this.clock = clock;
+    deviceFactory.attachServoModel(LEFT_WHEEL_PIN, leftWheel);
+    deviceFactory.attachServoModel(RIGHT_WHEEL_PIN, rightWheel);
+    deviceFactory.attachFeedbackModels(leftWheel, rightWheel);
+    this.leftWheelServo = newWheelServo(deviceFactory, WheelSide.LEFT, TRIM);
+    this.rightWheelServo = newWheelServo(deviceFactory, WheelSide.RIGHT, TRIM);
+    this.encoder = new DigisparkFeedbackEncoder(deviceFactory.newI2CDevice(ENCODER_BUS, ENCODER_ADDRESS));
+    this.driveTrain = new DriveTrain(TRIM, 
+        leftWheelServo, 
+        rightWheelServo, 
+        encoder, 
+        new ParallaxHallEffectFeedbackSensor(encoder, WheelSide.LEFT, UnwrapMode.VELOCITY), 
+        new ParallaxHallEffectFeedbackSensor(encoder, WheelSide.RIGHT, UnwrapMode.VELOCITY), 
+        operatorInterface, 
+        clock);
+  }
+
+  /**
+   * Open a wheel servo on its pin, the left one inverted as on the robot.
+   */
+  public static Servo newWheelServo(SimulatedDeviceFactory deviceFactory, WheelSide side, Servo.Trim trim) {
+    if (side == WheelSide.LEFT) {
+      Servo servo = deviceFactory.newServo(LEFT_WHEEL_PIN, trim.getMidPulseWidthMs(), 50, trim);
+      servo.setInverted(true);
+      return servo;
+    }
+    return deviceFactory.newServo(RIGHT_WHEEL_PIN, trim.getMidPulseWidthMs(), 50, trim);
+  }
+
+  /**
+   * Move the wheels and then the clock on by one period.
+   */
+  public void step(long periodNanos) {
+    leftWheel.step(periodNanos / 1e9);
+    rightWheel.step(periodNanos / 1e9);
+    clock.advance(periodNanos);
+  }
+
+  @Override
+  public void close() {
+    leftWheelServo.close();
+    rightWheelServo.close();
+  }
+
+  public SimulatedClock getClock() {
+    return clock;
+  }
+
+  public ServoModel getLeftWheel() {
+    return leftWheel;
+  }
+
+  public ServoModel getRightWheel() {
+    return rightWheel;
+  }
+
+  public DriveTrain getDriveTrain() {
+    return driveTrain;
+  }
+}
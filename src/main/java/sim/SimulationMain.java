@@ -0,0 +1,63 @@
+package sim;
+
+import edu.wpi.first.wpilibj.command.Scheduler;
+
+import org.pmw.tinylog.Logger;
+
+import loop.LatencyHistogram;
+import motion.DriveGeometry;
+import oi.OperatorInterface;
+import subsystems.DriveTrain;
+import subsystems.Odometry;
+
+/**
+ * Runs the robot program against simulated servos, encoder and gamepad,
+ * as fast as the CPU allows. Reports how long each control loop tick took
+ * in real time and how far odometry drifted from the simulated wheels.
+ * 
+ * Arguments: [control period in ms, default 20] [times to repeat the drive script, default 1]
+ */
+public class SimulationMain {
+  public static void main(String[] args) {
+    long periodMs = args.length > 0 ? Long.parseLong(args[0]) : 20;
+    int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+    long periodNanos = periodMs * 1000000;
+
+    // The same robot that Main builds, on simulated hardware
+    SimulatedClock clock = new SimulatedClock();
+    ScriptedGamepad gamepad = ScriptedGamepad.driveTest(clock, repeats);
+    OperatorInterface operatorInterface = new OperatorInterface(gamepad, 0);
+    SimulatedDriveTrain robot = new SimulatedDriveTrain(clock, operatorInterface);
+    DriveTrain driveTrain = robot.getDriveTrain();
+    Odometry odometry = new Odometry(DriveGeometry.learningBot());
+    driveTrain.setFeedbackListener(odometry);
+
+    Scheduler scheduler = Scheduler.getInstance();
+    LatencyHistogram tickLatency = new LatencyHistogram();
+    long ticks = 0;
+    long wallStart = System.nanoTime();
+    while (!gamepad.isFinished()) {
+      robot.step(periodNanos);
+      long start = System.nanoTime();
+      scheduler.run();
+      tickLatency.record(System.nanoTime() - start);
+      ticks++;
+    }
+    long wallNanos = System.nanoTime() - wallStart;
+
+    Logger.info(String.format("Simulated %.1fs in %.3fs (%.0fx real time), %d ticks every %dms",
+        clock.getAsLong() / 1e9, wallNanos / 1e9, clock.getAsLong() / (double)wallNanos, ticks, periodMs));
+    Logger.info(String.format("Tick latency p50=%.3fms p99=%.3fms max=%.3fms",
+        tickLatency.getPercentileNanos(50) / 1e6, 
+        tickLatency.getPercentileNanos(99) / 1e6, 
+        tickLatency.getMaxNanos() / 1e6));
+    Logger.info(String.format("Servo writes %d, suppressed as unchanged %d",
+        driveTrain.getServoWriteCount(),
+        driveTrain.getServoSuppressedCount()));
+    Logger.info(String.format("Odometry error left=%d ticks right=%d ticks",
+        driveTrain.getLeftWheelTickCount() - (long)Math.floor(robot.getLeftWheel().getAngleDegrees()),
+        driveTrain.getRightWheelTickCount() - (long)Math.floor(robot.getRightWheel().getAngleDegrees())));
+    Logger.info("Pose " + odometry.getPose());
+    robot.close();
+  }
+}
@@ -2,7 +2,18 @@ package subsystems;
 
 import commands.*;
 import devices.DigisparkFeedbackEncoder;
+import devices.EncoderBusManager;
+import devices.FeedbackAcquisitionService;
+import devices.FeedbackListener;
+import devices.FeedbackSample;
 import devices.ParallaxHallEffectFeedbackSensor;
+import devices.ParallaxHallEffectFeedbackSensor.WheelSide;
+import devices.ServoOutput;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 import com.diozero.devices.Servo;
 import com.diozero.devices.Servo.Trim;
@@ -13,17 +24,40 @@ import org.pmw.tinylog.Logger;
 import edu.wpi.first.wpilibj.command.Command;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
+import loop.LoopTiming;
 import oi.OperatorInterface;
+import replay.DriveRecorder;
 
 public class DriveTrain extends Subsystem {
+  private static final int NO_DRIVE_SET = Integer.MIN_VALUE;
+
+  // The left servo is mounted mirrored and inverted, so its feedback counts the other way
+  public static final int LEFT_FEEDBACK_DIRECTION = -1;
+  public static final int RIGHT_FEEDBACK_DIRECTION = 1;
+
   private final Servo leftWheelServo;
   private final Servo rightWheelServo;
-  private final DigisparkFeedbackEncoder digisparkFeedbackEncoder;
-  private final ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor;
-  private final ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor;
+  private final ServoOutput leftWheelOutput;
+  private final ServoOutput rightWheelOutput;
+  private final FeedbackAcquisitionService feedbackAcquisitionService;
   private final Trim trim;
   private final OperatorInterface operatorInterface;
+  private final LongSupplier clock;
   private Command defaultCommand;
+  private volatile boolean closedLoop;
+  private ScheduledExecutorService velocityLoop;
+  private boolean startedFeedbackAcquisition;
+  private WheelVelocityController leftWheelVelocityController;
+  private WheelVelocityController rightWheelVelocityController;
+  private double maxTicksPerSecond;
+  private volatile double leftWheelTargetTicksPerSecond;
+  private volatile double rightWheelTargetTicksPerSecond;
+  private long lastVelocityLoopNanos;
+  private volatile DriveRecorder recorder;
+  private volatile boolean batchedServoOutputs;
+  private volatile int leftWheelDrivePct = NO_DRIVE_SET;
+  private volatile int rightWheelDrivePct = NO_DRIVE_SET;
+  private volatile ScheduledExecutorService servoReconciler;
 
   public DriveTrain(Trim trim, 
       Servo leftWheelServo, 
@@ -32,85 +66,338 @@ public class DriveTrain extends Subsystem {
       ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor,
       ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor,
       OperatorInterface operatorInterface) {
+    this(trim, 
+        leftWheelServo, 
+        rightWheelServo, 
+        digisparkFeedbackEncoder, 
+        leftWheelFeedbackSensor, 
+        rightWheelFeedbackSensor, 
+        operatorInterface, 
+        System::nanoTime);
+  }
+
+  /**
+   * @param clock   Source of timestamps in nanoseconds for feedback and control, normally System::nanoTime
+   */
+  public DriveTrain(Trim trim, 
+      Servo leftWheelServo, 
+      Servo rightWheelServo,
+      DigisparkFeedbackEncoder digisparkFeedbackEncoder, 
+      ParallaxHallEffectFeedbackSensor leftWheelFeedbackSensor,
+      ParallaxHallEffectFeedbackSensor rightWheelFeedbackSensor,
+      OperatorInterface operatorInterface,
+      LongSupplier clock) {
+    this(trim, 
+        leftWheelServo, 
+        rightWheelServo, 
+        new FeedbackAcquisitionService(
+            digisparkFeedbackEncoder, 
+            leftWheelFeedbackSensor, 
+            rightWheelFeedbackSensor,
+            FeedbackAcquisitionService.DEFAULT_VELOCITY_WINDOW,
+            clock), 
+        operatorInterface, 
+        clock);
+  }
+
+  /**
+   * @param feedbackAcquisitionService  Reads the wheel feedback sensors, inline or in the background
+   * @param clock                       Source of timestamps in nanoseconds for control, normally System::nanoTime
+   */
+  public DriveTrain(Trim trim, 
+      Servo leftWheelServo, 
+      Servo rightWheelServo,
+      FeedbackAcquisitionService feedbackAcquisitionService,
+      OperatorInterface operatorInterface,
+      LongSupplier clock) {
     super("DriveTrain");
     this.trim = trim;
     this.leftWheelServo = leftWheelServo;
     this.rightWheelServo = rightWheelServo;
-    this.digisparkFeedbackEncoder = digisparkFeedbackEncoder;
-    this.leftWheelFeedbackSensor = leftWheelFeedbackSensor;
-    this.rightWheelFeedbackSensor = rightWheelFeedbackSensor;
+    // The left servo is set inverted, so it reads back mirrored around the mid pulse width
+    this.leftWheelOutput = new ServoOutput(leftWheelServo, ServoOutput.DEFAULT_EPSILON_MS, true, trim.getMidPulseWidthMs());
+    this.rightWheelOutput = new ServoOutput(rightWheelServo);
+    this.feedbackAcquisitionService = feedbackAcquisitionService;
     this.operatorInterface = operatorInterface;
+    this.clock = clock;
   }
 
   /**
-   * Make the left wheel move.
+   * Make the left wheel move. In closed loop mode this asks for the
+   * same percentage of the maximum wheel speed instead.
    * @param pct   A percentage of power from -100 to 100.
    */
   public void setLeftWheelDrive(int pct) {
-    try {
-      setWheelDrive(pct, leftWheelServo);
-    } catch (RuntimeIOException e) {
-      Logger.error("Error setting left wheel drive percentage: " + e.getMessage());
+    if (closedLoop) {
+      setLeftWheelSpeed(maxTicksPerSecond * pct / 100);
+    } else {
+      setLeftWheelDrive((float)pct);
     }
   }
 
   /**
-   * Make the right wheel move.
+   * Make the right wheel move. In closed loop mode this asks for the
+   * same percentage of the maximum wheel speed instead.
    * @param pct   A percentage of power from -100 to 100.
    */
   public void setRightWheelDrive(int pct) {
-    try {
-      setWheelDrive(pct, rightWheelServo);
-    } catch (RuntimeIOException e) {
-      Logger.error("Error setting right wheel drive percentage: " + e.getMessage());
+    if (closedLoop) {
+      setRightWheelSpeed(maxTicksPerSecond * pct / 100);
+    } else {
+      setRightWheelDrive((float)pct);
     }
   }
 
+  private void setLeftWheelDrive(float pct) {
+    setWheelDrive(pct, leftWheelOutput, WheelSide.LEFT);
+  }
+
+  private void setRightWheelDrive(float pct) {
+    setWheelDrive(pct, rightWheelOutput, WheelSide.RIGHT);
+  }
+
   /**
    * Centralized method to make drive train servos move at a given
    * rate with is a percentage of max.
    * @param pct     A percentage of power from -100 to 100
-   * @param servo   The servo to set
+   * @param output  The servo output to set
+   * @param side    Which wheel the servo drives
    */
-  private void setWheelDrive(int pct, Servo servo) {
+  private void setWheelDrive(float pct, ServoOutput output, WheelSide side) {
+    float pulseWidthMs;
     if (pct > 0) {
       float scale = trim.getMaxPulseWidthMs() - trim.getMidPulseWidthMs();
-      servo.setPulseWidthMs(trim.getMidPulseWidthMs() + (scale * pct / 100));
+      pulseWidthMs = trim.getMidPulseWidthMs() + (scale * pct / 100);
     } else if (pct < 0) {
       float scale = trim.getMidPulseWidthMs() - trim.getMinPulseWidthMs();
-      servo.setPulseWidthMs(trim.getMidPulseWidthMs() + (scale * pct / 100));
+      pulseWidthMs = trim.getMidPulseWidthMs() + (scale * pct / 100);
+    } else {
+      pulseWidthMs = trim.getMidPulseWidthMs();
+    }
+    output.set(pulseWidthMs);
+    if (side == WheelSide.LEFT) {
+      leftWheelDrivePct = Math.round(pct);
     } else {
-      servo.setPulseWidthMs(trim.getMidPulseWidthMs());
+      rightWheelDrivePct = Math.round(pct);
+    }
+    DriveRecorder recorder = this.recorder;
+    if (recorder != null) {
+      recorder.recordServo(clock.getAsLong(), side, pulseWidthMs);
+    }
+    if (!batchedServoOutputs) {
+      flushServoOutput(output, side);
     }
   }
 
   /**
-   * Get the percentage of power being applied to the right wheel.
+   * Write the servo pulse widths set since the last flush, skipping any that
+   * did not change. With batched servo outputs nothing reaches the servos
+   * until this is called, so call it once per tick after the commands run.
+   */
+  public void flushServoOutputs() {
+    flushServoOutput(leftWheelOutput, WheelSide.LEFT);
+    flushServoOutput(rightWheelOutput, WheelSide.RIGHT);
+  }
+
+  private void flushServoOutput(ServoOutput output, WheelSide side) {
+    long start = LoopTiming.start();
+    try {
+      output.flush();
+    } catch (RuntimeIOException e) {
+      Logger.error("Error setting " + side.name().toLowerCase() + " wheel drive percentage: " + e.getMessage());
+    } finally {
+      LoopTiming.stop(LoopTiming.Stage.SERVO_WRITE, start);
+    }
+  }
+
+  /**
+   * Hold servo writes until flushServoOutputs(), so that each servo is
+   * written at most once per tick however often the commands set it.
+   * Off by default, when every set is written straight away.
+   */
+  public void setBatchedServoOutputs(boolean batchedServoOutputs) {
+    this.batchedServoOutputs = batchedServoOutputs;
+    if (!batchedServoOutputs) {
+      flushServoOutputs();
+    }
+  }
+
+  public boolean isBatchedServoOutputs() {
+    return batchedServoOutputs;
+  }
+
+  /**
+   * @param epsilonMs   Largest servo pulse width change in milliseconds that is not written
+   */
+  public void setServoPulseWidthEpsilonMs(float epsilonMs) {
+    leftWheelOutput.setEpsilonMs(epsilonMs);
+    rightWheelOutput.setEpsilonMs(epsilonMs);
+  }
+
+  /**
+   * @return  Number of pulse widths written to the servos.
+   */
+  public long getServoWriteCount() {
+    return leftWheelOutput.getWriteCount() + rightWheelOutput.getWriteCount();
+  }
+
+  /**
+   * @return  Number of pulse widths set but not written, because they had not changed.
+   */
+  public long getServoSuppressedCount() {
+    return leftWheelOutput.getSuppressedCount() + rightWheelOutput.getSuppressedCount();
+  }
+
+  /**
+   * @return  Number of feedback acquisitions skipped because the encoder could not be read.
+   */
+  public long getFeedbackStaleCount() {
+    return feedbackAcquisitionService.getStaleCount();
+  }
+
+  /**
+   * Ask for a left wheel speed. Only has an effect in closed loop mode.
+   * @param ticksPerSecond  Target speed; positive drives forward
+   */
+  public void setLeftWheelSpeed(double ticksPerSecond) {
+    leftWheelTargetTicksPerSecond = ticksPerSecond;
+  }
+
+  /**
+   * Ask for a right wheel speed. Only has an effect in closed loop mode.
+   * @param ticksPerSecond  Target speed; positive drives forward
+   */
+  public void setRightWheelSpeed(double ticksPerSecond) {
+    rightWheelTargetTicksPerSecond = ticksPerSecond;
+  }
+
+  /**
+   * Drive the wheels at requested speeds using the hall effect feedback.
+   * From now on a control loop on its own thread owns the servos, and the
+   * percentages given to setLeftWheelDrive() and setRightWheelDrive() become
+   * percentages of the maximum speed in the gains. The loop only reads the
+   * published feedback sample, so feedback acquisition is started at the
+   * same period if it is not already running.
+   * @param gains       Controller gains for both wheels
+   * @param periodMs    Time between control loop runs in milliseconds
+   */
+  public synchronized void enableClosedLoop(VelocityGains gains, long periodMs) {
+    if (closedLoop) {
+      return;
+    }
+    if (!feedbackAcquisitionService.isRunning()) {
+      feedbackAcquisitionService.start(periodMs);
+      startedFeedbackAcquisition = true;
+    }
+    enableClosedLoop(gains);
+    ScheduledExecutorService loop = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "DriveTrainVelocityLoop");
+      thread.setDaemon(true);
+      return thread;
+    });
+    loop.scheduleAtFixedRate(this::runVelocityLoopSafely, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    velocityLoop = loop;
+    Logger.info("Drive train closed loop started every " + periodMs + "ms.");
+  }
+
+  /**
+   * Drive the wheels at requested speeds without a control loop thread;
+   * the caller runs runVelocityLoop() once per period instead, after
+   * acquiring feedback. Used by simulations that step their own clock.
+   * @param gains   Controller gains for both wheels
+   */
+  public synchronized void enableClosedLoop(VelocityGains gains) {
+    if (closedLoop) {
+      return;
+    }
+    leftWheelVelocityController = new WheelVelocityController(gains);
+    rightWheelVelocityController = new WheelVelocityController(gains);
+    maxTicksPerSecond = gains.getMaxTicksPerSecond();
+    leftWheelTargetTicksPerSecond = 0;
+    rightWheelTargetTicksPerSecond = 0;
+    lastVelocityLoopNanos = clock.getAsLong();
+    closedLoop = true;
+  }
+
+  public synchronized void disableClosedLoop() {
+    if (!closedLoop) {
+      return;
+    }
+    if (velocityLoop != null) {
+      velocityLoop.shutdownNow();
+      velocityLoop = null;
+    }
+    if (startedFeedbackAcquisition) {
+      feedbackAcquisitionService.stop();
+      startedFeedbackAcquisition = false;
+    }
+    closedLoop = false;
+    stop();
+  }
+
+  public boolean isClosedLoop() {
+    return closedLoop;
+  }
+
+  private void runVelocityLoopSafely() {
+    try {
+      runVelocityLoop();
+    } catch (RuntimeException e) {
+      // Keep the loop alive; an exception would cancel the schedule
+      Logger.error("Error running drive train closed loop: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Set both wheels from their controllers, using the speeds in the latest
+   * feedback sample. Called by the control loop thread; only call directly
+   * after enableClosedLoop(gains).
+   */
+  public void runVelocityLoop() {
+    long now = clock.getAsLong();
+    double periodSeconds = (now - lastVelocityLoopNanos) / 1e9;
+    lastVelocityLoopNanos = now;
+    FeedbackSample sample = feedbackAcquisitionService.getSample();
+    setLeftWheelDrive((float)leftWheelVelocityController.calculate(
+        leftWheelTargetTicksPerSecond, 
+        LEFT_FEEDBACK_DIRECTION * sample.getLeftTicksPerSecond(), 
+        periodSeconds));
+    setRightWheelDrive((float)rightWheelVelocityController.calculate(
+        rightWheelTargetTicksPerSecond, 
+        RIGHT_FEEDBACK_DIRECTION * sample.getRightTicksPerSecond(), 
+        periodSeconds));
+    flushServoOutputs();
+  }
+
+  /**
+   * Get the percentage of power last set for the right wheel. With batched
+   * servo outputs it reaches the servo at the next flush.
    * @return  An integer between -100 and 100.
    */
   public int getRightWheelDrive() {
-    return getWheelDrive(rightWheelServo);
+    int pct = rightWheelDrivePct;
+    if (pct == NO_DRIVE_SET) {
+      // Nothing set yet, so only the servo knows
+      return toWheelDrivePct(rightWheelServo.getPulseWidthMs());
+    }
+    return pct;
   }
 
   /**
-   * Get the percentage of power being applied to the left wheel.
+   * Get the percentage of power last set for the left wheel. With batched
+   * servo outputs it reaches the servo at the next flush.
    * @return  An integer between -100 and 100.
    */
   public int getLeftWheelDrive() {
-    return -getWheelDrive(leftWheelServo);
-    /*
-    if (pct > 0) {
-      return pct - 100;
-    } else if (pct < 0) {
-      return 100 + pct;
-    } else {
-      return 0;
+    int pct = leftWheelDrivePct;
+    if (pct == NO_DRIVE_SET) {
+      // Nothing set yet, so only the servo knows, and it reports inverted pulse widths
+      return -toWheelDrivePct(leftWheelServo.getPulseWidthMs());
     }
-    */
+    return pct;
   }
 
-  private int getWheelDrive(Servo servo) {
-    float pulseWidthMs = servo.getPulseWidthMs();
+  private int toWheelDrivePct(float pulseWidthMs) {
     float pct = 0;
     if (pulseWidthMs > trim.getMidPulseWidthMs()) {
       float scale = trim.getMaxPulseWidthMs() - trim.getMidPulseWidthMs();
@@ -122,23 +409,160 @@ public class DriveTrain extends Subsystem {
     return (int)Math.round(pct);
   }
 
+  /**
+   * Check once that the servos are at the pulse widths last written, and
+   * write any that are not again.
+   * @param toleranceMs   Largest pulse width difference in milliseconds that still matches
+   * @return  True if both servos matched.
+   */
+  public boolean reconcileServoOutputs(float toleranceMs) {
+    boolean leftMatched = leftWheelOutput.reconcile(toleranceMs);
+    boolean rightMatched = rightWheelOutput.reconcile(toleranceMs);
+    return leftMatched && rightMatched;
+  }
+
+  /**
+   * Reconcile the servos with what was written on a background thread.
+   * Each check reads both servos back from the hardware.
+   * @param periodMs      Time between checks in milliseconds
+   * @param toleranceMs   Largest pulse width difference in milliseconds that still matches
+   */
+  public synchronized void startServoReconciliation(long periodMs, float toleranceMs) {
+    if (servoReconciler != null) {
+      return;
+    }
+    servoReconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ServoReconciler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    servoReconciler.scheduleAtFixedRate(() -> {
+      try {
+        reconcileServoOutputs(toleranceMs);
+      } catch (RuntimeException e) {
+        // Keep the reconciler alive; an exception would cancel the schedule
+        Logger.error("Error reconciling servo outputs: " + e.getMessage());
+      }
+    }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    Logger.info("Servo reconciliation started every " + periodMs + "ms.");
+  }
+
+  public synchronized void stopServoReconciliation() {
+    if (servoReconciler != null) {
+      servoReconciler.shutdownNow();
+      servoReconciler = null;
+    }
+  }
+
+  /**
+   * @return  Number of times a servo was found not to be at the pulse width last written.
+   */
+  public long getServoMismatchCount() {
+    return leftWheelOutput.getMismatchCount() + rightWheelOutput.getMismatchCount();
+  }
+
   public long getLeftWheelTickCount() {
-    return leftWheelFeedbackSensor.getTickCount();
+    return feedbackAcquisitionService.getSample().getLeftTickCount();
   }
 
   public long getRightWheelTickCount() {
-    return rightWheelFeedbackSensor.getTickCount();
+    return feedbackAcquisitionService.getSample().getRightTickCount();
+  }
+
+  /**
+   * @return  Left wheel speed in ticks per second, averaged over the last few samples.
+   */
+  public double getLeftWheelTicksPerSecond() {
+    return feedbackAcquisitionService.getSample().getLeftTicksPerSecond();
+  }
+
+  /**
+   * @return  Right wheel speed in ticks per second, averaged over the last few samples.
+   */
+  public double getRightWheelTicksPerSecond() {
+    return feedbackAcquisitionService.getSample().getRightTicksPerSecond();
+  }
+
+  public double getLeftWheelRpm() {
+    return feedbackAcquisitionService.getLeftWheelVelocityEstimator().getRpm();
+  }
+
+  public double getRightWheelRpm() {
+    return feedbackAcquisitionService.getRightWheelVelocityEstimator().getRpm();
+  }
+
+  public double getLeftWheelTicksPerSecondSquared() {
+    return feedbackAcquisitionService.getLeftWheelVelocityEstimator().getTicksPerSecondSquared();
+  }
+
+  public double getRightWheelTicksPerSecondSquared() {
+    return feedbackAcquisitionService.getRightWheelVelocityEstimator().getTicksPerSecondSquared();
+  }
+
+  /**
+   * Get both wheel tick counts from the same encoder read.
+   * @return  The latest feedback sample; never null.
+   */
+  public FeedbackSample getFeedbackSample() {
+    return feedbackAcquisitionService.getSample();
+  }
+
+  /**
+   * Read the feedback sensors on a background thread from now on, which
+   * makes updateFeedbackSensors() a no-op.
+   * @param periodMs  Time between encoder reads in milliseconds
+   */
+  public void startFeedbackAcquisition(long periodMs) {
+    feedbackAcquisitionService.start(periodMs);
+  }
+
+  public synchronized void stopFeedbackAcquisition() {
+    feedbackAcquisitionService.stop();
+    startedFeedbackAcquisition = false;
   }
 
+  /**
+   * Read the feedback sensors inline, unless they are already being
+   * read in the background.
+   */
   public void updateFeedbackSensors() {
-    digisparkFeedbackEncoder.update();
-    leftWheelFeedbackSensor.update();
-    rightWheelFeedbackSensor.update();
+    if (!feedbackAcquisitionService.isRunning()) {
+      feedbackAcquisitionService.acquire();
+    }
+  }
+
+  /**
+   * Record servo writes and feedback acquisitions from now on.
+   * @param recorder  The recorder, or null to stop recording
+   */
+  public void setRecorder(DriveRecorder recorder) {
+    this.recorder = recorder;
+    feedbackAcquisitionService.setRecorder(recorder);
+  }
+
+  /**
+   * Tell a listener about every feedback acquisition from now on.
+   * @param listener  The listener, or null to stop telling it
+   */
+  public void setFeedbackListener(FeedbackListener listener) {
+    feedbackAcquisitionService.setListener(listener);
+  }
+
+  /**
+   * Read the wheel encoder as one board of a bus from now on, along with
+   * the bus's other boards.
+   * @param encoderBus  A bus with the wheel encoder as its DRIVE_PRIORITY board, or null to read it directly
+   */
+  public void setEncoderBus(EncoderBusManager encoderBus) {
+    feedbackAcquisitionService.setEncoderBus(encoderBus);
   }
 
   public void stop() {
-    leftWheelServo.setPulseWidthMs(trim.getMidPulseWidthMs());
-    rightWheelServo.setPulseWidthMs(trim.getMidPulseWidthMs());
+    leftWheelTargetTicksPerSecond = 0;
+    rightWheelTargetTicksPerSecond = 0;
+    leftWheelOutput.set(trim.getMidPulseWidthMs());
+    rightWheelOutput.set(trim.getMidPulseWidthMs());
+    flushServoOutputs();
   }
 
   protected void initDefaultCommand() {
@@ -0,0 +1,138 @@
+package subsystems;
+
+import java.util.concurrent.locks.StampedLock;
+
+import devices.FeedbackListener;
+import motion.DriveGeometry;
+import motion.Pose;
+
+/**
+ * Tracks where the robot is on the field by integrating the distance each
+ * wheel turns, on the feedback acquisition thread at the acquisition rate.
+ * Updates only touch primitive fields, so they allocate nothing. Readers get
+ * x, y and heading from the same update through an optimistic read that
+ * retries if an update was under way, so they never see a half written pose
+ * and never hold the acquisition thread up.
+ * <p>
+ * Register it with DriveTrain.setFeedbackListener(). Each update moves the
+ * robot along an arc approximated at the heading half way through it, which
+ * is accurate to second order in the turn per update.
+ */
+public class Odometry implements FeedbackListener {
+  private final DriveGeometry geometry;
+  private final StampedLock lock = new StampedLock();
+  private boolean started;
+  private long lastLeftTickCount;
+  private long lastRightTickCount;
+  private double xMeters;
+  private double yMeters;
+  private double headingRadians;
+  private long timestampNanos;
+  private long updateCount;
+
+  /**
+   * @param geometry  Wheel size and track width of the robot
+   */
+  public Odometry(DriveGeometry geometry) {
+    this.geometry = geometry;
+  }
+
+  @Override
+  public void feedbackAcquired(long timestampNanos, long leftTickCount, long rightTickCount) {
+    if (!started) {
+      // Nothing to integrate until there are two readings
+      lastLeftTickCount = leftTickCount;
+      lastRightTickCount = rightTickCount;
+      started = true;
+      return;
+    }
+    double leftMeters = geometry.ticksToMeters(
+        DriveTrain.LEFT_FEEDBACK_DIRECTION * (leftTickCount - lastLeftTickCount));
+    double rightMeters = geometry.ticksToMeters(
+        DriveTrain.RIGHT_FEEDBACK_DIRECTION * (rightTickCount - lastRightTickCount));
+    lastLeftTickCount = leftTickCount;
+    lastRightTickCount = rightTickCount;
+    double meters = (leftMeters + rightMeters) / 2;
+    double turnRadians = (rightMeters - leftMeters) / geometry.getTrackWidthMeters();
+
+    long stamp = lock.writeLock();
+    try {
+      double midHeadingRadians = headingRadians + turnRadians / 2;
+      xMeters += meters * Math.cos(midHeadingRadians);
+      yMeters += meters * Math.sin(midHeadingRadians);
+      headingRadians += turnRadians;
+      this.timestampNanos = timestampNanos;
+      updateCount++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Say where the robot is now; later updates move it from there.
+   */
+  public void reset(double xMeters, double yMeters, double headingRadians) {
+    long stamp = lock.writeLock();
+    try {
+      this.xMeters = xMeters;
+      this.yMeters = yMeters;
+      this.headingRadians = headingRadians;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Copy the pose into an array without allocating.
+   * @param pose  Filled with x and y in meters and heading in radians
+   * @return  The acquisition timestamp of the pose.
+   */
+  public long getPose(double[] pose) {
+    long stamp = lock.tryOptimisticRead();
+    double x = xMeters;
+    double y = yMeters;
+    double heading = headingRadians;
+    long timestamp = timestampNanos;
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        x = xMeters;
+        y = yMeters;
+        heading = headingRadians;
+        timestamp = timestampNanos;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    pose[0] = x;
+    pose[1] = y;
+    pose[2] = heading;
+    return timestamp;
+  }
+
+  /**
+   * @return  A snapshot of the pose; never null.
+   */
+  public Pose getPose() {
+    double[] pose = new double[3];
+    getPose(pose);
+    return new Pose(pose[0], pose[1], pose[2]);
+  }
+
+  /**
+   * @return  Number of feedback acquisitions integrated so far.
+   */
+  public long getUpdateCount() {
+    long stamp = lock.tryOptimisticRead();
+    long count = updateCount;
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        count = updateCount;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,63 @@
+package subsystems;
+
+/**
+ * Gains for closed loop wheel speed control. Speeds are in encoder
+ * ticks per second and the output is a drive percentage from -100 to 100.
+ */
+public final class VelocityGains {
+  private final double kP;
+  private final double kI;
+  private final double kD;
+  private final double kF;
+  private final double kS;
+  private final double maxTicksPerSecond;
+
+  /**
+   * @param kP                  Percent per tick/s of speed error
+   * @param kI                  Percent per tick of accumulated speed error
+   * @param kD                  Percent per tick/s^2 of change in speed error
+   * @param kF                  Percent per tick/s of target speed
+   * @param kS                  Percent needed to overcome static friction, applied in the direction of the target
+   * @param maxTicksPerSecond   Wheel speed that a 100% drive request asks for
+   */
+  public VelocityGains(double kP, double kI, double kD, double kF, double kS, double maxTicksPerSecond) {
+    this.kP = kP;
+    this.kI = kI;
+    this.kD = kD;
+    this.kF = kF;
+    this.kS = kS;
+    this.maxTicksPerSecond = maxTicksPerSecond;
+  }
+
+  /**
+   * Gains for the 120rpm Parallax 900-00360 on the learning bot's trim,
+   * which needs about 9% to get out of its deadband.
+   */
+  public static VelocityGains parallax360HighSpeed() {
+    return new VelocityGains(0.05, 0.2, 0, 0.126, 9, 720);
+  }
+
+  public double getKP() {
+    return kP;
+  }
+
+  public double getKI() {
+    return kI;
+  }
+
+  public double getKD() {
+    return kD;
+  }
+
+  public double getKF() {
+    return kF;
+  }
+
+  public double getKS() {
+    return kS;
+  }
+
+  public double getMaxTicksPerSecond() {
+    return maxTicksPerSecond;
+  }
+}
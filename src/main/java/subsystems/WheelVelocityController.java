@@ -0,0 +1,62 @@
+package subsystems;
+
+/**
+ * PID plus feedforward controller for the speed of one wheel. It only
+ * works on primitives so it can run every few milliseconds without
+ * creating garbage.
+ */
+public class WheelVelocityController {
+  private static final double MAX_OUTPUT_PCT = 100;
+
+  private final VelocityGains gains;
+  private double integral;
+  private double previousError;
+  private boolean hasPreviousError;
+
+  public WheelVelocityController(VelocityGains gains) {
+    this.gains = gains;
+  }
+
+  /**
+   * Compute the drive percentage for the next period.
+   * @param targetTicksPerSecond    Requested wheel speed
+   * @param measuredTicksPerSecond  Wheel speed from the feedback sensor
+   * @param periodSeconds           Time since the last call
+   * @return                        Drive percentage from -100 to 100
+   */
+  public double calculate(double targetTicksPerSecond, double measuredTicksPerSecond, double periodSeconds) {
+    double error = targetTicksPerSecond - measuredTicksPerSecond;
+    double derivative = 0;
+    if (hasPreviousError && periodSeconds > 0) {
+      derivative = (error - previousError) / periodSeconds;
+    }
+    previousError = error;
+    hasPreviousError = true;
+
+    double feedforward = gains.getKF() * targetTicksPerSecond;
+    if (targetTicksPerSecond > 0) {
+      feedforward += gains.getKS();
+    } else if (targetTicksPerSecond < 0) {
+      feedforward -= gains.getKS();
+    }
+    double withoutIntegral = feedforward + (gains.getKP() * error) + (gains.getKD() * derivative);
+
+    // Only integrate while the output is not saturated so the integral can not wind up
+    double candidateIntegral = integral + (error * periodSeconds);
+    double output = withoutIntegral + (gains.getKI() * candidateIntegral);
+    if (output > MAX_OUTPUT_PCT) {
+      output = MAX_OUTPUT_PCT;
+    } else if (output < -MAX_OUTPUT_PCT) {
+      output = -MAX_OUTPUT_PCT;
+    } else {
+      integral = candidateIntegral;
+    }
+    return output;
+  }
+
+  public void reset() {
+    integral = 0;
+    previousError = 0;
+    hasPreviousError = false;
+  }
+}
@@ -0,0 +1,82 @@
+package telemetry;
+
+import java.io.IOException;
+
+import org.pmw.tinylog.Logger;
+
+import devices.FeedbackSample;
+import subsystems.DriveTrain;
+
+/**
+ * Logs every drive command tick to a telemetry ring. Telemetry is off
+ * until open() is called; when off, startTick() and record() do nothing.
+ * 
+ * <pre>
+ * long tickStart = DriveTelemetry.startTick();
+ * driveTheWheels();
+ * DriveTelemetry.record(driveTrain, leftPct, rightPct, tickStart);
+ * </pre>
+ */
+public final class DriveTelemetry {
+  private static volatile TelemetryRing ring;
+
+  private DriveTelemetry() {
+  }
+
+  /**
+   * Start logging to a ring file, and close it when the JVM shuts down.
+   * @param fileName          The ring file; created, or emptied if it exists
+   * @param capacityRecords   Number of ticks kept before the oldest are overwritten
+   */
+  public static synchronized void open(String fileName, int capacityRecords) throws IOException {
+    if (ring != null) {
+      return;
+    }
+    TelemetryRing newRing = new TelemetryRing(fileName, capacityRecords);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> close(newRing), "TelemetryClose"));
+    ring = newRing;
+    Logger.info("Logging drive telemetry to " + fileName + ", last " + capacityRecords + " ticks.");
+  }
+
+  public static boolean isEnabled() {
+    return ring != null;
+  }
+
+  /**
+   * @return  A tick start time to pass to record().
+   */
+  public static long startTick() {
+    return ring != null ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Log the tick of a drive command, after it has set the wheels.
+   * @param leftPctSet    Left wheel percentage the command asked for
+   * @param rightPctSet   Right wheel percentage the command asked for
+   * @param tickStartNanos  From startTick()
+   */
+  public static void record(DriveTrain driveTrain, int leftPctSet, int rightPctSet, long tickStartNanos) {
+    TelemetryRing ring = DriveTelemetry.ring;
+    if (ring == null) {
+      return;
+    }
+    FeedbackSample feedback = driveTrain.getFeedbackSample();
+    ring.record(tickStartNanos, 
+        leftPctSet, 
+        rightPctSet, 
+        driveTrain.getLeftWheelDrive(), 
+        driveTrain.getRightWheelDrive(), 
+        feedback.getLeftTickCount(), 
+        feedback.getRightTickCount(), 
+        System.nanoTime() - tickStartNanos);
+  }
+
+  private static void close(TelemetryRing closingRing) {
+    ring = null;
+    try {
+      closingRing.close();
+    } catch (IOException e) {
+      Logger.error("Error closing telemetry ring: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package telemetry;
+
+import devices.FeedbackSample;
+import loop.ControlLoop;
+import subsystems.DriveTrain;
+import subsystems.Odometry;
+
+/**
+ * Streams the drive train, where it has taken the robot and the control
+ * loop that runs it.
+ */
+public class DriveTrainTelemetrySource implements TelemetrySource {
+  private static final String[] FIELD_NAMES = {
+      "left_drive_pct",
+      "right_drive_pct",
+      "left_ticks",
+      "right_ticks",
+      "left_ticks_per_s",
+      "right_ticks_per_s",
+      "servo_writes",
+      "servo_writes_suppressed",
+      "loop_iterations",
+      "loop_overruns",
+      "loop_wake_lateness_us",
+      "x_mm",
+      "y_mm",
+      "heading_mrad",
+      "feedback_stale"
+  };
+
+  private final DriveTrain driveTrain;
+  private final ControlLoop controlLoop;
+  private final Odometry odometry;
+  private final double[] pose = new double[3];
+
+  public DriveTrainTelemetrySource(DriveTrain driveTrain, ControlLoop controlLoop, Odometry odometry) {
+    this.driveTrain = driveTrain;
+    this.controlLoop = controlLoop;
+    this.odometry = odometry;
+  }
+
+  @Override
+  public String[] getFieldNames() {
+    return FIELD_NAMES.clone();
+  }
+
+  @Override
+  public void sample(long[] fields, int offset) {
+    FeedbackSample feedback = driveTrain.getFeedbackSample();
+    fields[offset] = driveTrain.getLeftWheelDrive();
+    fields[offset + 1] = driveTrain.getRightWheelDrive();
+    fields[offset + 2] = feedback.getLeftTickCount();
+    fields[offset + 3] = feedback.getRightTickCount();
+    fields[offset + 4] = Math.round(driveTrain.getLeftWheelTicksPerSecond());
+    fields[offset + 5] = Math.round(driveTrain.getRightWheelTicksPerSecond());
+    fields[offset + 6] = driveTrain.getServoWriteCount();
+    fields[offset + 7] = driveTrain.getServoSuppressedCount();
+    fields[offset + 8] = controlLoop.getIterationCount();
+    fields[offset + 9] = controlLoop.getOverrunCount();
+    fields[offset + 10] = controlLoop.getLastWakeLatenessNanos() / 1000;
+    odometry.getPose(pose);
+    fields[offset + 11] = Math.round(pose[0] * 1000);
+    fields[offset + 12] = Math.round(pose[1] * 1000);
+    fields[offset + 13] = Math.round(pose[2] * 1000);
+    fields[offset + 14] = driveTrain.getFeedbackStaleCount();
+  }
+}
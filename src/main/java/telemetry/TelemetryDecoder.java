@@ -0,0 +1,98 @@
+package telemetry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import devices.ParallaxHallEffectFeedbackSensor;
+
+/**
+ * Turns a telemetry ring file into CSV, oldest record first. Theta is
+ * not stored in the ring since it is the tick count modulo a rotation.
+ * <p>
+ * Arguments: ring file [CSV file, default standard output]
+ */
+public class TelemetryDecoder {
+  public static final String CSV_HEADER = 
+      "sequence,timestamp_ns,left_pct_set,right_pct_set,left_pct_get,right_pct_get,"
+      + "left_ticks,right_ticks,left_theta,right_theta,loop_ns";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: TelemetryDecoder <ring file> [csv file]");
+      System.exit(2);
+    }
+    try (Writer out = args.length > 1 
+        ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8) 
+        : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+      decode(args[0], out);
+    }
+  }
+
+  /**
+   * @return  Number of records written out.
+   */
+  public static long decode(String ringFileName, Writer out) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(ringFileName, "r")) {
+      ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      if (buffer.getInt(TelemetryRing.HEADER_MAGIC) != TelemetryRing.MAGIC) {
+        throw new IOException(ringFileName + " is not a telemetry ring");
+      }
+      if (buffer.getShort(TelemetryRing.HEADER_VERSION) != TelemetryRing.VERSION
+          || buffer.getShort(TelemetryRing.HEADER_RECORD_SIZE) != TelemetryRing.RECORD_SIZE) {
+        throw new IOException(ringFileName + " is an unsupported telemetry ring version");
+      }
+      int capacity = buffer.getInt(TelemetryRing.HEADER_CAPACITY);
+
+      // The ring is written in order, so the oldest record follows the newest
+      int newest = 0;
+      long newestSequence = 0;
+      for (int i = 0; i < capacity; i++) {
+        long sequence = buffer.getLong(offset(i));
+        if (sequence > newestSequence) {
+          newestSequence = sequence;
+          newest = i;
+        }
+      }
+
+      out.write(CSV_HEADER);
+      out.write('\n');
+      long count = 0;
+      for (int n = 1; n <= capacity; n++) {
+        int offset = offset((newest + n) % capacity);
+        long sequence = buffer.getLong(offset + TelemetryRing.SEQUENCE);
+        if (sequence == 0) {
+          continue;
+        }
+        long leftTickCount = buffer.getLong(offset + TelemetryRing.LEFT_TICK_COUNT);
+        long rightTickCount = buffer.getLong(offset + TelemetryRing.RIGHT_TICK_COUNT);
+        out.write(sequence + ","
+            + buffer.getLong(offset + TelemetryRing.TIMESTAMP_NANOS) + ","
+            + buffer.getShort(offset + TelemetryRing.LEFT_PCT_SET) + ","
+            + buffer.getShort(offset + TelemetryRing.RIGHT_PCT_SET) + ","
+            + buffer.getShort(offset + TelemetryRing.LEFT_PCT_GET) + ","
+            + buffer.getShort(offset + TelemetryRing.RIGHT_PCT_GET) + ","
+            + leftTickCount + ","
+            + rightTickCount + ","
+            + Math.floorMod(leftTickCount, ParallaxHallEffectFeedbackSensor.TICKS_PER_ROTATION) + ","
+            + Math.floorMod(rightTickCount, ParallaxHallEffectFeedbackSensor.TICKS_PER_ROTATION) + ","
+            + buffer.getInt(offset + TelemetryRing.LOOP_NANOS) + "\n");
+        count++;
+      }
+      return count;
+    }
+  }
+
+  private static int offset(int index) {
+    return TelemetryRing.HEADER_SIZE + index * TelemetryRing.RECORD_SIZE;
+  }
+}
@@ -0,0 +1,134 @@
+package telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A fixed size file of fixed layout binary drive telemetry records, mapped
+ * into memory and written as a ring, so the newest records overwrite the
+ * oldest. Writing a record is a handful of stores into the page cache:
+ * no allocation, no locks and no system calls. The kernel writes the pages
+ * back to the SD card in its own time, and they survive the robot program
+ * crashing. Use TelemetryDecoder to turn a ring file into CSV.
+ * <p>
+ * Only one thread may write records, normally the control loop thread.
+ * Opening a ring file starts it afresh.
+ */
+public class TelemetryRing implements Closeable {
+  public static final int MAGIC = 0x544C4D52;   // "TLMR"
+  public static final short VERSION = 1;
+  public static final int HEADER_SIZE = 64;
+  public static final int RECORD_SIZE = 48;
+
+  // Header layout
+  static final int HEADER_MAGIC = 0;
+  static final int HEADER_VERSION = 4;
+  static final int HEADER_RECORD_SIZE = 6;
+  static final int HEADER_CAPACITY = 8;
+
+  // Record layout; the sequence starts at 1, so 0 marks a slot never written
+  static final int SEQUENCE = 0;
+  static final int TIMESTAMP_NANOS = 8;
+  static final int LEFT_TICK_COUNT = 16;
+  static final int RIGHT_TICK_COUNT = 24;
+  static final int LEFT_PCT_SET = 32;
+  static final int RIGHT_PCT_SET = 34;
+  static final int LEFT_PCT_GET = 36;
+  static final int RIGHT_PCT_GET = 38;
+  static final int LOOP_NANOS = 40;
+
+  private static final int PAGE_SIZE = 4096;
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private long sequence;
+
+  /**
+   * @param fileName          The ring file; created, or emptied if it exists
+   * @param capacityRecords   Number of records kept before the oldest are overwritten
+   */
+  public TelemetryRing(String fileName, int capacityRecords) throws IOException {
+    this.capacity = capacityRecords;
+    long size = HEADER_SIZE + (long)capacityRecords * RECORD_SIZE;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Telemetry ring of " + capacityRecords + " records is too large to map");
+    }
+    this.file = new RandomAccessFile(fileName, "rw");
+    try {
+      file.setLength(0);
+      file.setLength(size);
+      this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(HEADER_MAGIC, MAGIC);
+    buffer.putShort(HEADER_VERSION, VERSION);
+    buffer.putShort(HEADER_RECORD_SIZE, (short)RECORD_SIZE);
+    buffer.putInt(HEADER_CAPACITY, capacityRecords);
+    // Touch every page now, so the first lap of the ring does not take page faults in the control loop
+    for (int position = 0; position < size; position += PAGE_SIZE) {
+      buffer.put(position, buffer.get(position));
+    }
+  }
+
+  /**
+   * Write one control tick.
+   * @param timestampNanos    When the tick started
+   * @param leftPctSet        Left wheel percentage asked for
+   * @param rightPctSet       Right wheel percentage asked for
+   * @param leftPctGet        Left wheel percentage read back from the servo
+   * @param rightPctGet       Right wheel percentage read back from the servo
+   * @param leftTickCount     Left wheel feedback ticks
+   * @param rightTickCount    Right wheel feedback ticks
+   * @param loopNanos         How long the tick took
+   */
+  public void record(long timestampNanos, 
+      int leftPctSet, 
+      int rightPctSet, 
+      int leftPctGet, 
+      int rightPctGet, 
+      long leftTickCount, 
+      long rightTickCount, 
+      long loopNanos) {
+    long recordSequence = ++sequence;
+    int offset = HEADER_SIZE + (int)((recordSequence - 1) % capacity) * RECORD_SIZE;
+    // Clear the old sequence first and write the new one last, so a half written record reads as empty
+    buffer.putLong(offset + SEQUENCE, 0);
+    buffer.putLong(offset + TIMESTAMP_NANOS, timestampNanos);
+    buffer.putLong(offset + LEFT_TICK_COUNT, leftTickCount);
+    buffer.putLong(offset + RIGHT_TICK_COUNT, rightTickCount);
+    buffer.putShort(offset + LEFT_PCT_SET, (short)leftPctSet);
+    buffer.putShort(offset + RIGHT_PCT_SET, (short)rightPctSet);
+    buffer.putShort(offset + LEFT_PCT_GET, (short)leftPctGet);
+    buffer.putShort(offset + RIGHT_PCT_GET, (short)rightPctGet);
+    buffer.putInt(offset + LOOP_NANOS, (int)Math.min(loopNanos, Integer.MAX_VALUE));
+    buffer.putLong(offset + SEQUENCE, recordSequence);
+  }
+
+  /**
+   * @return  Number of records written since the ring was opened.
+   */
+  public long getRecordCount() {
+    return sequence;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Write the ring back to the file and close it.
+   */
+  @Override
+  public void close() throws IOException {
+    buffer.force();
+    file.close();
+  }
+}
@@ -0,0 +1,330 @@
+package telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.pmw.tinylog.Logger;
+
+/**
+ * Streams telemetry to dashboards over TCP. One selector thread samples the
+ * source at a fixed rate, gathers the samples into batches and sends each
+ * batch to every connected client with non-blocking writes. A client that
+ * cannot keep up has whole batches dropped once its send queue is full, and
+ * a client that goes away is closed, so neither can hold anything up.
+ * Nothing is sampled while no client is connected.
+ * <p>
+ * Each frame is a big endian int length, a type byte and a payload. On
+ * connect a client gets a HELLO frame: version, sample period in
+ * microseconds, field count, then each field name as a length prefixed
+ * UTF-8 string. Then BATCH frames follow: the sample count, then every
+ * field of every sample as the zigzag varint of its difference from the
+ * same field in the sample before. The first sample in a batch is relative
+ * to zero, so each batch can be decoded on its own. The first field is
+ * always time_us, microseconds since the server started.
+ * TelemetryStreamReader decodes the stream.
+ */
+public class TelemetryServer implements Closeable {
+  public static final int DEFAULT_PORT = 5800;    // first of the team use ports on the FRC field
+  public static final int VERSION = 1;
+
+  static final byte HELLO = 1;
+  static final byte BATCH = 2;
+
+  private static final int MAX_PENDING_BYTES = 64 * 1024;
+  private static final int MAX_VARINT_BYTES = 10;
+  private static final int FRAME_HEADER_BYTES = 5;
+
+  private final TelemetrySource source;
+  private final long samplePeriodNanos;
+  private final int samplesPerBatch;
+  private final int fieldCount;
+  private final long[] samples;
+  private final long[] previous;
+  private final ByteBuffer batch;
+  private final ByteBuffer hello;
+  private final ByteBuffer discard = ByteBuffer.allocate(256);
+  private final Selector selector;
+  private final ServerSocketChannel serverChannel;
+  private final long startNanos;
+  private Thread thread;
+  private volatile boolean running;
+  private int sampleCount;
+  private volatile int clientCount;
+  private volatile long batchCount;
+  private volatile long droppedBatchCount;
+
+  /**
+   * @param source            What to stream
+   * @param port              TCP port to listen on; 0 picks a free one
+   * @param samplePeriodMs    Time between samples in milliseconds
+   * @param samplesPerBatch   Number of samples sent together in one frame
+   */
+  public TelemetryServer(TelemetrySource source, int port, long samplePeriodMs, int samplesPerBatch) throws IOException {
+    String[] sourceFieldNames = source.getFieldNames();
+    this.source = source;
+    this.samplePeriodNanos = TimeUnit.MILLISECONDS.toNanos(samplePeriodMs);
+    this.samplesPerBatch = samplesPerBatch;
+    this.fieldCount = sourceFieldNames.length + 1;
+    this.samples = new long[samplesPerBatch * fieldCount];
+    this.previous = new long[fieldCount];
+    int maxBatchBytes = FRAME_HEADER_BYTES + MAX_VARINT_BYTES * (1 + samples.length);
+    if (maxBatchBytes > MAX_PENDING_BYTES) {
+      throw new IllegalArgumentException("Telemetry batches of " + samplesPerBatch + " samples are too large");
+    }
+    this.batch = ByteBuffer.allocateDirect(maxBatchBytes);
+    this.hello = encodeHello(sourceFieldNames, samplePeriodMs);
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(port));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    this.startNanos = System.nanoTime();
+  }
+
+  public synchronized void start() {
+    if (thread != null) {
+      return;
+    }
+    running = true;
+    thread = new Thread(this::run, "TelemetryServer");
+    thread.setDaemon(true);
+    thread.start();
+    Logger.info("Telemetry server listening on port " + getPort() + ".");
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    running = false;
+    selector.wakeup();
+    if (thread != null) {
+      try {
+        thread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      thread = null;
+    }
+    for (SelectionKey key : selector.keys()) {
+      key.channel().close();
+    }
+    selector.close();
+  }
+
+  public int getPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  public int getClientCount() {
+    return clientCount;
+  }
+
+  /**
+   * @return  Number of batches sent, counting each batch once however many clients got it.
+   */
+  public long getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * @return  Number of times a batch was dropped for a client that was not keeping up.
+   */
+  public long getDroppedBatchCount() {
+    return droppedBatchCount;
+  }
+
+  private void run() {
+    long nextSampleNanos = System.nanoTime();
+    while (running) {
+      try {
+        long waitNanos = nextSampleNanos - System.nanoTime();
+        if (waitNanos > 0) {
+          selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+        } else {
+          selector.selectNow();
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          handle(key);
+        }
+        long now = System.nanoTime();
+        if (now - nextSampleNanos >= 0) {
+          nextSampleNanos += samplePeriodNanos;
+          if (now - nextSampleNanos >= 0) {
+            // Fell behind; sample at the rate from now rather than catching up
+            nextSampleNanos = now + samplePeriodNanos;
+          }
+          sample(now);
+        }
+      } catch (IOException | RuntimeException e) {
+        // Keep serving; a bad source or socket must not end the stream for everyone
+        Logger.error("Error in telemetry server: " + e.getMessage());
+      }
+    }
+  }
+
+  private void handle(SelectionKey key) {
+    if (!key.isValid()) {
+      return;
+    }
+    if (key.isAcceptable()) {
+      try {
+        accept();
+      } catch (IOException e) {
+        Logger.error("Error accepting telemetry client: " + e.getMessage());
+      }
+      return;
+    }
+    try {
+      SocketChannel channel = (SocketChannel)key.channel();
+      if (key.isReadable()) {
+        // Dashboards send nothing we need; reading is how we notice they went away
+        discard.clear();
+        if (channel.read(discard) < 0) {
+          disconnect(key);
+          return;
+        }
+      }
+      if (key.isWritable()) {
+        ByteBuffer pending = (ByteBuffer)key.attachment();
+        pending.flip();
+        channel.write(pending);
+        pending.compact();
+        if (pending.position() == 0) {
+          key.interestOps(SelectionKey.OP_READ);
+        }
+      }
+    } catch (IOException e) {
+      disconnect(key);
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    SelectionKey key = channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(MAX_PENDING_BYTES));
+    clientCount++;
+    Logger.info("Telemetry client connected from " + channel.getRemoteAddress() + ".");
+    hello.rewind();
+    send(key, hello);
+  }
+
+  private void disconnect(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      // Already gone
+    }
+    clientCount--;
+    Logger.info("Telemetry client disconnected.");
+  }
+
+  private void sample(long nowNanos) {
+    if (clientCount == 0) {
+      sampleCount = 0;
+      return;
+    }
+    int offset = sampleCount * fieldCount;
+    samples[offset] = TimeUnit.NANOSECONDS.toMicros(nowNanos - startNanos);
+    source.sample(samples, offset + 1);
+    if (++sampleCount == samplesPerBatch) {
+      encodeBatch();
+      sampleCount = 0;
+      for (SelectionKey key : selector.keys()) {
+        if (key.isValid() && key.channel() instanceof SocketChannel) {
+          batch.position(0);
+          send(key, batch);
+        }
+      }
+      batchCount++;
+    }
+  }
+
+  private void encodeBatch() {
+    batch.clear();
+    batch.position(FRAME_HEADER_BYTES);
+    putVarint(batch, sampleCount);
+    Arrays.fill(previous, 0);
+    for (int i = 0; i < samples.length; i++) {
+      int field = i % fieldCount;
+      long delta = samples[i] - previous[field];
+      previous[field] = samples[i];
+      putVarint(batch, (delta << 1) ^ (delta >> 63));
+    }
+    batch.putInt(0, batch.position() - 4);
+    batch.put(4, BATCH);
+    batch.flip();
+  }
+
+  /**
+   * Write a frame now if the client's queue is empty and queue what the socket
+   * did not take, or drop the frame if the queue has no room for it.
+   */
+  private void send(SelectionKey key, ByteBuffer frame) {
+    ByteBuffer pending = (ByteBuffer)key.attachment();
+    if (pending.position() > 0) {
+      if (frame.remaining() > pending.remaining()) {
+        droppedBatchCount++;
+        return;
+      }
+      pending.put(frame);
+      return;
+    }
+    try {
+      ((SocketChannel)key.channel()).write(frame);
+    } catch (IOException e) {
+      disconnect(key);
+      return;
+    }
+    if (frame.hasRemaining()) {
+      pending.put(frame);
+      key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+  }
+
+  private ByteBuffer encodeHello(String[] sourceFieldNames, long samplePeriodMs) {
+    byte[][] names = new byte[fieldCount][];
+    int size = FRAME_HEADER_BYTES + 3 * MAX_VARINT_BYTES;
+    for (int i = 0; i < fieldCount; i++) {
+      names[i] = (i == 0 ? "time_us" : sourceFieldNames[i - 1]).getBytes(StandardCharsets.UTF_8);
+      size += MAX_VARINT_BYTES + names[i].length;
+    }
+    ByteBuffer frame = ByteBuffer.allocate(size);
+    frame.position(FRAME_HEADER_BYTES);
+    putVarint(frame, VERSION);
+    putVarint(frame, TimeUnit.MILLISECONDS.toMicros(samplePeriodMs));
+    putVarint(frame, fieldCount);
+    for (byte[] name : names) {
+      putVarint(frame, name.length);
+      frame.put(name);
+    }
+    frame.putInt(0, frame.position() - 4);
+    frame.put(4, HELLO);
+    frame.flip();
+    return frame;
+  }
+
+  private static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7fL) != 0) {
+      buffer.put((byte)((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte)value);
+  }
+}
@@ -0,0 +1,19 @@
+package telemetry;
+
+/**
+ * Something the telemetry server can sample. Sampled from the server
+ * thread, so it should only read state that is safe to read from
+ * another thread.
+ */
+public interface TelemetrySource {
+  /**
+   * @return  Names of the fields sample() fills in, in order.
+   */
+  String[] getFieldNames();
+
+  /**
+   * Read the current value of each field.
+   * @param fields  Filled in starting at offset, in the order of getFieldNames()
+   */
+  void sample(long[] fields, int offset);
+}
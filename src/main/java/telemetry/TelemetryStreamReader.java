@@ -0,0 +1,110 @@
+package telemetry;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the stream from a TelemetryServer, for a dashboard or a test.
+ * Running it prints the stream as CSV.
+ * <p>
+ * Arguments: robot host [port, default 5800]
+ */
+public class TelemetryStreamReader {
+  private final DataInputStream in;
+  private String[] fieldNames;
+  private long samplePeriodMicros;
+
+  /**
+   * Reads the HELLO frame, so the field names are known straight away.
+   */
+  public TelemetryStreamReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+    readFrameHeader(TelemetryServer.HELLO);
+    int version = (int)readVarint();
+    if (version != TelemetryServer.VERSION) {
+      throw new IOException("Unsupported telemetry stream version " + version);
+    }
+    samplePeriodMicros = readVarint();
+    fieldNames = new String[(int)readVarint()];
+    for (int i = 0; i < fieldNames.length; i++) {
+      byte[] name = new byte[(int)readVarint()];
+      this.in.readFully(name);
+      fieldNames[i] = new String(name, StandardCharsets.UTF_8);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: TelemetryStreamReader <robot host> [port]");
+      System.exit(2);
+    }
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : TelemetryServer.DEFAULT_PORT;
+    try (Socket socket = new Socket(args[0], port)) {
+      TelemetryStreamReader reader = new TelemetryStreamReader(socket.getInputStream());
+      System.out.println(String.join(",", reader.getFieldNames()));
+      StringBuilder line = new StringBuilder();
+      while (true) {
+        for (long[] sample : reader.readBatch()) {
+          line.setLength(0);
+          for (int i = 0; i < sample.length; i++) {
+            if (i > 0) {
+              line.append(',');
+            }
+            line.append(sample[i]);
+          }
+          System.out.println(line);
+        }
+      }
+    }
+  }
+
+  public String[] getFieldNames() {
+    return fieldNames.clone();
+  }
+
+  public long getSamplePeriodMicros() {
+    return samplePeriodMicros;
+  }
+
+  /**
+   * Wait for the next batch.
+   * @return  The samples in the batch, each with a value per field name.
+   */
+  public long[][] readBatch() throws IOException {
+    readFrameHeader(TelemetryServer.BATCH);
+    long[][] samples = new long[(int)readVarint()][fieldNames.length];
+    long[] previous = new long[fieldNames.length];
+    for (long[] sample : samples) {
+      for (int field = 0; field < sample.length; field++) {
+        long zigzag = readVarint();
+        previous[field] += (zigzag >>> 1) ^ -(zigzag & 1);
+        sample[field] = previous[field];
+      }
+    }
+    return samples;
+  }
+
+  private void readFrameHeader(byte expectedType) throws IOException {
+    in.readInt();
+    byte type = in.readByte();
+    if (type != expectedType) {
+      throw new IOException("Expected telemetry frame type " + expectedType + " but got " + type);
+    }
+  }
+
+  private long readVarint() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long)(b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in telemetry stream");
+  }
+}
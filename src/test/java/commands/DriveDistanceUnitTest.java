@@ -0,0 +1,99 @@
+package commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.*;
+
+import motion.DriveGeometry;
+import motion.MotionConstraints;
+import motion.ProfileGains;
+import subsystems.VelocityGains;
+import oi.OperatorInterface;
+import sim.ServoModel;
+import sim.SimulatedDriveTrain;
+import subsystems.DriveTrain;
+
+public class DriveDistanceUnitTest {
+  private SimulatedDriveTrain robot;
+  private DriveTrain driveTrain;
+  private ServoModel leftWheel;
+  private ServoModel rightWheel;
+
+  @Before
+  public void setUp() {
+    robot = new SimulatedDriveTrain(mock(OperatorInterface.class));
+    driveTrain = robot.getDriveTrain();
+    leftWheel = robot.getLeftWheel();
+    rightWheel = robot.getRightWheel();
+  }
+
+  @After
+  public void tearDown() {
+    robot.close();
+  }
+
+  @Test
+  public void itShouldDriveTheDistanceWithoutOvershooting() {
+    // Assemble
+    DriveGeometry geometry = DriveGeometry.learningBot();
+    DriveDistance driveDistance = new DriveDistance(driveTrain, 
+        geometry, 
+        0.5, 
+        new MotionConstraints(500, 1000, 5000), 
+        ProfileGains.parallax360HighSpeed(), 
+        0.02);
+    double targetTicks = geometry.metersToTicks(0.5);
+
+    // Act
+    driveDistance.initialize();
+    double maxRightDegrees = 0;
+    int executes = 0;
+    while (!driveDistance.isFinished() && executes < 500) {
+      robot.step(20000000);
+      driveDistance.execute();
+      maxRightDegrees = Math.max(maxRightDegrees, rightWheel.getAngleDegrees());
+      executes++;
+    }
+    driveDistance.end();
+
+    // Assert
+    assertTrue(driveDistance.isFinished());
+    assertTrue("Took " + executes + " executes", 
+        executes <= driveDistance.getProfile().getLength() + 5);
+    assertEquals(targetTicks, rightWheel.getAngleDegrees(), 5);
+    assertEquals(-targetTicks, leftWheel.getAngleDegrees(), 5);
+    assertTrue("Overshot to " + maxRightDegrees, maxRightDegrees <= targetTicks + 5);
+  }
+
+  @Test
+  public void itShouldDriveTheDistanceAtTheProfileVelocityInClosedLoop() {
+    // Assemble
+    DriveGeometry geometry = DriveGeometry.learningBot();
+    DriveDistance driveDistance = new DriveDistance(driveTrain, 
+        geometry, 
+        0.5, 
+        new MotionConstraints(500, 1000, 5000), 
+        ProfileGains.parallax360HighSpeed(), 
+        0.02);
+    double targetTicks = geometry.metersToTicks(0.5);
+    driveTrain.enableClosedLoop(VelocityGains.parallax360HighSpeed());
+
+    // Act
+    driveDistance.initialize();
+    int executes = 0;
+    while (!driveDistance.isFinished() && executes < 500) {
+      robot.step(20000000);
+      driveDistance.execute();
+      driveTrain.runVelocityLoop();
+      executes++;
+    }
+    driveDistance.end();
+
+    // Assert
+    assertTrue(driveDistance.isFinished());
+    assertEquals(targetTicks, rightWheel.getAngleDegrees(), 5);
+    assertEquals(-targetTicks, leftWheel.getAngleDegrees(), 5);
+  }
+}
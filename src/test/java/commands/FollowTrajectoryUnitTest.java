@@ -0,0 +1,102 @@
+package commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+
+import org.junit.*;
+
+import motion.DriveGeometry;
+import motion.MotionConstraints;
+import motion.Pose;
+import motion.ProfileGains;
+import motion.Trajectory;
+import motion.TrajectoryGenerator;
+import oi.OperatorInterface;
+import sim.SimulatedDriveTrain;
+import subsystems.DriveTrain;
+import subsystems.Odometry;
+import subsystems.VelocityGains;
+
+public class FollowTrajectoryUnitTest {
+  private final DriveGeometry geometry = DriveGeometry.learningBot();
+  private SimulatedDriveTrain robot;
+  private DriveTrain driveTrain;
+  private Odometry odometry;
+
+  @Before
+  public void setUp() {
+    robot = new SimulatedDriveTrain(mock(OperatorInterface.class));
+    driveTrain = robot.getDriveTrain();
+    odometry = new Odometry(geometry);
+    driveTrain.setFeedbackListener(odometry);
+  }
+
+  @After
+  public void tearDown() {
+    robot.close();
+  }
+
+  @Test
+  public void itShouldFollowAnSCurveToItsEnd() {
+    // Assemble
+    Trajectory trajectory = TrajectoryGenerator.generate(
+        Arrays.asList(new Pose(0, 0, 0), new Pose(0.6, 0.3, 0)), 
+        new MotionConstraints(0.15, 0.3), 
+        geometry, 
+        0.02);
+    FollowTrajectory followTrajectory = 
+        new FollowTrajectory(driveTrain, odometry, geometry, trajectory, ProfileGains.parallax360HighSpeed());
+
+    // Act
+    followTrajectory.initialize();
+    int executes = 0;
+    while (!followTrajectory.isFinished() && executes < 1000) {
+      robot.step(20000000);
+      followTrajectory.execute();
+      executes++;
+    }
+    followTrajectory.end();
+
+    // Assert
+    assertTrue(followTrajectory.isFinished());
+    assertEquals(trajectory.getLength() - 1, executes);
+    Pose pose = odometry.getPose();
+    assertEquals(pose.toString(), 0.6, pose.getXMeters(), 0.01);
+    assertEquals(pose.toString(), 0.3, pose.getYMeters(), 0.01);
+    assertEquals(pose.toString(), 0, pose.getHeadingRadians(), 0.05);
+  }
+
+  @Test
+  public void itShouldFollowAnSCurveAtTheWheelSpeedsInClosedLoop() {
+    // Assemble
+    Trajectory trajectory = TrajectoryGenerator.generate(
+        Arrays.asList(new Pose(0, 0, 0), new Pose(0.6, 0.3, 0)), 
+        new MotionConstraints(0.15, 0.3), 
+        geometry, 
+        0.02);
+    FollowTrajectory followTrajectory = 
+        new FollowTrajectory(driveTrain, odometry, geometry, trajectory, ProfileGains.parallax360HighSpeed());
+    driveTrain.enableClosedLoop(VelocityGains.parallax360HighSpeed());
+
+    // Act
+    followTrajectory.initialize();
+    int executes = 0;
+    while (!followTrajectory.isFinished() && executes < 1000) {
+      robot.step(20000000);
+      followTrajectory.execute();
+      driveTrain.runVelocityLoop();
+      executes++;
+    }
+    followTrajectory.end();
+
+    // Assert
+    assertTrue(followTrajectory.isFinished());
+    Pose pose = odometry.getPose();
+    assertEquals(pose.toString(), 0.6, pose.getXMeters(), 0.01);
+    assertEquals(pose.toString(), 0.3, pose.getYMeters(), 0.01);
+    assertEquals(pose.toString(), 0, pose.getHeadingRadians(), 0.05);
+  }
+}
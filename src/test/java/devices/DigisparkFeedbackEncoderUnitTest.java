@@ -0,0 +1,157 @@
+package devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+
+import com.diozero.api.I2CDevice;
+import com.diozero.util.RuntimeIOException;
+
+import org.junit.*;
+
+public class DigisparkFeedbackEncoderUnitTest {
+  @Test
+  public void itShouldReadBothWheelsWithOneBlockRead() {
+    // Assemble
+    I2CDevice deviceMock = mock(I2CDevice.class);
+    doAnswer(invocation -> {
+      ByteBuffer buffer = invocation.getArgument(1);
+      buffer.put(new byte[] { (byte)0xf4, 0x01, 0x1d, 0x00 });
+      return null;
+    }).when(deviceMock).read(anyInt(), any(ByteBuffer.class));
+    DigisparkFeedbackEncoder encoder = new DigisparkFeedbackEncoder(deviceMock);
+
+    // Act
+    encoder.update();
+
+    // Assert
+    assertEquals(500, encoder.getLeftPctX10());
+    assertEquals(29, encoder.getRightPctX10());
+    assertEquals(1, encoder.getTransactionsLastUpdate());
+    verify(deviceMock, never()).readByte();
+  }
+
+  @Test
+  public void itShouldReadEveryChannelOfALargerBoard() {
+    // Assemble
+    I2CDevice deviceMock = mock(I2CDevice.class);
+    doAnswer(invocation -> {
+      ByteBuffer buffer = invocation.getArgument(1);
+      buffer.put(new byte[] { (byte)0xf4, 0x01, 0x1d, 0x00, (byte)0xcb, 0x03 });
+      return null;
+    }).when(deviceMock).read(anyInt(), any(ByteBuffer.class));
+    DigisparkFeedbackEncoder encoder = 
+        new DigisparkFeedbackEncoder(deviceMock, 3, DigisparkFeedbackEncoder.ReadMode.BLOCK);
+
+    // Act
+    encoder.update();
+
+    // Assert
+    assertEquals(500, encoder.getLeftPctX10());
+    assertEquals(29, encoder.getRightPctX10());
+    assertEquals(971, encoder.getChannelPctX10(2));
+    assertEquals(1, encoder.getTransactionsLastUpdate());
+  }
+
+  @Test
+  public void itShouldFallBackToByteReadsWhenBlockReadKeepsFailing() {
+    // Assemble
+    I2CDevice deviceMock = mock(I2CDevice.class);
+    doThrow(new RuntimeIOException("NACK")).when(deviceMock).read(anyInt(), any(ByteBuffer.class));
+    answerByteReads(deviceMock);
+    DigisparkFeedbackEncoder encoder = new DigisparkFeedbackEncoder(deviceMock);
+
+    // Act
+    for (int i = 0; i < DigisparkFeedbackEncoder.BLOCK_FAILURES_TO_DEMOTE; i++) {
+      encoder.update();
+    }
+
+    // Assert
+    assertEquals(500, encoder.getLeftPctX10());
+    assertEquals(29, encoder.getRightPctX10());
+    assertEquals(DigisparkFeedbackEncoder.ReadMode.BYTE, encoder.getReadMode());
+    assertEquals(6, encoder.getTransactionsLastUpdate());
+  }
+
+  @Test
+  public void itShouldKeepBlockReadsAfterOneFails() {
+    // Assemble
+    I2CDevice deviceMock = mock(I2CDevice.class);
+    int[] blockReads = { 0 };
+    doAnswer(invocation -> {
+      if (blockReads[0]++ == 0) {
+        throw new RuntimeIOException("NACK");
+      }
+      ByteBuffer buffer = invocation.getArgument(1);
+      buffer.put(new byte[] { (byte)0xf4, 0x01, 0x1d, 0x00 });
+      return null;
+    }).when(deviceMock).read(anyInt(), any(ByteBuffer.class));
+    answerByteReads(deviceMock);
+    DigisparkFeedbackEncoder encoder = new DigisparkFeedbackEncoder(deviceMock);
+
+    // Act
+    encoder.update();
+    int transactionsWithFallback = encoder.getTransactionsLastUpdate();
+    encoder.update();
+
+    // Assert
+    assertEquals(6, transactionsWithFallback);
+    assertEquals(DigisparkFeedbackEncoder.ReadMode.BLOCK, encoder.getReadMode());
+    assertEquals(1, encoder.getTransactionsLastUpdate());
+    assertEquals(500, encoder.getLeftPctX10());
+    assertFalse(encoder.isStale());
+  }
+
+  @Test
+  public void itShouldKeepTheLastGoodValuesAndBackOffWhenTheBoardStopsAnswering() {
+    // Assemble
+    long[] now = { 0 };
+    I2CDevice deviceMock = mock(I2CDevice.class);
+    when(deviceMock.readByte())
+        .thenReturn((byte)0xf4, (byte)0x01, (byte)0x1d, (byte)0x00)
+        .thenThrow(new RuntimeIOException("NACK"));
+    DigisparkFeedbackEncoder encoder = 
+        new DigisparkFeedbackEncoder(deviceMock, 2, DigisparkFeedbackEncoder.ReadMode.BYTE, () -> now[0]);
+    encoder.setCircuitBreaker(2, 100000000, 400000000);
+
+    // Act
+    encoder.update();
+    now[0] = 10000000;
+    encoder.update();
+    encoder.update();
+    now[0] = 50000000;
+    encoder.update();
+    now[0] = 110000000;
+    encoder.update();
+
+    // Assert
+    assertEquals(500, encoder.getLeftPctX10());
+    assertEquals(29, encoder.getRightPctX10());
+    assertTrue(encoder.isStale());
+    assertTrue(encoder.isBreakerOpen());
+    assertEquals(110000000, encoder.getSampleAgeNanos());
+    assertEquals(3, encoder.getFailedUpdateCount());
+    assertEquals(6, encoder.getRetryCount());
+    assertEquals(1, encoder.getBreakerTripCount());
+    assertEquals(1, encoder.getSkippedUpdateCount());
+  }
+
+  /**
+   * Answer byte reads with the left wheel at 50% and the right at 2.9%, again and again.
+   */
+  private static void answerByteReads(I2CDevice deviceMock) {
+    byte[] registers = { (byte)0xf4, 0x01, 0x1d, 0x00 };
+    int[] reads = { 0 };
+    when(deviceMock.readByte()).thenAnswer(invocation -> registers[reads[0]++ % registers.length]);
+  }
+}
@@ -0,0 +1,166 @@
+package devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.*;
+
+public class EncoderBusManagerUnitTest {
+  @Test
+  public void itShouldAlwaysReadTheWheelsAndTakeTurnsWithTheRestWithinTheBudget() {
+    // Assemble
+    long[] now = { 0 };
+    EncoderBusManager bus = new EncoderBusManager(2500000, () -> now[0]);
+    DigisparkFeedbackEncoder wheels = newBoard(now);
+    DigisparkFeedbackEncoder arm = newBoard(now);
+    DigisparkFeedbackEncoder turret = newBoard(now);
+    when(arm.getChannelPctX10(1)).thenReturn(500);
+    bus.addBoard(wheels, EncoderBusManager.DRIVE_PRIORITY);
+    int armBoard = bus.addBoard(arm, 1);
+    int turretBoard = bus.addBoard(turret, 1);
+    ParallaxHallEffectFeedbackSensor elbow = 
+        bus.addChannel(armBoard, 1, ParallaxHallEffectFeedbackSensor.UnwrapMode.VELOCITY);
+
+    // Act
+    for (int tick = 0; tick < 5; tick++) {
+      bus.update();
+    }
+
+    // Assert
+    assertEquals(5, bus.getReadCount(0));
+    assertEquals(3, bus.getReadCount(armBoard));
+    assertEquals(3, bus.getReadCount(turretBoard));
+    assertEquals(4, bus.getDeferredCount());
+    assertEquals(2000000, bus.getLastUpdateNanos());
+    assertEquals(1, bus.getChannelCount());
+    assertEquals(180, elbow.getTheta());
+  }
+
+  @Test
+  public void itShouldGoBackToABoardAfterOneSlowRead() {
+    // Assemble
+    long[] now = { 0 };
+    EncoderBusManager bus = new EncoderBusManager(2500000, () -> now[0]);
+    bus.addBoard(newBoard(now), EncoderBusManager.DRIVE_PRIORITY);
+    // The arm's first read is retried through a glitch and takes 3ms
+    int armBoard = bus.addBoard(newBoard(now, 3000000), 1);
+    int turretBoard = bus.addBoard(newBoard(now), 1);
+
+    // Act
+    for (int tick = 0; tick < 10; tick++) {
+      bus.update();
+    }
+
+    // Assert
+    assertEquals(10, bus.getReadCount(0));
+    assertEquals(5, bus.getReadCount(armBoard));
+    assertEquals(5, bus.getReadCount(turretBoard));
+    assertEquals(2000000, bus.getLastUpdateNanos());
+  }
+
+  @Test
+  public void itShouldKeepWithinTheBudgetWithABoardThatIsAlwaysSlow() {
+    // Assemble
+    long[] now = { 0 };
+    EncoderBusManager bus = new EncoderBusManager(2500000, () -> now[0]);
+    bus.addBoard(newBoard(now), EncoderBusManager.DRIVE_PRIORITY);
+    int armBoard = bus.addBoard(newSlowBoard(now, 3000000), 1);
+    int turretBoard = bus.addBoard(newBoard(now), 1);
+
+    // Act
+    long worstUpdateNanos = 0;
+    bus.update();   // the arm's first read is the one that measures it
+    for (int tick = 0; tick < 50; tick++) {
+      bus.update();
+      worstUpdateNanos = Math.max(worstUpdateNanos, bus.getLastUpdateNanos());
+    }
+
+    // Assert
+    assertTrue(worstUpdateNanos <= 2500000);
+    assertEquals(1, bus.getReadCount(armBoard));
+    assertTrue(bus.isUnschedulable(armBoard));
+    assertEquals(50, bus.getReadCount(turretBoard));
+  }
+
+  @Test
+  public void itShouldReadAStarvedBoardStraightAfterTheDriveBoard() {
+    // Assemble
+    long[] now = { 0 };
+    EncoderBusManager bus = new EncoderBusManager(2500000, () -> now[0]);
+    bus.addBoard(newBoard(now), EncoderBusManager.DRIVE_PRIORITY);
+    int turretBoard = bus.addBoard(newBoard(now), 2);
+    int armBoard = bus.addBoard(newBoard(now), 1);
+
+    // Act
+    for (int tick = 0; tick < 2 * (EncoderBusManager.STARVED_DEFERRALS + 1); tick++) {
+      bus.update();
+    }
+
+    // Assert
+    assertEquals(2, bus.getReadCount(armBoard));
+    assertEquals(2 * EncoderBusManager.STARVED_DEFERRALS + 1, bus.getReadCount(turretBoard));
+    assertFalse(bus.isUnschedulable(armBoard));
+    assertTrue(bus.getLastUpdateNanos() <= 2500000);
+  }
+
+  @Test
+  public void itShouldReadTheOnlyDriveBoardFirstAndReportWhetherABoardWasRead() {
+    // Assemble
+    long[] now = { 0 };
+    EncoderBusManager bus = new EncoderBusManager(2500000, () -> now[0]);
+    DigisparkFeedbackEncoder wheels = newBoard(now);
+    DigisparkFeedbackEncoder arm = newBoard(now);
+    DigisparkFeedbackEncoder turret = newBoard(now);
+    bus.addBoard(wheels, EncoderBusManager.DRIVE_PRIORITY);
+    bus.addBoard(arm, 1);
+    bus.addBoard(turret, 1);
+    bus.update();
+
+    // Act
+    boolean turretRead = bus.update(turret);
+    boolean wheelsRead = bus.update(wheels);
+
+    // Assert
+    assertTrue(wheelsRead);
+    assertFalse(turretRead);
+    assertTrue(bus.isDriveBoard(wheels));
+    assertFalse(bus.isDriveBoard(arm));
+    try {
+      bus.addBoard(newBoard(now), EncoderBusManager.DRIVE_PRIORITY);
+      fail("A second drive board was added");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private static DigisparkFeedbackEncoder newBoard(long[] now, long... firstReadNanos) {
+    DigisparkFeedbackEncoder board = mock(DigisparkFeedbackEncoder.class);
+    when(board.getChannelCount()).thenReturn(2);
+    // Every read takes a millisecond, unless told otherwise; a slower one is retried once a millisecond
+    int[] reads = { 0 };
+    long[] retries = { 0 };
+    doAnswer(invocation -> {
+      long nanos = reads[0] < firstReadNanos.length ? firstReadNanos[reads[0]] : 1000000;
+      retries[0] += (nanos - 1) / 1000000;
+      now[0] += nanos;
+      reads[0]++;
+      return null;
+    }).when(board).update();
+    when(board.getRetryCount()).thenAnswer(invocation -> retries[0]);
+    return board;
+  }
+
+  private static DigisparkFeedbackEncoder newSlowBoard(long[] now, long readNanos) {
+    DigisparkFeedbackEncoder board = mock(DigisparkFeedbackEncoder.class);
+    when(board.getChannelCount()).thenReturn(2);
+    doAnswer(invocation -> {
+      now[0] += readNanos;
+      return null;
+    }).when(board).update();
+    return board;
+  }
+}
@@ -0,0 +1,133 @@
+package devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.*;
+
+public class FeedbackAcquisitionServiceUnitTest {
+  private final long[] now = { 0 };
+  private final DigisparkFeedbackEncoder encoder = mock(DigisparkFeedbackEncoder.class);
+  private final ParallaxHallEffectFeedbackSensor leftSensor = mock(ParallaxHallEffectFeedbackSensor.class);
+  private final ParallaxHallEffectFeedbackSensor rightSensor = mock(ParallaxHallEffectFeedbackSensor.class);
+  private final FeedbackAcquisitionService service = new FeedbackAcquisitionService(encoder, 
+      leftSensor, 
+      rightSensor, 
+      FeedbackAcquisitionService.DEFAULT_VELOCITY_WINDOW, 
+      () -> now[0]);
+
+  @After
+  public void tearDown() {
+    service.stop();
+  }
+
+  @Test
+  public void itShouldPublishBothTickCountsAndSpeedsFromOneRead() {
+    // Assemble
+    when(leftSensor.getTickCount()).thenReturn(0L, 36L);
+    when(rightSensor.getTickCount()).thenReturn(0L, -18L);
+
+    // Act
+    service.acquire();
+    now[0] = 100000000;
+    service.acquire();
+
+    // Assert
+    FeedbackSample sample = service.getSample();
+    assertEquals(2, sample.getSequence());
+    assertEquals(100000000, sample.getTimestampNanos());
+    assertEquals(36, sample.getLeftTickCount());
+    assertEquals(-18, sample.getRightTickCount());
+    assertEquals(360, sample.getLeftTicksPerSecond(), 0.001);
+    assertEquals(-180, sample.getRightTicksPerSecond(), 0.001);
+    verify(leftSensor).update(100000000);
+    verify(rightSensor).update(100000000);
+  }
+
+  @Test
+  public void itShouldCountStaleReadsAndKeepThePreviousSample() {
+    // Assemble
+    when(encoder.isStale()).thenReturn(false, true);
+    service.acquire();
+    FeedbackSample before = service.getSample();
+    now[0] = 20000000;
+
+    // Act
+    service.acquire();
+
+    // Assert
+    assertSame(before, service.getSample());
+    assertEquals(1, service.getStaleCount());
+    verify(leftSensor, times(1)).update(anyLong());
+    verify(rightSensor, times(1)).update(anyLong());
+  }
+
+  @Test
+  public void itShouldAcquireOnItsOwnThreadUntilStopped() throws InterruptedException {
+    // Act
+    service.start(5);
+    verify(encoder, timeout(1000).atLeast(3)).update();
+    boolean runningBefore = service.isRunning();
+    service.stop();
+    // Let a read that was already under way finish
+    Thread.sleep(20);
+    int readsWhenStopped = updateCount();
+    Thread.sleep(50);
+
+    // Assert
+    assertTrue(runningBefore);
+    assertFalse(service.isRunning());
+    assertEquals(readsWhenStopped, updateCount());
+    assertTrue(service.getSample().getSequence() >= 3);
+  }
+
+  @Test
+  public void itShouldOnlyReadThroughABusThatHasTheEncoderAsItsDriveBoard() {
+    // Assemble
+    EncoderBusManager bus = new EncoderBusManager();
+    bus.addBoard(encoder, 1);
+
+    // Act
+    try {
+      service.setEncoderBus(bus);
+      fail("A bus that may defer the drive encoder was accepted");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void itShouldLeaveTheSensorsAloneWhenTheBusDidNotReadTheEncoder() {
+    // Assemble
+    EncoderBusManager bus = mock(EncoderBusManager.class);
+    when(bus.isDriveBoard(encoder)).thenReturn(true);
+    when(bus.update(encoder)).thenReturn(false);
+    service.setEncoderBus(bus);
+    now[0] = 20000000;
+
+    // Act
+    service.acquire();
+
+    // Assert
+    verify(leftSensor, never()).update(anyLong());
+    verify(rightSensor, never()).update(anyLong());
+    assertEquals(0, service.getSample().getSequence());
+    assertEquals(1, service.getStaleCount());
+  }
+
+  private int updateCount() {
+    return (int)mockingDetails(encoder).getInvocations().stream()
+        .filter(invocation -> invocation.getMethod().getName().equals("update"))
+        .count();
+  }
+}
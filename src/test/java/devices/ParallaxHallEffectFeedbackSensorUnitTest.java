@@ -0,0 +1,128 @@
+package devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.*;
+import org.pmw.tinylog.Logger;
+
+public class ParallaxHallEffectFeedbackSensorUnitTest {
+  private static final int[] SPEEDS_RPM = { 30, 60, 120, 150 };
+  private static final int[] SAMPLE_PERIODS_MS = { 10, 20, 50, 100, 150, 250 };
+
+  @Test
+  public void itShouldCountBackwardRotationsDown() {
+    // Assemble
+    ParallaxHallEffectFeedbackSensor sensor = newSensor(ParallaxHallEffectFeedbackSensor.UnwrapMode.QUADRANT);
+    sensor.update(dutyCycleFor(10), 0);
+
+    // Act
+    sensor.update(dutyCycleFor(300), 10000000);
+
+    // Assert
+    assertEquals(-1, sensor.getRotationCount());
+    assertEquals(-60, sensor.getTickCount());
+  }
+
+  @Test
+  public void itShouldTrackFastWheelsWithSlowSamplingUsingVelocity() {
+    for (int rpm : SPEEDS_RPM) {
+      for (int samplePeriodMs : SAMPLE_PERIODS_MS) {
+        long error = replay(ParallaxHallEffectFeedbackSensor.UnwrapMode.VELOCITY, rpm, samplePeriodMs);
+        Logger.info("VELOCITY " + rpm + "rpm every " + samplePeriodMs + "ms: worst error " + error + " ticks");
+        assertTrue("Error of " + error + " ticks at " + rpm + "rpm every " + samplePeriodMs + "ms", 
+            Math.abs(error) <= 1);
+      }
+    }
+  }
+
+  @Test
+  public void itShouldTrackWheelsWithFastSamplingUsingQuadrants() {
+    for (int rpm : SPEEDS_RPM) {
+      for (int samplePeriodMs : SAMPLE_PERIODS_MS) {
+        long error = replay(ParallaxHallEffectFeedbackSensor.UnwrapMode.QUADRANT, rpm, samplePeriodMs);
+        Logger.info("QUADRANT " + rpm + "rpm every " + samplePeriodMs + "ms: worst error " + error + " ticks");
+        if (rpm * 6 * samplePeriodMs / 1000 < 90) {
+          assertTrue("Error of " + error + " ticks at " + rpm + "rpm every " + samplePeriodMs + "ms", 
+              Math.abs(error) <= 1);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void itShouldNotCarryTheSpeedAcrossAStaleGap() {
+    // Assemble
+    ParallaxHallEffectFeedbackSensor sensor = newSensor(ParallaxHallEffectFeedbackSensor.UnwrapMode.VELOCITY);
+    // 120rpm, 7.2 ticks every 10ms
+    for (int sample = 0; sample <= 100; sample++) {
+      sensor.update(dutyCycleFor(Math.floorMod(Math.round(sample * 7.2), 360)), sample * 10000000L);
+    }
+    long ticksBeforeGap = sensor.getTickCount();
+
+    // Act
+    // The encoder could not be read for 5s, during which the wheel stopped 20 ticks on
+    sensor.update(dutyCycleFor(Math.floorMod(ticksBeforeGap + 20, 360)), 100 * 10000000L + 5000000000L);
+
+    // Assert
+    assertEquals(ticksBeforeGap + 20, sensor.getTickCount());
+  }
+
+  private ParallaxHallEffectFeedbackSensor newSensor(ParallaxHallEffectFeedbackSensor.UnwrapMode unwrapMode) {
+    return new ParallaxHallEffectFeedbackSensor(
+        mock(DigisparkFeedbackEncoder.class), 
+        ParallaxHallEffectFeedbackSensor.WheelSide.LEFT, 
+        unwrapMode);
+  }
+
+  /**
+   * Replay a synthetic drive: speed up to rpm over a second, hold for two,
+   * reverse to -rpm over two seconds, hold for two and stop over a second.
+   * @return  The largest difference between counted and true ticks seen at any sample.
+   */
+  private long replay(ParallaxHallEffectFeedbackSensor.UnwrapMode unwrapMode, int rpm, int samplePeriodMs) {
+    ParallaxHallEffectFeedbackSensor sensor = newSensor(unwrapMode);
+    double maxDegreesPerMs = rpm * 360.0 / 60000.0;
+    double angle = 0;
+    long startTicks = 0;
+    long worstError = 0;
+    for (int ms = 0; ms <= 8000 + samplePeriodMs; ms++) {
+      if (ms % samplePeriodMs == 0) {
+        long trueTicks = Math.round(angle);
+        sensor.update(dutyCycleFor(Math.floorMod(trueTicks, 360)), ms * 1000000L);
+        if (ms == 0) {
+          startTicks = sensor.getTickCount();
+        }
+        long error = (sensor.getTickCount() - startTicks) - trueTicks;
+        if (Math.abs(error) > Math.abs(worstError)) {
+          worstError = error;
+        }
+      }
+      angle += maxDegreesPerMs * speedFraction(ms);
+    }
+    return worstError;
+  }
+
+  private double speedFraction(int ms) {
+    if (ms < 1000) {
+      return ms / 1000.0;
+    } else if (ms < 3000) {
+      return 1;
+    } else if (ms < 5000) {
+      return 1 - (ms - 3000) / 1000.0;
+    } else if (ms < 7000) {
+      return -1;
+    } else if (ms < 8000) {
+      return -1 + (ms - 7000) / 1000.0;
+    }
+    return 0;
+  }
+
+  /**
+   * @return  The duty cycle that the sensor decodes to the given theta.
+   */
+  private int dutyCycleFor(long theta) {
+    return 29 + (int)(((359 - theta) * 943 + 359) / 360);
+  }
+}
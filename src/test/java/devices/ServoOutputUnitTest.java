@@ -0,0 +1,83 @@
+package devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.diozero.devices.Servo;
+
+import org.junit.*;
+
+public class ServoOutputUnitTest {
+  @Test
+  public void itShouldSkipWritesWithinEpsilonOfTheLastWrite() {
+    // Assemble
+    Servo servoMock = mock(Servo.class);
+    ServoOutput output = new ServoOutput(servoMock, 0.001f);
+
+    // Act
+    output.set(1.6f);
+    boolean first = output.flush();
+    output.set(1.6005f);
+    boolean second = output.flush();
+    output.set(1.602f);
+    boolean third = output.flush();
+
+    // Assert
+    assertTrue(first);
+    assertFalse(second);
+    assertTrue(third);
+    verify(servoMock, times(1)).setPulseWidthMs(1.6f);
+    verify(servoMock, times(1)).setPulseWidthMs(1.602f);
+    verify(servoMock, times(2)).setPulseWidthMs(anyFloat());
+    assertEquals(2, output.getWriteCount());
+    assertEquals(1, output.getSuppressedCount());
+  }
+
+  @Test
+  public void itShouldWriteOnlyTheLastPulseWidthSetBeforeAFlush() {
+    // Assemble
+    Servo servoMock = mock(Servo.class);
+    ServoOutput output = new ServoOutput(servoMock);
+
+    // Act
+    output.set(1.5f);
+    output.set(1.7f);
+    output.flush();
+    boolean again = output.flush();
+
+    // Assert
+    assertFalse(again);
+    verify(servoMock, times(1)).setPulseWidthMs(anyFloat());
+    verify(servoMock, times(1)).setPulseWidthMs(1.7f);
+    assertEquals(1, output.getWriteCount());
+    assertEquals(1, output.getSuppressedCount());
+  }
+
+  @Test
+  public void itShouldWriteAgainWhenAnInvertedServoDoesNotMatch() {
+    // Assemble
+    Servo servoMock = mock(Servo.class);
+    ServoOutput output = new ServoOutput(servoMock, 0.001f, true, 1.5f);
+    output.set(1.6f);
+    output.flush();
+
+    // Act
+    when(servoMock.getPulseWidthMs()).thenReturn(1.4f);
+    boolean matched = output.reconcile(0.01f);
+    when(servoMock.getPulseWidthMs()).thenReturn(1.5f);
+    boolean mismatched = output.reconcile(0.01f);
+
+    // Assert
+    assertTrue(matched);
+    assertFalse(mismatched);
+    verify(servoMock, times(2)).setPulseWidthMs(1.6f);
+    assertEquals(1, output.getMismatchCount());
+    assertEquals(1.6f, output.getPulseWidthMs(), 0);
+  }
+}
@@ -0,0 +1,40 @@
+package devices;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.*;
+
+public class WheelVelocityEstimatorUnitTest {
+  @Test
+  public void itShouldEstimateConstantSpeed() {
+    // Assemble
+    WheelVelocityEstimator estimator = new WheelVelocityEstimator(5, 360);
+
+    // Act
+    for (int i = 0; i < 20; i++) {
+      // 720 ticks per second sampled every 10ms
+      estimator.addSample(i * 10000000L, i * 7 + (i / 5) * 1);
+    }
+
+    // Assert
+    assertEquals(720, estimator.getTicksPerSecond(), 20);
+    assertEquals(120, estimator.getRpm(), 4);
+  }
+
+  @Test
+  public void itShouldEstimateConstantAcceleration() {
+    // Assemble
+    WheelVelocityEstimator estimator = new WheelVelocityEstimator(10, 360);
+
+    // Act
+    for (int i = 0; i <= 100; i++) {
+      // 10000 ticks per second squared from standstill
+      double seconds = i * 0.01;
+      estimator.addSample(i * 10000000L, Math.round(5000 * seconds * seconds));
+    }
+
+    // Assert, velocity lags by half the window
+    assertEquals(9500, estimator.getTicksPerSecond(), 50);
+    assertEquals(10000, estimator.getTicksPerSecondSquared(), 500);
+  }
+}
@@ -0,0 +1,43 @@
+package host;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.diozero.internal.provider.NativeDeviceFactoryInterface;
+
+import org.junit.*;
+
+public class PigpioConnectionsUnitTest {
+  @Test
+  public void itShouldGiveEachDaemonItsOwnConnection() {
+    // Assemble
+    List<String> connected = new ArrayList<>();
+    PigpioConnections connections = new PigpioConnections((host, port) -> {
+      connected.add(host + ":" + port);
+      return mock(NativeDeviceFactoryInterface.class);
+    });
+
+    // Act
+    NativeDeviceFactoryInterface alpha = connections.get(new RobotConfig("alpha", "alpha-pi", 8888, 24, 23, 1, 4, 0, 20));
+    NativeDeviceFactoryInterface bravo = connections.get(new RobotConfig("bravo", "bravo-pi", 8888, 24, 23, 1, 4, 1, 20));
+    NativeDeviceFactoryInterface charlie = connections.get(new RobotConfig("charlie", "alpha-pi", 8888, 18, 17, 1, 5, 2, 20));
+    connections.close();
+
+    // Assert
+    assertNotSame(alpha, bravo);
+    assertSame(alpha, charlie);
+    assertEquals(2, connected.size());
+    assertEquals("alpha-pi:8888", connected.get(0));
+    assertEquals("bravo-pi:8888", connected.get(1));
+    verify(alpha, times(1)).close();
+    verify(bravo, times(1)).close();
+    assertEquals(0, connections.getConnectionCount());
+  }
+}
@@ -0,0 +1,56 @@
+package host;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.*;
+
+public class RobotRosterUnitTest {
+  @Test
+  public void itShouldReadEachRobotWithDefaults() {
+    // Assemble
+    Properties properties = new Properties();
+    properties.setProperty("robots", "alpha, bravo");
+    properties.setProperty("alpha.gamepad", "0");
+    properties.setProperty("bravo.pigpioHost", "learningbot2.local");
+    properties.setProperty("bravo.gamepad", "1");
+    properties.setProperty("bravo.encoderAddress", "0x05");
+
+    // Act
+    List<RobotConfig> robots = RobotRoster.parse(properties);
+
+    // Assert
+    assertEquals(2, robots.size());
+    assertEquals("alpha", robots.get(0).getName());
+    assertNull(robots.get(0).getPigpioHost());
+    assertEquals(24, robots.get(0).getLeftWheelPin());
+    assertEquals("learningbot2.local", robots.get(1).getPigpioHost());
+    assertEquals(5, robots.get(1).getEncoderAddress());
+    assertEquals(1, robots.get(1).getGamepadIndex());
+  }
+
+  @Test
+  public void itShouldRefuseTwoRobotsOnTheSameServoPin() {
+    // Assemble
+    Properties properties = new Properties();
+    properties.setProperty("robots", "alpha,bravo");
+    properties.setProperty("alpha.gamepad", "0");
+    properties.setProperty("bravo.gamepad", "1");
+    properties.setProperty("bravo.leftWheelPin", "17");
+    properties.setProperty("bravo.rightWheelPin", "24");
+    properties.setProperty("bravo.encoderAddress", "5");
+
+    // Act
+    try {
+      RobotRoster.parse(properties);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Assert
+      assertEquals("Robots alpha and bravo both use localhost:8888 GPIO 24", e.getMessage());
+    }
+  }
+}
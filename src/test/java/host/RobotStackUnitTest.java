@@ -0,0 +1,34 @@
+package host;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.*;
+
+import oi.Gamepad;
+import sim.SimulatedDeviceFactory;
+
+public class RobotStackUnitTest {
+  @Test
+  public void itShouldRunEachRobotOnItsOwnControlLoop() throws InterruptedException {
+    // Assemble
+    RobotStack alpha = new RobotStack(new RobotConfig("alpha", null, 8888, 24, 23, 1, 4, 0, 10), 
+        new SimulatedDeviceFactory(), 
+        mock(Gamepad.class));
+    RobotStack bravo = new RobotStack(new RobotConfig("bravo", null, 8888, 24, 23, 1, 4, 1, 10), 
+        new SimulatedDeviceFactory(), 
+        mock(Gamepad.class));
+
+    // Act
+    alpha.start();
+    bravo.start();
+    Thread.sleep(200);
+    alpha.stop();
+    bravo.stop();
+
+    // Assert
+    assertTrue(alpha.getControlLoop().getIterationCount() > 5);
+    assertTrue(bravo.getControlLoop().getIterationCount() > 5);
+    assertTrue(alpha.getTickLatency().getCount() > 5);
+  }
+}
@@ -0,0 +1,52 @@
+package loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.*;
+
+public class ControlLoopUnitTest {
+  @Test
+  public void itShouldStopWhenStoppedRightAfterStartingAndNeverRunTwice() throws InterruptedException {
+    // Assemble
+    AtomicLong runs = new AtomicLong();
+    ControlLoop loop = new ControlLoop("TestControlLoop", runs::incrementAndGet, 1000000);
+
+    // Act
+    loop.start();
+    loop.stop();
+    boolean stoppedBeforeRunning = loop.join(1000);
+    long runsAfterStop = runs.get();
+    Thread.sleep(20);
+    long runsLater = runs.get();
+    loop.start();
+    long deadline = System.nanoTime() + 1000000000L;
+    while (runs.get() < runsLater + 5 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    loop.start();
+    int loopThreads = countThreads("TestControlLoop");
+    loop.stop();
+    boolean stoppedAgain = loop.join(1000);
+
+    // Assert
+    assertTrue(stoppedBeforeRunning);
+    assertEquals(runsAfterStop, runsLater);
+    assertEquals(1, loopThreads);
+    assertTrue(stoppedAgain);
+    assertFalse(loop.isRunning());
+  }
+
+  private static int countThreads(String name) {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals(name)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
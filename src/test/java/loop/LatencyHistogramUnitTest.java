@@ -0,0 +1,25 @@
+package loop;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.*;
+
+public class LatencyHistogramUnitTest {
+  @Test
+  public void itShouldReportPercentilesWithinBucketPrecision() {
+    // Assemble
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    // Act
+    for (long micros = 1; micros <= 1000; micros++) {
+      histogram.record(micros * 1000);
+    }
+
+    // Assert
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000, histogram.getMaxNanos());
+    assertEquals(500000, histogram.getPercentileNanos(50), 500000 * 0.035);
+    assertEquals(990000, histogram.getPercentileNanos(99), 990000 * 0.035);
+    assertEquals(1000000, histogram.getPercentileNanos(100));
+  }
+}
@@ -0,0 +1,72 @@
+package motion;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class TrajectoryCacheUnitTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void itShouldLoadATrajectoryGeneratedByAnEarlierRun() throws Exception {
+    // Assemble
+    File directory = new File(folder.getRoot(), "trajectories");
+    List<Pose> waypoints = Arrays.asList(new Pose(0, 0, 0), new Pose(1, 0.5, Math.PI / 2));
+    MotionConstraints constraints = new MotionConstraints(0.2, 0.4);
+    DriveGeometry geometry = DriveGeometry.learningBot();
+    Trajectory generated = new TrajectoryCache(directory).get(waypoints, constraints, geometry, 0.02);
+
+    // Act
+    TrajectoryCache cache = new TrajectoryCache(directory);
+    Trajectory loaded = cache.get(waypoints, constraints, geometry, 0.02);
+    cache.get(waypoints, new MotionConstraints(0.3, 0.4), geometry, 0.02);
+
+    // Assert
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2, directory.list().length);
+    assertEquals(generated.getLength(), loaded.getLength());
+    int last = loaded.getLength() - 1;
+    assertEquals(1, loaded.getX(last), 1e-6);
+    assertEquals(0.5, loaded.getY(last), 1e-6);
+    assertEquals(Math.PI / 2, loaded.getHeading(last), 1e-3);
+    assertEquals(0, loaded.getVelocity(last), 0);
+    for (int i = 0; i <= last; i++) {
+      assertEquals(generated.getVelocity(i), loaded.getVelocity(i), 0);
+    }
+  }
+
+  @Test
+  public void itShouldGenerateAgainWhenACachedFileClaimsMoreStepsThanItHolds() throws Exception {
+    // Assemble
+    File directory = new File(folder.getRoot(), "trajectories");
+    List<Pose> waypoints = Arrays.asList(new Pose(0, 0, 0), new Pose(1, 0, 0));
+    MotionConstraints constraints = new MotionConstraints(0.2, 0.4);
+    DriveGeometry geometry = DriveGeometry.learningBot();
+    new TrajectoryCache(directory).get(waypoints, constraints, geometry, 0.02);
+    File file = directory.listFiles()[0];
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(4 + 2 + 8 + 8);
+      raf.writeInt(Integer.MAX_VALUE);
+    }
+
+    // Act
+    TrajectoryCache cache = new TrajectoryCache(directory);
+    Trajectory trajectory = cache.get(waypoints, constraints, geometry, 0.02);
+
+    // Assert
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, trajectory.getX(trajectory.getLength() - 1), 1e-6);
+    TrajectoryCache rewritten = new TrajectoryCache(directory);
+    rewritten.get(waypoints, constraints, geometry, 0.02);
+    assertEquals(1, rewritten.getHitCount());
+  }
+}
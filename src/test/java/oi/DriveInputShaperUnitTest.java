@@ -0,0 +1,52 @@
+package oi;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.*;
+
+public class DriveInputShaperUnitTest {
+  @Test
+  public void itShouldStretchTheAxisFromTheEdgeOfTheDeadband() {
+    // Assemble
+    AxisShaper shaper = new AxisShaper(AxisShaper.deadband(0.05));
+
+    // Act and Assert
+    assertEquals(0, shaper.shape(0.049f));
+    assertEquals(5, shaper.shape(0.0975f));
+    assertEquals(-100, shaper.shape(-1));
+    assertEquals(100, shaper.shape(1.2f));
+    assertEquals(0, shaper.shape(Float.NaN));
+  }
+
+  @Test
+  public void itShouldKeepMixedWheelsWithinFullPowerAndTurnRightBothWays() {
+    // Assemble
+    DriveMixer mixer = new DriveMixer(DriveMixer.Mode.ARCADE);
+
+    // Act and Assert
+    assertEquals(100, mixer.getLeftWheelPct(100, 50));
+    assertEquals(33, mixer.getRightWheelPct(100, 50));
+    assertEquals(-33, mixer.getLeftWheelPct(-100, 50));
+    assertEquals(-100, mixer.getRightWheelPct(-100, 50));
+    assertEquals(40, mixer.getLeftWheelPct(0, 40));
+    assertEquals(-40, mixer.getRightWheelPct(0, 40));
+  }
+
+  @Test
+  public void itShouldLimitHowFastTheWheelsSpeedUp() {
+    // Assemble
+    DriveInputShaper shaper = new DriveInputShaper(AxisShaper.deadband(0), DriveMixer.Mode.ARCADE, 10);
+
+    // Act
+    shaper.tank(1, -0.05f);
+    int firstLeftWheelPct = shaper.getLeftWheelPct();
+    for (int i = 0; i < 9; i++) {
+      shaper.tank(1, -0.05f);
+    }
+
+    // Assert
+    assertEquals(10, firstLeftWheelPct);
+    assertEquals(100, shaper.getLeftWheelPct());
+    assertEquals(-5, shaper.getRightWheelPct());
+  }
+}
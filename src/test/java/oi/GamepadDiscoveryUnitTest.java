@@ -0,0 +1,225 @@
+package oi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.java.games.input.Component;
+import net.java.games.input.Controller;
+
+import org.junit.*;
+
+public class GamepadDiscoveryUnitTest {
+  @Test
+  public void itShouldReadZeroUntilTheGamepadIsPluggedInAndAfterItIsPulledOut() {
+    // Assemble
+    Component yAxis = mock(Component.class);
+    when(yAxis.getPollData()).thenReturn(-0.5f);
+    Controller controller = mock(Controller.class);
+    when(controller.getType()).thenReturn(Controller.Type.GAMEPAD);
+    when(controller.getName()).thenReturn("Test Gamepad");
+    when(controller.getComponents()).thenReturn(new Component[0]);
+    when(controller.getComponent(Component.Identifier.Axis.Y)).thenReturn(yAxis);
+    when(controller.poll()).thenReturn(true, true, false);
+    FakeControllerSource source = new FakeControllerSource(newKeyboard());
+    GamepadDiscovery gamepad = new GamepadDiscovery(0, source);
+
+    // Act
+    boolean foundBefore = gamepad.scan();
+    boolean polledBefore = gamepad.pollController();
+    float yBefore = gamepad.getY_LeftJoystick_Value();
+    source.plugIn(newKeyboard(), controller);
+    boolean foundAfter = gamepad.scan();
+    gamepad.pollController();
+    float yConnected = gamepad.getY_LeftJoystick_Value();
+    boolean polledPulled = gamepad.pollController();
+    float yPulled = gamepad.getY_LeftJoystick_Value();
+
+    // Assert
+    assertFalse(foundBefore);
+    assertTrue(polledBefore);
+    assertEquals(0f, yBefore, 0);
+    assertTrue(foundAfter);
+    assertEquals(-0.5f, yConnected, 0);
+    assertTrue(polledPulled);
+    assertEquals(0f, yPulled, 0);
+    assertFalse(gamepad.isConnected());
+    assertEquals(1, gamepad.getConnectCount());
+    assertEquals(1, gamepad.getDisconnectCount());
+    assertEquals(2, gamepad.getScanCount());
+  }
+
+  @Test
+  public void itShouldOnlyOpenDevicesAgainWhenSomethingIsPluggedIn() {
+    // Assemble
+    FakeControllerSource source = new FakeControllerSource(newKeyboard());
+    GamepadDiscovery gamepad = new GamepadDiscovery(0, source);
+
+    // Act
+    for (int scan = 0; scan < 1000; scan++) {
+      gamepad.scan();
+    }
+    source.plugIn(newKeyboard(), newKeyboard());
+    for (int scan = 0; scan < 1000; scan++) {
+      gamepad.scan();
+    }
+    gamepad.close();
+
+    // Assert
+    assertEquals(2000, gamepad.getScanCount());
+    assertEquals(2, gamepad.getEnumerationCount());
+    assertEquals(2, source.enumerations);
+    assertEquals(0, source.openEnumerations);
+  }
+
+  @Test
+  public void itShouldFindAGamepadRepluggedUnderTheSameName() {
+    // Assemble
+    Controller unplugged = newGamepad(-0.5f);
+    when(unplugged.poll()).thenReturn(true, false);
+    Controller replugged = newGamepad(0.25f);
+    FakeControllerSource source = new FakeControllerSource(unplugged);
+    GamepadDiscovery gamepad = new GamepadDiscovery(0, source);
+
+    // Act
+    gamepad.scan();
+    source.replugWithinOneCheck(replugged);
+    gamepad.pollController();
+    boolean foundAfter = gamepad.scan();
+    gamepad.pollController();
+    float yAfter = gamepad.getY_LeftJoystick_Value();
+    gamepad.scan();
+
+    // Assert
+    assertTrue(foundAfter);
+    assertEquals(0.25f, yAfter, 0);
+    assertEquals(2, gamepad.getConnectCount());
+    assertEquals(2, gamepad.getEnumerationCount());
+  }
+
+  @Test
+  public void itShouldOnlyReconnectToTheGamepadOnItsOwnPort() {
+    // Assemble
+    Controller alphaPad = newGamepad(-0.5f);
+    when(alphaPad.poll()).thenReturn(true, false);
+    Controller bravoPad = newGamepad(0.25f);
+    Controller alphaPadBack = newGamepad(-0.75f);
+    Set<String> claimedPorts = ConcurrentHashMap.newKeySet();
+    FakeControllerSource alphaSource = new FakeControllerSource(alphaPad, bravoPad);
+    FakeControllerSource bravoSource = new FakeControllerSource(alphaPad, bravoPad);
+    for (FakeControllerSource source : new FakeControllerSource[] { alphaSource, bravoSource }) {
+      source.ports.put(alphaPad, "usb-1.1");
+      source.ports.put(bravoPad, "usb-1.2");
+      source.ports.put(alphaPadBack, "usb-1.1");
+    }
+    GamepadDiscovery alpha = new GamepadDiscovery(0, alphaSource, claimedPorts);
+    GamepadDiscovery bravo = new GamepadDiscovery(1, bravoSource, claimedPorts);
+
+    // Act
+    alpha.scan();
+    bravo.scan();
+    alphaSource.plugIn(bravoPad);
+    alpha.pollController();
+    boolean alphaFoundWithoutItsPad = alpha.scan();
+    alphaSource.plugIn(bravoPad, alphaPadBack);
+    boolean alphaFoundItsPadBack = alpha.scan();
+    alpha.pollController();
+    float alphaY = alpha.getY_LeftJoystick_Value();
+
+    // Assert
+    assertEquals("usb-1.1", alpha.getPort());
+    assertEquals("usb-1.2", bravo.getPort());
+    assertFalse(alphaFoundWithoutItsPad);
+    assertTrue(alphaFoundItsPadBack);
+    assertEquals(-0.75f, alphaY, 0);
+  }
+
+  @Test
+  public void itShouldNotConnectToAPortAnotherRobotIsBoundTo() {
+    // Assemble
+    Controller bravoPad = newGamepad(0.25f);
+    Set<String> claimedPorts = ConcurrentHashMap.newKeySet();
+    claimedPorts.add("usb-1.2");
+    FakeControllerSource source = new FakeControllerSource(bravoPad);
+    source.ports.put(bravoPad, "usb-1.2");
+    GamepadDiscovery alpha = new GamepadDiscovery(0, source, claimedPorts);
+
+    // Act
+    boolean found = alpha.scan();
+
+    // Assert
+    assertFalse(found);
+    assertNull(alpha.getPort());
+  }
+
+  private static Controller newGamepad(float y) {
+    Component yAxis = mock(Component.class);
+    when(yAxis.getPollData()).thenReturn(y);
+    Controller controller = mock(Controller.class);
+    when(controller.getType()).thenReturn(Controller.Type.GAMEPAD);
+    when(controller.getName()).thenReturn("Test Gamepad");
+    when(controller.getComponents()).thenReturn(new Component[0]);
+    when(controller.getComponent(Component.Identifier.Axis.Y)).thenReturn(yAxis);
+    when(controller.poll()).thenReturn(true);
+    return controller;
+  }
+
+  private static Controller newKeyboard() {
+    Controller keyboard = mock(Controller.class);
+    when(keyboard.getType()).thenReturn(Controller.Type.KEYBOARD);
+    return keyboard;
+  }
+
+  private static class FakeControllerSource implements ControllerSource {
+    private Controller[] pluggedIn;
+    private long generation;
+    final Map<Controller, String> ports = new HashMap<>();
+    int enumerations;
+    int openEnumerations;
+
+    FakeControllerSource(Controller... pluggedIn) {
+      this.pluggedIn = pluggedIn;
+    }
+
+    void plugIn(Controller... pluggedIn) {
+      this.pluggedIn = pluggedIn;
+      generation++;
+    }
+
+    /** Same device names before and after, so the generation does not change. */
+    void replugWithinOneCheck(Controller... pluggedIn) {
+      this.pluggedIn = pluggedIn;
+    }
+
+    @Override
+    public long getDeviceGeneration() {
+      return generation;
+    }
+
+    @Override
+    public Controller[] enumerate() {
+      close();
+      enumerations++;
+      openEnumerations++;
+      return pluggedIn;
+    }
+
+    @Override
+    public String identify(Controller controller) {
+      return ports.get(controller);
+    }
+
+    @Override
+    public void close() {
+      openEnumerations = Math.max(0, openEnumerations - 1);
+    }
+  }
+}
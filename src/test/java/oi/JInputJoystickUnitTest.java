@@ -0,0 +1,116 @@
+package oi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import net.java.games.input.Component;
+import net.java.games.input.Controller;
+
+import org.junit.*;
+
+public class JInputJoystickUnitTest {
+  @Test
+  public void itShouldLookUpTheComponentsOnceAndReadThemOnEveryPoll() {
+    // Assemble
+    Component xAxis = newComponent("X Axis", Component.Identifier.Axis.X);
+    when(xAxis.getPollData()).thenReturn(0.25f, -0.5f);
+    Component ryAxis = newComponent("RY Axis", Component.Identifier.Axis.RY);
+    when(ryAxis.getPollData()).thenReturn(1f);
+    Component button0 = newComponent("Button 0", Component.Identifier.Button._0);
+    when(button0.getPollData()).thenReturn(1f, 0f);
+    Component button1 = newComponent("Button 1", Component.Identifier.Button._1);
+    when(button1.getPollData()).thenReturn(1f);
+    Controller controller = newController(Controller.Type.GAMEPAD, xAxis, ryAxis, button0, button1);
+    when(controller.getComponent(Component.Identifier.Axis.X)).thenReturn(xAxis);
+    when(controller.getComponent(Component.Identifier.Axis.RY)).thenReturn(ryAxis);
+    JInputJoystick joystick = new JInputJoystick(controller);
+    clearInvocations(controller);
+
+    // Act
+    boolean firstPolled = joystick.pollController();
+    float firstX = joystick.getX_LeftJoystick_Value();
+    int firstButtons = joystick.getButtons();
+    boolean secondPolled = joystick.pollController();
+    float secondX = joystick.getX_LeftJoystick_Value();
+    float secondRightY = joystick.getY_RightJoystick_Value();
+    int secondButtons = joystick.getButtons();
+
+    // Assert
+    assertTrue(firstPolled);
+    assertTrue(secondPolled);
+    assertEquals(0.25f, firstX, 0);
+    assertEquals(-0.5f, secondX, 0);
+    assertEquals(1f, secondRightY, 0);
+    assertEquals(0x3, firstButtons);
+    assertEquals(0x2, secondButtons);
+    assertEquals(0f, joystick.getY_LeftJoystick_Value(), 0);
+    assertEquals(2, joystick.getNumberOfButtons());
+    verify(controller, times(2)).poll();
+    verify(controller, never()).getComponents();
+    verify(controller, never()).getComponent(any(Component.Identifier.class));
+  }
+
+  @Test
+  public void itShouldReadTheRightStickOfAStickFromZAndRZ() {
+    // Assemble
+    Component zAxis = newComponent("Z Axis", Component.Identifier.Axis.Z);
+    when(zAxis.getPollData()).thenReturn(0.75f);
+    Component rzAxis = newComponent("RZ Axis", Component.Identifier.Axis.RZ);
+    when(rzAxis.getPollData()).thenReturn(-0.75f);
+    Controller controller = newController(Controller.Type.STICK, zAxis, rzAxis);
+    when(controller.getComponent(Component.Identifier.Axis.Z)).thenReturn(zAxis);
+    when(controller.getComponent(Component.Identifier.Axis.RZ)).thenReturn(rzAxis);
+    JInputJoystick joystick = new JInputJoystick(controller);
+
+    // Act
+    joystick.pollController();
+
+    // Assert
+    assertEquals(0.75f, joystick.getX_RightJoystick_Value(), 0);
+    assertEquals(-0.75f, joystick.getY_RightJoystick_Value(), 0);
+  }
+
+  @Test
+  public void itShouldClearTheButtonsWhenAPollFails() {
+    // Assemble
+    Component button0 = newComponent("Button 0", Component.Identifier.Button._0);
+    when(button0.getPollData()).thenReturn(1f);
+    Controller controller = newController(Controller.Type.GAMEPAD, button0);
+    when(controller.poll()).thenReturn(true, false);
+    JInputJoystick joystick = new JInputJoystick(controller);
+
+    // Act
+    joystick.pollController();
+    int buttonsBefore = joystick.getButtons();
+    boolean polled = joystick.pollController();
+
+    // Assert
+    assertEquals(0x1, buttonsBefore);
+    assertFalse(polled);
+    assertEquals(0, joystick.getButtons());
+    assertFalse(joystick.getButtonValue(0));
+  }
+
+  private static Component newComponent(String name, Component.Identifier identifier) {
+    Component component = mock(Component.class);
+    when(component.getName()).thenReturn(name);
+    when(component.getIdentifier()).thenReturn(identifier);
+    return component;
+  }
+
+  private static Controller newController(Controller.Type type, Component... components) {
+    Controller controller = mock(Controller.class);
+    when(controller.getType()).thenReturn(type);
+    when(controller.getComponents()).thenReturn(components);
+    when(controller.poll()).thenReturn(true);
+    return controller;
+  }
+}
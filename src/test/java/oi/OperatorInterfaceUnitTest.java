@@ -0,0 +1,88 @@
+package oi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.*;
+
+public class OperatorInterfaceUnitTest {
+  private final Gamepad gamepad = mock(Gamepad.class);
+
+  @Test
+  public void itShouldTakeEveryAxisOfASnapshotFromOnePoll() {
+    // Assemble
+    when(gamepad.pollController()).thenReturn(true);
+    when(gamepad.getX_LeftJoystick_Value()).thenReturn(0.1f);
+    when(gamepad.getY_LeftJoystick_Value()).thenReturn(-0.2f);
+    when(gamepad.getX_RightJoystick_Value()).thenReturn(0.3f);
+    when(gamepad.getY_RightJoystick_Value()).thenReturn(-0.4f);
+    OperatorInterface operatorInterface = new OperatorInterface(gamepad, 60000);
+
+    // Act
+    GamepadSnapshot first = operatorInterface.getSnapshot();
+    float leftY = operatorInterface.getLeftYAxis();
+    float rightY = operatorInterface.getRightYAxis();
+
+    // Assert
+    verify(gamepad, times(1)).pollController();
+    assertEquals(1, first.getSequence());
+    assertEquals(0.1f, first.getLeftXAxis(), 0);
+    assertEquals(-0.2f, first.getLeftYAxis(), 0);
+    assertEquals(0.3f, first.getRightXAxis(), 0);
+    assertEquals(-0.4f, first.getRightYAxis(), 0);
+    assertEquals(-0.2f, leftY, 0);
+    assertEquals(-0.4f, rightY, 0);
+    assertSame(first, operatorInterface.getSnapshot());
+  }
+
+  @Test
+  public void itShouldKeepTheEmptySnapshotUntilAPollSucceeds() {
+    // Assemble
+    when(gamepad.pollController()).thenReturn(false);
+    OperatorInterface operatorInterface = new OperatorInterface(gamepad, 60000);
+
+    // Act
+    GamepadSnapshot snapshot = operatorInterface.getSnapshot();
+
+    // Assert
+    assertSame(GamepadSnapshot.EMPTY, snapshot);
+  }
+
+  @Test
+  public void itShouldOnlyPollOnTheSamplerThreadWhileSampling() throws InterruptedException {
+    // Assemble
+    AtomicBoolean polledElsewhere = new AtomicBoolean();
+    when(gamepad.pollController()).thenAnswer(invocation -> {
+      if (!Thread.currentThread().getName().equals("GamepadSampler")) {
+        polledElsewhere.set(true);
+      }
+      return true;
+    });
+    OperatorInterface operatorInterface = new OperatorInterface(gamepad, 0);
+
+    // Act
+    operatorInterface.startSampling(5);
+    verify(gamepad, timeout(1000).atLeast(1)).pollController();
+    long firstSequence = operatorInterface.getSnapshot().getSequence();
+    // Once the poll after next has started, the next snapshot is published
+    verify(gamepad, timeout(1000).atLeast((int)firstSequence + 2)).pollController();
+    long laterSequence = operatorInterface.getSnapshot().getSequence();
+    boolean sampling = operatorInterface.isSampling();
+    operatorInterface.stopSampling();
+
+    // Assert
+    assertTrue(sampling);
+    assertFalse(operatorInterface.isSampling());
+    assertFalse(polledElsewhere.get());
+    assertTrue(laterSequence > firstSequence);
+  }
+}
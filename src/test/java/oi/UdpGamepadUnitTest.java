@@ -0,0 +1,152 @@
+package oi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.*;
+
+public class UdpGamepadUnitTest {
+  private static final InetSocketAddress LAPTOP = new InetSocketAddress("localhost", 40000);
+
+  @Test
+  public void itShouldReceiveTheLaptopGamepadOverLocalhost() throws Exception {
+    // Assemble
+    Gamepad laptopGamepad = mock(Gamepad.class);
+    when(laptopGamepad.pollController()).thenReturn(true);
+    when(laptopGamepad.getY_LeftJoystick_Value()).thenReturn(-0.5f);
+    when(laptopGamepad.getX_RightJoystick_Value()).thenReturn(1f);
+    when(laptopGamepad.getButtons()).thenReturn(0x5);
+    try (UdpGamepad robotGamepad = new UdpGamepad(0, UdpGamepad.DEFAULT_TIMEOUT_MS);
+        GamepadSender sender = new GamepadSender(laptopGamepad, new InetSocketAddress("localhost", robotGamepad.getPort()))) {
+      robotGamepad.start();
+
+      // Act
+      long deadline = System.nanoTime() + 2000000000L;
+      while (robotGamepad.getReceivedCount() == 0 && System.nanoTime() < deadline) {
+        sender.send();
+        Thread.sleep(5);
+      }
+      robotGamepad.pollController();
+
+      // Assert
+      assertTrue(robotGamepad.isConnected());
+      assertEquals(-0.5f, robotGamepad.getY_LeftJoystick_Value(), 1e-4);
+      assertEquals(1f, robotGamepad.getX_RightJoystick_Value(), 1e-4);
+      assertEquals(0f, robotGamepad.getX_LeftJoystick_Value(), 0);
+      assertEquals(0x5, robotGamepad.getButtons());
+      assertTrue(robotGamepad.getPacketAgeNanos() < 2000000000L);
+    }
+  }
+
+  @Test
+  public void itShouldDropLatePacketsAndReleaseWhenPacketsStop() throws Exception {
+    // Assemble
+    long[] now = { 0 };
+    try (UdpGamepad gamepad = new UdpGamepad(0, 100, () -> now[0])) {
+      ByteBuffer packet = ByteBuffer.allocate(GamepadPacket.SIZE);
+
+      // Act
+      GamepadPacket.encode(packet, 7, 2, 0, 0.75f, 0, 0, 0);
+      packet.flip();
+      boolean newer = gamepad.accept(packet, LAPTOP, 10);
+      packet.clear();
+      GamepadPacket.encode(packet, 7, 1, 0, -1, 0, 0, 0);
+      packet.flip();
+      boolean older = gamepad.accept(packet, LAPTOP, 20);
+      now[0] = 50000000L;
+      gamepad.pollController();
+      float beforeTimeout = gamepad.getY_LeftJoystick_Value();
+      now[0] = 200000000L;
+      gamepad.pollController();
+
+      // Assert
+      assertTrue(newer);
+      assertFalse(older);
+      assertEquals(1, gamepad.getOutOfOrderCount());
+      assertEquals(0.75f, beforeTimeout, 1e-4);
+      assertFalse(gamepad.isConnected());
+      assertEquals(0f, gamepad.getY_LeftJoystick_Value(), 0);
+    }
+  }
+
+  @Test
+  public void itShouldIgnoreASecondLaptopUntilTheFirstGoesQuiet() throws Exception {
+    // Assemble
+    AtomicLong now = new AtomicLong();
+    Gamepad firstGamepad = mock(Gamepad.class);
+    when(firstGamepad.pollController()).thenReturn(true);
+    when(firstGamepad.getY_LeftJoystick_Value()).thenReturn(-0.5f);
+    Gamepad secondGamepad = mock(Gamepad.class);
+    when(secondGamepad.pollController()).thenReturn(true);
+    when(secondGamepad.getY_LeftJoystick_Value()).thenReturn(0.25f);
+    try (UdpGamepad robotGamepad = new UdpGamepad(0, 100, now::get)) {
+      InetSocketAddress robot = new InetSocketAddress("localhost", robotGamepad.getPort());
+      try (GamepadSender first = new GamepadSender(firstGamepad, robot);
+          GamepadSender second = new GamepadSender(secondGamepad, robot)) {
+        robotGamepad.start();
+
+        // Act
+        long deadline = System.nanoTime() + 2000000000L;
+        while (robotGamepad.getReceivedCount() == 0 && System.nanoTime() < deadline) {
+          first.send();
+          Thread.sleep(5);
+        }
+        while (robotGamepad.getRejectedCount() < 5 && System.nanoTime() < deadline) {
+          second.send();
+          Thread.sleep(5);
+        }
+        robotGamepad.pollController();
+        float whileFirstDrives = robotGamepad.getY_LeftJoystick_Value();
+        now.set(200000000L);
+        while (robotGamepad.getReceivedCount() < 2 && System.nanoTime() < deadline) {
+          second.send();
+          Thread.sleep(5);
+        }
+        robotGamepad.pollController();
+
+        // Assert
+        assertEquals(-0.5f, whileFirstDrives, 1e-4);
+        assertTrue(robotGamepad.getRejectedCount() >= 5);
+        assertEquals(2, robotGamepad.getReceivedCount());
+        assertEquals(0.25f, robotGamepad.getY_LeftJoystick_Value(), 1e-4);
+      }
+    }
+  }
+
+  @Test
+  public void itShouldDropALatePacketFromBeforeTheSenderRestarted() throws Exception {
+    // Assemble
+    long[] now = { 0 };
+    try (UdpGamepad gamepad = new UdpGamepad(0, 100, () -> now[0])) {
+      ByteBuffer packet = ByteBuffer.allocate(GamepadPacket.SIZE);
+
+      // Act
+      GamepadPacket.encode(packet, 7, 40, 0, 0.75f, 0, 0, 0);
+      packet.flip();
+      gamepad.accept(packet, LAPTOP, 10);
+      now[0] = 300000000L;
+      packet.clear();
+      GamepadPacket.encode(packet, 8, 1, 0, -1, 0, 0, 0);
+      packet.flip();
+      boolean restarted = gamepad.accept(packet, LAPTOP, now[0]);
+      packet.clear();
+      GamepadPacket.encode(packet, 7, 41, 0, 1, 0, 0, 0);
+      packet.flip();
+      boolean late = gamepad.accept(packet, LAPTOP, now[0] + 1000000);
+      gamepad.pollController();
+
+      // Assert
+      assertTrue(restarted);
+      assertFalse(late);
+      assertEquals(1, gamepad.getRejectedCount());
+      assertEquals(-1f, gamepad.getY_LeftJoystick_Value(), 1e-4);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import commands.ArcadeDrive;
+import devices.ParallaxHallEffectFeedbackSensor.WheelSide;
+import oi.GamepadSnapshot;
+import oi.OperatorInterface;
+import sim.ScriptedGamepad;
+import sim.SimulatedClock;
+import sim.SimulatedDriveTrain;
+import subsystems.DriveTrain;
+
+public class ReplayDriverUnitTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void itShouldWriteEveryRecordFromSeveralThreadsInOrder() throws Exception {
+    // Assemble
+    File file = folder.newFile("drive.log");
+    long droppedCount;
+    long recordCount;
+    try (DriveLogWriter writer = new DriveLogWriter(file.getPath())) {
+      Thread left = new Thread(() -> {
+        for (int i = 1; i <= 1000; i++) {
+          writer.recordServo(i, WheelSide.LEFT, 1.5f);
+        }
+      });
+      Thread right = new Thread(() -> {
+        for (int i = 1; i <= 1000; i++) {
+          writer.recordServo(i, WheelSide.RIGHT, 1.5f);
+        }
+      });
+
+      // Act
+      left.start();
+      right.start();
+      for (int i = 1; i <= 1000; i++) {
+        writer.recordFeedback(i, true, 0, 0, i, -i);
+      }
+      left.join();
+      right.join();
+      droppedCount = writer.getDroppedCount();
+      recordCount = writer.getRecordCount();
+    }
+
+    // Assert
+    long[] lastTimestamps = new long[3];
+    int records = 0;
+    try (DriveLogReader reader = new DriveLogReader(file.getPath())) {
+      while (reader.next()) {
+        int stream = reader.getType() == DriveLog.FEEDBACK ? 2 : reader.getSide().ordinal();
+        assertEquals(lastTimestamps[stream] + 1, reader.getTimestampNanos());
+        lastTimestamps[stream] = reader.getTimestampNanos();
+        records++;
+      }
+    }
+    assertEquals(0, droppedCount);
+    assertEquals(3000, recordCount);
+    assertEquals(3000, records);
+  }
+
+  @Test
+  public void itShouldReadBackRecordsAndSkipUnchangedGamepadSnapshots() throws IOException {
+    // Assemble
+    File file = folder.newFile("drive.log");
+    try (DriveLogWriter writer = new DriveLogWriter(file.getPath())) {
+      writer.recordGamepad(new GamepadSnapshot(1, 100, 0.1f, 0.5f, 0, 0));
+      writer.recordGamepad(new GamepadSnapshot(2, 110, 0.1f, 0.5f, 0, 0));
+      writer.recordFeedback(120, true, 968, 29, 1080, -5);
+      writer.recordServo(130, WheelSide.RIGHT, 1.566f);
+    }
+
+    // Act
+    DriveLogReader reader = new DriveLogReader(file.getPath());
+
+    // Assert
+    assertTrue(reader.next());
+    assertEquals(DriveLog.GAMEPAD, reader.getType());
+    assertEquals(1, reader.getSequence());
+    assertEquals(0.5f, reader.getLeftYAxis(), 0);
+    assertTrue(reader.next());
+    assertEquals(DriveLog.FEEDBACK, reader.getType());
+    assertEquals(120, reader.getTimestampNanos());
+    assertTrue(reader.isBackground());
+    assertEquals(968, reader.getLeftPctX10());
+    assertEquals(1080, reader.getLeftTickCount());
+    assertEquals(-5, reader.getRightTickCount());
+    assertTrue(reader.next());
+    assertEquals(DriveLog.SERVO, reader.getType());
+    assertEquals(WheelSide.RIGHT, reader.getSide());
+    assertEquals(1.566f, reader.getPulseWidthMs(), 0);
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  @Test
+  public void itShouldReplayASimulatedDriveWithoutMismatches() throws IOException {
+    // Assemble
+    File file = folder.newFile("drive.log");
+    SimulatedClock clock = new SimulatedClock();
+    ScriptedGamepad gamepad = ScriptedGamepad.driveTest(clock, 1);
+    OperatorInterface operatorInterface = new OperatorInterface(gamepad, 0);
+    SimulatedDriveTrain robot = new SimulatedDriveTrain(clock, operatorInterface);
+    DriveTrain driveTrain = robot.getDriveTrain();
+    SteppedArcadeDrive arcadeDrive = new SteppedArcadeDrive(driveTrain, operatorInterface);
+    try (DriveLogWriter writer = new DriveLogWriter(file.getPath())) {
+      operatorInterface.setRecorder(writer);
+      driveTrain.setRecorder(writer);
+      while (!gamepad.isFinished()) {
+        robot.step(20000000);
+        arcadeDrive.step();
+      }
+    }
+    robot.close();
+
+    // Act
+    ReplayReport report = new ReplayDriver(file.getPath()).replay();
+
+    // Assert
+    assertTrue(report.toString(), report.isMatch());
+    assertEquals(500, report.getExecutes());
+    assertEquals(500, report.getFeedbackRecords());
+    assertEquals(1000, report.getServoRecords());
+  }
+
+  private static class SteppedArcadeDrive extends ArcadeDrive {
+    SteppedArcadeDrive(DriveTrain driveTrain, OperatorInterface operatorInterface) {
+      super(driveTrain, operatorInterface);
+    }
+
+    void step() {
+      execute();
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package subsystems;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyFloat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -13,6 +16,7 @@ import org.junit.*;
 import devices.DigisparkFeedbackEncoder;
 import devices.ParallaxHallEffectFeedbackSensor;
 import oi.OperatorInterface;
+import sim.SimulatedDriveTrain;
 
 public class DriveTrainUnitTest {
   @Test 
@@ -35,4 +39,109 @@ public class DriveTrainUnitTest {
     verify(rightServoMock, times(1)).setPulseWidthMs(1.566f);
     assertEquals(30, driveTrain.getRightWheelDrive());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void itShouldReportCommandedDriveWithoutReadingTheServos() {
+    // Assemble
+    Servo rightServoMock = mock(Servo.class);
+    Servo leftServoMock = mock(Servo.class);
+    DigisparkFeedbackEncoder encoderMock = mock(DigisparkFeedbackEncoder.class);
+    ParallaxHallEffectFeedbackSensor rightSensorMock = mock(ParallaxHallEffectFeedbackSensor.class);
+    ParallaxHallEffectFeedbackSensor leftSensorMock = mock(ParallaxHallEffectFeedbackSensor.class);
+    Servo.Trim trim = new Servo.Trim(1.5f, 1.5f, 1.28f, 1.72f);
+    OperatorInterface oiMock = mock(OperatorInterface.class);
+    DriveTrain driveTrain = new DriveTrain(trim, leftServoMock, rightServoMock, encoderMock, leftSensorMock, rightSensorMock, oiMock);
+
+    // Act
+    driveTrain.setLeftWheelDrive(-45);
+    driveTrain.setRightWheelDrive(80);
+
+    // Assert
+    assertEquals(-45, driveTrain.getLeftWheelDrive());
+    assertEquals(80, driveTrain.getRightWheelDrive());
+    verify(leftServoMock, never()).getPulseWidthMs();
+    verify(rightServoMock, never()).getPulseWidthMs();
+  }
+
+  @Test
+  public void itShouldReportTheDriveSetThisTickBeforeBatchedOutputsAreFlushed() {
+    // Assemble
+    Servo rightServoMock = mock(Servo.class);
+    Servo leftServoMock = mock(Servo.class);
+    Servo.Trim trim = new Servo.Trim(1.5f, 1.5f, 1.28f, 1.72f);
+    DriveTrain driveTrain = new DriveTrain(trim, 
+        leftServoMock, 
+        rightServoMock, 
+        mock(DigisparkFeedbackEncoder.class), 
+        mock(ParallaxHallEffectFeedbackSensor.class), 
+        mock(ParallaxHallEffectFeedbackSensor.class), 
+        mock(OperatorInterface.class));
+    driveTrain.setBatchedServoOutputs(true);
+    driveTrain.setLeftWheelDrive(20);
+    driveTrain.setRightWheelDrive(20);
+    driveTrain.flushServoOutputs();
+
+    // Act
+    driveTrain.setLeftWheelDrive(-45);
+    driveTrain.setRightWheelDrive(80);
+    int leftBeforeFlush = driveTrain.getLeftWheelDrive();
+    int rightBeforeFlush = driveTrain.getRightWheelDrive();
+
+    // Assert
+    assertEquals(-45, leftBeforeFlush);
+    assertEquals(80, rightBeforeFlush);
+    verify(rightServoMock, times(1)).setPulseWidthMs(anyFloat());
+    verify(rightServoMock, never()).getPulseWidthMs();
+  }
+
+  @Test
+  public void itShouldOnlyReadTheFeedbackInlineWhenNotAcquiringInTheBackground() {
+    // Assemble
+    DigisparkFeedbackEncoder encoderMock = mock(DigisparkFeedbackEncoder.class);
+    Servo.Trim trim = new Servo.Trim(1.5f, 1.5f, 1.28f, 1.72f);
+    DriveTrain driveTrain = new DriveTrain(trim, 
+        mock(Servo.class), 
+        mock(Servo.class), 
+        encoderMock, 
+        mock(ParallaxHallEffectFeedbackSensor.class), 
+        mock(ParallaxHallEffectFeedbackSensor.class), 
+        mock(OperatorInterface.class));
+
+    // Act
+    driveTrain.startFeedbackAcquisition(60000);
+    verify(encoderMock, timeout(1000).times(1)).update();
+    driveTrain.updateFeedbackSensors();
+    driveTrain.updateFeedbackSensors();
+    driveTrain.stopFeedbackAcquisition();
+    driveTrain.updateFeedbackSensors();
+
+    // Assert
+    verify(encoderMock, times(2)).update();
+    assertEquals(2, driveTrain.getFeedbackSample().getSequence());
+  }
+
+  @Test
+  public void itShouldTrackATargetSpeedInTheSimulator() {
+    // Assemble
+    SimulatedDriveTrain robot = new SimulatedDriveTrain(mock(OperatorInterface.class));
+    DriveTrain driveTrain = robot.getDriveTrain();
+    driveTrain.enableClosedLoop(VelocityGains.parallax360HighSpeed());
+    driveTrain.setLeftWheelSpeed(360);
+    driveTrain.setRightWheelSpeed(-180);
+
+    // Act
+    for (int i = 0; i < 150; i++) {
+      robot.step(20000000);
+      driveTrain.updateFeedbackSensors();
+      driveTrain.runVelocityLoop();
+    }
+
+    // Assert
+    // The left servo is inverted, so driving it forward turns its model backwards
+    assertEquals(-360, robot.getLeftWheel().getDegreesPerSecond(), 20);
+    assertEquals(-180, robot.getRightWheel().getDegreesPerSecond(), 20);
+    assertEquals(360, DriveTrain.LEFT_FEEDBACK_DIRECTION * driveTrain.getFeedbackSample().getLeftTicksPerSecond(), 20);
+    assertEquals(-180, DriveTrain.RIGHT_FEEDBACK_DIRECTION * driveTrain.getFeedbackSample().getRightTicksPerSecond(), 20);
+    robot.close();
+  }
+}
@@ -0,0 +1,58 @@
+package subsystems;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.*;
+
+import motion.DriveGeometry;
+import motion.Pose;
+
+public class OdometryUnitTest {
+  private final DriveGeometry geometry = DriveGeometry.learningBot();
+
+  @Test
+  public void itShouldTrackAStraightDriveForward() {
+    // Assemble
+    Odometry odometry = new Odometry(geometry);
+    long ticks = Math.round(geometry.metersToTicks(1));
+
+    // Act
+    odometry.feedbackAcquired(0, 0, 0);
+    for (int i = 1; i <= 10; i++) {
+      // The left wheel counts backwards when driving forward
+      odometry.feedbackAcquired(i, -ticks * i / 10, ticks * i / 10);
+    }
+
+    // Assert
+    Pose pose = odometry.getPose();
+    assertEquals(1, pose.getXMeters(), 0.002);
+    assertEquals(0, pose.getYMeters(), 1e-9);
+    assertEquals(0, pose.getHeadingRadians(), 1e-9);
+    assertEquals(10, odometry.getUpdateCount());
+  }
+
+  @Test
+  public void itShouldTrackAQuarterTurnArc() {
+    // Assemble
+    Odometry odometry = new Odometry(geometry);
+    double radius = 0.5;
+    double track = geometry.getTrackWidthMeters();
+    double leftTicks = geometry.metersToTicks((radius - track / 2) * Math.PI / 2);
+    double rightTicks = geometry.metersToTicks((radius + track / 2) * Math.PI / 2);
+    double[] pose = new double[3];
+
+    // Act
+    odometry.reset(1, 2, 0);
+    odometry.feedbackAcquired(0, 0, 0);
+    for (int i = 1; i <= 100; i++) {
+      odometry.feedbackAcquired(i, -Math.round(leftTicks * i / 100), Math.round(rightTicks * i / 100));
+    }
+    long timestamp = odometry.getPose(pose);
+
+    // Assert
+    assertEquals(100, timestamp);
+    assertEquals(1 + radius, pose[0], 0.01);
+    assertEquals(2 + radius, pose[1], 0.01);
+    assertEquals(Math.PI / 2, pose[2], 0.02);
+  }
+}
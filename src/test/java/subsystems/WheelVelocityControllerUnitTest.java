@@ -0,0 +1,39 @@
+package subsystems;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.*;
+
+public class WheelVelocityControllerUnitTest {
+  @Test
+  public void itShouldNotWindUpWhileTheOutputIsSaturated() {
+    // Assemble
+    WheelVelocityController controller = new WheelVelocityController(new VelocityGains(0.1, 1, 0, 0, 0, 720));
+
+    // Act
+    double saturated = 0;
+    for (int i = 0; i < 500; i++) {
+      // A stalled wheel asked for full speed for ten seconds
+      saturated = controller.calculate(720, 0, 0.02);
+    }
+    double released = controller.calculate(0, 0, 0.02);
+
+    // Assert
+    assertEquals(100, saturated, 0);
+    // Only the first period integrated, 720 * 0.02; a wound up integral would still push 100%
+    assertEquals(14.4, released, 1e-9);
+  }
+
+  @Test
+  public void itShouldIntegrateWhileTheOutputIsNotSaturated() {
+    // Assemble
+    WheelVelocityController controller = new WheelVelocityController(new VelocityGains(0, 1, 0, 0, 0, 720));
+
+    // Act
+    controller.calculate(10, 0, 0.5);
+    double output = controller.calculate(10, 0, 0.5);
+
+    // Assert
+    assertEquals(10, output, 1e-9);
+  }
+}
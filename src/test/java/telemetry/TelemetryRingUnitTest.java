@@ -0,0 +1,37 @@
+package telemetry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class TelemetryRingUnitTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void itShouldDecodeTheNewestRecordsOldestFirstAfterWrapping() throws IOException {
+    // Assemble
+    File file = folder.newFile("telemetry.ring");
+    try (TelemetryRing ring = new TelemetryRing(file.getPath(), 4)) {
+      for (int i = 1; i <= 6; i++) {
+        ring.record(i * 1000, i, -i, i - 1, 1 - i, i * 100, -i * 100, 250);
+      }
+    }
+    StringWriter csv = new StringWriter();
+
+    // Act
+    long count = TelemetryDecoder.decode(file.getPath(), csv);
+
+    // Assert
+    assertEquals(4, count);
+    String[] lines = csv.toString().split("\n");
+    assertEquals(TelemetryDecoder.CSV_HEADER, lines[0]);
+    assertEquals("3,3000,3,-3,2,-2,300,-300,300,60,250", lines[1]);
+    assertEquals("6,6000,6,-6,5,-5,600,-600,240,120,250", lines[4]);
+  }
+}
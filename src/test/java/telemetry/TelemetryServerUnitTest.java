@@ -0,0 +1,60 @@
+package telemetry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.Socket;
+
+import org.junit.*;
+
+public class TelemetryServerUnitTest {
+  @Test
+  public void itShouldStreamDeltaEncodedBatchesToALocalClient() throws IOException {
+    // Assemble
+    TelemetrySource source = new TelemetrySource() {
+      private long count;
+
+      @Override
+      public String[] getFieldNames() {
+        return new String[] { "count", "negative_squares" };
+      }
+
+      @Override
+      public void sample(long[] fields, int offset) {
+        count++;
+        fields[offset] = count;
+        fields[offset + 1] = -count * count * 1000000000L;
+      }
+    };
+
+    try (TelemetryServer server = new TelemetryServer(source, 0, 5, 4);
+        Socket socket = new Socket("localhost", server.getPort())) {
+      server.start();
+      socket.setSoTimeout(5000);
+
+      // Act
+      TelemetryStreamReader reader = new TelemetryStreamReader(socket.getInputStream());
+      long[][] first = reader.readBatch();
+      long[][] second = reader.readBatch();
+
+      // Assert
+      assertArrayEquals(new String[] { "time_us", "count", "negative_squares" }, reader.getFieldNames());
+      assertEquals(5000, reader.getSamplePeriodMicros());
+      assertEquals(4, first.length);
+      assertEquals(4, second.length);
+      long firstCount = first[0][1];
+      for (int i = 0; i < 8; i++) {
+        long[] sample = i < 4 ? first[i] : second[i - 4];
+        long count = firstCount + i;
+        assertEquals(count, sample[1]);
+        assertEquals(-count * count * 1000000000L, sample[2]);
+        if (i > 0) {
+          long[] before = i - 1 < 4 ? first[i - 1] : second[i - 5];
+          assertTrue(sample[0] > before[0]);
+        }
+      }
+    }
+  }
+}